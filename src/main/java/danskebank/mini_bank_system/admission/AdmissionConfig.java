@@ -0,0 +1,33 @@
+package danskebank.mini_bank_system.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Admission control for {@link AdmissionControlled} endpoints. With {@code admission.enabled=false}
+ * every request is admitted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    @Bean
+    AdmissionControl admissionControl(MeterRegistry meterRegistry, Environment environment) {
+        return new AdmissionControl(meterRegistry, environment);
+    }
+
+    @Bean
+    WebMvcConfigurer admissionInterceptorConfigurer(AdmissionControl admissionControl) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new AdmissionInterceptor(admissionControl));
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package danskebank.mini_bank_system.admission;
+
+import danskebank.mini_bank_system.exception.AdmissionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits a request only while both its endpoint's {@link AimdLimiter} and the shared capacity have
+ * room, and fails fast with an {@link AdmissionException} otherwise. {@link Priority#READ} requests
+ * leave {@code admission.reserved-for-writes} of the shared capacity free, so a search spike is shed
+ * before it can take the connections that creates and updates need.
+ */
+public class AdmissionControl {
+    private static final String PREFIX = "admission.";
+
+    private final MeterRegistry meterRegistry;
+    private final Binder binder;
+    private final int capacity;
+    private final int reservedForWrites;
+    private final long retryAfterSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentMap<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdmissionControl(MeterRegistry meterRegistry, Environment environment) {
+        this.meterRegistry = meterRegistry;
+        this.binder = Binder.get(environment);
+        this.capacity = binder.bind(PREFIX + "capacity", Integer.class).orElse(20);
+        this.reservedForWrites = binder.bind(PREFIX + "reserved-for-writes", Integer.class).orElse(5);
+        this.retryAfterSeconds = Math.max(1, binder.bind(PREFIX + "retry-after", Duration.class).orElse(Duration.ofSeconds(1)).toSeconds());
+        Gauge.builder("admission.capacity.in.flight", inFlight, AtomicInteger::get)
+                .description("Admitted requests in flight across all endpoints")
+                .register(meterRegistry);
+    }
+
+    public final class Permit {
+        private final AimdLimiter limiter;
+        private final long startNanos = System.nanoTime();
+
+        private Permit(AimdLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /** Returns the permit and feeds the request's latency, and whether it failed, to the endpoint's limit. */
+        public void release(boolean failed) {
+            inFlight.decrementAndGet();
+            limiter.release(System.nanoTime() - startNanos, failed);
+        }
+    }
+
+    public Permit acquire(String endpoint, Priority priority) {
+        var limiter = limiters.computeIfAbsent(endpoint, this::newLimiter);
+        int available = priority == Priority.WRITE ? capacity : capacity - reservedForWrites;
+        if (!tryAcquireShared(available)) {
+            throw reject(endpoint, priority, "capacity");
+        }
+        if (!limiter.tryAcquire()) {
+            inFlight.decrementAndGet();
+            throw reject(endpoint, priority, "limit");
+        }
+        return new Permit(limiter);
+    }
+
+    private boolean tryAcquireShared(int available) {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= available) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private AdmissionException reject(String endpoint, Priority priority, String reason) {
+        Counter.builder("admission.rejected")
+                .description("Requests shed with 503 because the endpoint limit or the shared capacity was reached")
+                .tag("endpoint", endpoint)
+                .tag("priority", priority.name())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new AdmissionException(String.format("Too many concurrent %s requests, retry later.", endpoint), retryAfterSeconds);
+    }
+
+    // admission.endpoints.<endpoint>.<name> overrides admission.<name>
+    private AimdLimiter newLimiter(String endpoint) {
+        var limiter = new AimdLimiter(
+                property(endpoint, "initial-limit", Integer.class, 10),
+                property(endpoint, "min-limit", Integer.class, 1),
+                property(endpoint, "max-limit", Integer.class, capacity),
+                property(endpoint, "latency-threshold", Duration.class, Duration.ofMillis(250)).toNanos(),
+                property(endpoint, "backoff-ratio", Double.class, 0.9));
+        Gauge.builder("admission.limit", limiter, AimdLimiter::getLimit)
+                .description("Current adaptive concurrency limit of the endpoint")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        Gauge.builder("admission.in.flight", limiter, AimdLimiter::getInFlight)
+                .description("Admitted requests in flight for the endpoint")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    private <T> T property(String endpoint, String name, Class<T> type, T defaultValue) {
+        return binder.bind(PREFIX + "endpoints." + endpoint + "." + name, type)
+                .orElseGet(() -> binder.bind(PREFIX + name, type).orElse(defaultValue));
+    }
+}
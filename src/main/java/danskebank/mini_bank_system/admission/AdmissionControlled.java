@@ -0,0 +1,19 @@
+package danskebank.mini_bank_system.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method behind {@link AdmissionControl}, with its own adaptive concurrency limit
+ * named {@link #endpoint()}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionControlled {
+
+    String endpoint();
+
+    Priority priority();
+}
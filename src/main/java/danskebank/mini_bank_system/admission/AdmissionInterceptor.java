@@ -0,0 +1,43 @@
+package danskebank.mini_bank_system.admission;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Acquires a permit before an {@link AdmissionControlled} handler runs and releases it once the
+ * response is complete. A rejection is thrown from {@code preHandle}, so it is rendered by the
+ * controller advice like any other handler exception. A streamed response keeps the permit from the
+ * first dispatch until the async dispatch that completes it.
+ */
+@RequiredArgsConstructor
+class AdmissionInterceptor implements HandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final AdmissionControl admissionControl;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        if (handler instanceof HandlerMethod handlerMethod) {
+            var admission = handlerMethod.getMethodAnnotation(AdmissionControlled.class);
+            if (admission != null) {
+                request.setAttribute(PERMIT_ATTRIBUTE, admissionControl.acquire(admission.endpoint(), admission.priority()));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdmissionControl.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.release(ex != null || response.getStatus() >= 500);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.admission;
+
+public enum Priority {
+    /** May use the whole admission capacity. */
+    WRITE,
+    /** Shed first: never uses the capacity reserved for writes. */
+    READ
+}
@@ -0,0 +1,7 @@
+package danskebank.mini_bank_system.audit;
+
+public enum AuditAction {
+    INSERT,
+    UPDATE,
+    DELETE
+}
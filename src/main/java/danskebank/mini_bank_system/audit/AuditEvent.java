@@ -0,0 +1,12 @@
+package danskebank.mini_bank_system.audit;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One committed change of an audited entity. {@code before} is null for inserts and {@code after} for deletes.
+ */
+public record AuditEvent(String entityType, Long entityId, AuditAction action,
+                         Map<String, Object> before, Map<String, Object> after,
+                         String changedBy, LocalDateTime changedAt) {
+}
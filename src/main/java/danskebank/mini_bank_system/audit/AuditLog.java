@@ -0,0 +1,51 @@
+package danskebank.mini_bank_system.audit;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only audit table. Rows are written by {@link AuditQueue} with plain JDBC; the mapping only
+ * defines the table and allows reading it back.
+ */
+@Entity
+@Immutable
+@Table(name = "audit_log", indexes = @Index(name = "idx_audit_log_entity", columnList = "entity_type, entity_id"))
+@Getter
+public class AuditLog {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entity_type", length = 32, nullable = false)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8, nullable = false)
+    private AuditAction action;
+
+    @Column(name = "before_image", length = 4000)
+    private String beforeImage;
+
+    @Column(name = "after_image", length = 4000)
+    private String afterImage;
+
+    @Column(name = "changed_by")
+    private String changedBy;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
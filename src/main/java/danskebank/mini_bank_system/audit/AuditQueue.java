@@ -0,0 +1,181 @@
+package danskebank.mini_bank_system.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory queue of committed changes, drained by a single background thread that inserts them
+ * into {@code audit_log} in JDBC batches of up to {@code audit.queue.batch-size} rows.
+ * <p>
+ * Back-pressure: when the queue is full, {@link #publish} waits up to {@code audit.queue.offer-timeout-millis}
+ * and then writes the event on the caller's thread, so a slow database slows writers down instead of losing
+ * events. Events published while the writer is not running are written the same way.
+ * <p>
+ * Durability: an event is only held in memory between the commit of its change and the batch insert. A clean
+ * shutdown drains the queue before the data source closes; a crash loses what was still queued. A batch that
+ * fails {@value #MAX_ATTEMPTS} times is logged at ERROR with its events and dropped.
+ */
+@Slf4j
+@Component
+public class AuditQueue implements SmartLifecycle {
+    static final String INSERT_SQL = "INSERT INTO audit_log (entity_type, entity_id, action, before_image, after_image, changed_by, changed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final int MAX_ATTEMPTS = 3;
+    /**
+     * Below the web server's start and stop phase ({@code SMART_LIFECYCLE_PHASE - 1024}), so the writer
+     * starts before and stops after it and requests still being served can publish.
+     */
+    static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+    private static final long POLL_MILLIS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final Counter overflowCounter;
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditQueue(JdbcTemplate jdbcTemplate,
+                      ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry,
+                      @Value("${audit.queue.capacity:10000}") int capacity,
+                      @Value("${audit.queue.batch-size:500}") int batchSize,
+                      @Value("${audit.queue.offer-timeout-millis:100}") long offerTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        Gauge.builder("audit.queue.size", queue, Collection::size)
+                .description("Audit events waiting for the background writer")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("audit.events.overflow")
+                .description("Audit events written on the caller's thread because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public void publish(AuditEvent event) {
+        if (running) {
+            try {
+                if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                overflowCounter.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        write(List.of(event));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("audit-writer").daemon().start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Dropping {} audit events that could not be written: {}", batch.size(), batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void write(List<AuditEvent> events) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (statement, event) -> {
+                    statement.setString(1, event.entityType());
+                    statement.setLong(2, event.entityId());
+                    statement.setString(3, event.action().name());
+                    statement.setString(4, json(event.before()));
+                    statement.setString(5, json(event.after()));
+                    statement.setString(6, event.changedBy());
+                    statement.setObject(7, event.changedAt());
+                });
+                return;
+            } catch (DataAccessException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("Dropping {} audit events after {} attempts: {}", events.size(), attempt, events, e);
+                    return;
+                }
+                log.warn("Writing {} audit events failed, attempt {} of {}", events.size(), attempt, MAX_ATTEMPTS, e);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private String json(Map<String, Object> image) {
+        if (image == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(image);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Audit image cannot be serialized: " + image, e);
+        }
+    }
+}
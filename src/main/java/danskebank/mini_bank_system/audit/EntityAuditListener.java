@@ -0,0 +1,108 @@
+package danskebank.mini_bank_system.audit;
+
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.BaseEntity;
+import danskebank.mini_bank_system.entity.Customer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Captures before and after images of customers and addresses once their transaction has committed and
+ * hands them to the {@link AuditQueue}. Hibernate already holds both images after the flush, so the write
+ * path only pays for copying them into a map; serialization and the insert happen on the writer thread.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityAuditListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private static final Set<Class<?>> AUDITED = Set.of(Customer.class, Address.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuditQueue auditQueue;
+    private final AuditorAware<String> auditorAware;
+
+    @PostConstruct
+    void register() {
+        var registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return AUDITED.contains(persister.getMappedClass());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        auditQueue.publish(event(event.getPersister(), event.getId(), AuditAction.INSERT, null, event.getState()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        auditQueue.publish(event(event.getPersister(), event.getId(), AuditAction.UPDATE, event.getOldState(), event.getState()));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        auditQueue.publish(event(event.getPersister(), event.getId(), AuditAction.DELETE, event.getDeletedState(), null));
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // nothing was committed, so there is nothing to audit
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private AuditEvent event(EntityPersister persister, Object id, AuditAction action, Object[] before, Object[] after) {
+        return new AuditEvent(persister.getMappedClass().getSimpleName(), (Long) id, action,
+                image(persister, before), image(persister, after),
+                auditorAware.getCurrentAuditor().orElse(null), LocalDateTime.now());
+    }
+
+    private static Map<String, Object> image(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        Map<String, Object> image = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isCollectionType()) {
+                continue;
+            }
+            // associations are recorded by id; reading the id does not initialize a proxy
+            image.put(names[i], state[i] instanceof BaseEntity entity ? entity.getId() : state[i]);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,63 @@
+package danskebank.mini_bank_system.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache regions, kept in size-bounded Caffeine caches. The regions are
+ * created up front so that Hibernate fails on an unknown region instead of creating an unbounded one.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String ACCOUNT = "account";
+    public static final String ACCOUNT_CUSTOMERS = "account-customers";
+    public static final String CUSTOMER = "customer";
+    public static final String CUSTOMER_ADDRESSES = "customer-addresses";
+    public static final String ADDRESS = "address";
+    static final String QUERY_RESULTS = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${cache.second-level.entity-max-size:10000}") long entityMaxSize,
+                                                @Value("${cache.second-level.collection-max-size:1000}") long collectionMaxSize,
+                                                @Value("${cache.second-level.query-max-size:1000}") long queryMaxSize) {
+        var provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // the provider shares managers by URI across the JVM, so give every application context its own
+        var cacheManager = provider.getCacheManager(
+                URI.create("mini-bank-system:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        Map.of(ACCOUNT, entityMaxSize,
+                CUSTOMER, entityMaxSize,
+                ADDRESS, entityMaxSize,
+                ACCOUNT_CUSTOMERS, collectionMaxSize,
+                CUSTOMER_ADDRESSES, collectionMaxSize,
+                QUERY_RESULTS, queryMaxSize
+        ).forEach((region, maximumSize) -> cacheManager.createCache(region, configuration(OptionalLong.of(maximumSize))));
+        // evicting a table's timestamp could serve stale query results, so this region is unbounded
+        cacheManager.createCache(UPDATE_TIMESTAMPS, configuration(OptionalLong.empty()));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(OptionalLong maximumSize) {
+        var configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize);
+        return configuration;
+    }
+}
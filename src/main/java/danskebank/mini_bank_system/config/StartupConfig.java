@@ -0,0 +1,23 @@
+package danskebank.mini_bank_system.config;
+
+import danskebank.mini_bank_system.audit.EntityAuditListener;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Beans created at startup even with {@code spring.main.lazy-initialization=true}, as the production
+ * profile sets it: the controllers, so their services and repositories are ready before the first
+ * request, and the audit listener, which has to be registered with Hibernate before the first write.
+ * Lifecycle beans such as the audit writer and the outbox relay are started eagerly anyway.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPath() {
+        return (beanName, beanDefinition, beanType) -> beanType.isAnnotationPresent(RestController.class)
+                || EntityAuditListener.class.isAssignableFrom(beanType);
+    }
+}
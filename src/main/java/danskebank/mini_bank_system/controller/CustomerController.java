@@ -1,18 +1,36 @@
 package danskebank.mini_bank_system.controller;
 
-import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.admission.AdmissionControlled;
+import danskebank.mini_bank_system.admission.Priority;
+import danskebank.mini_bank_system.config.AsyncTimeoutConfig;
+import danskebank.mini_bank_system.dto.CustomerBatchUpdateResponse;
 import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerImportResponse;
 import danskebank.mini_bank_system.dto.CustomerSearchResponse;
-import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.dto.CustomerUpdateResponse;
+import danskebank.mini_bank_system.dto.VersionedCustomer;
 import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.search.SearchCursor;
+import danskebank.mini_bank_system.service.CustomerBatchUpdateService;
+import danskebank.mini_bank_system.service.CustomerExportService;
+import danskebank.mini_bank_system.service.CustomerExportService.ExportFormat;
+import danskebank.mini_bank_system.service.CustomerImportService;
 import danskebank.mini_bank_system.service.CustomerService;
+import danskebank.mini_bank_system.service.IdempotencyService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,59 +40,119 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CustomerController {
     private final CustomerService customerService;
+    private final CustomerImportService customerImportService;
+    private final CustomerExportService customerExportService;
+    private final IdempotencyService idempotencyService;
+    private final CustomerBatchUpdateService customerBatchUpdateService;
 
     @PostMapping("/create/{accountId}")
-    public ResponseEntity<Customer> createCustomer(
+    @AdmissionControlled(endpoint = "create", priority = Priority.WRITE)
+    public ResponseEntity<?> createCustomer(
             @PathVariable Long accountId,
-            @RequestBody CustomerDTO customerDTO) {
+            @RequestBody CustomerDTO customerDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            return idempotencyService.execute(accountId, idempotencyKey, List.of(accountId, customerDTO), HttpStatus.CREATED,
+                    () -> customerService.createCustomer(accountId, customerDTO));
+        }
         Customer createdCustomer = customerService.createCustomer(accountId, customerDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdCustomer);
     }
 
+    @PostMapping(value = "/import/{accountId}", consumes = "application/x-ndjson")
+    @AdmissionControlled(endpoint = "import", priority = Priority.WRITE)
+    public ResponseEntity<CustomerImportResponse> importCustomersNdjson(@PathVariable Long accountId, InputStream body) {
+        return ResponseEntity.ok(customerImportService.importNdjson(accountId, body));
+    }
+
+    @PostMapping(value = "/import/{accountId}", consumes = "text/csv")
+    @AdmissionControlled(endpoint = "import", priority = Priority.WRITE)
+    public ResponseEntity<CustomerImportResponse> importCustomersCsv(@PathVariable Long accountId, InputStream body) {
+        return ResponseEntity.ok(customerImportService.importCsv(accountId, body));
+    }
+
     @PatchMapping("/update/{customerId}")
-    public ResponseEntity<Customer> updateCustomer(@PathVariable Long customerId, @RequestBody CustomerDTO customerDTO) {
-        Customer updatedCustomer = customerService.updateCustomer(customerId, customerDTO);
-        log.info("----creating----");
-        return ResponseEntity.status(HttpStatus.OK).body(updatedCustomer);
+    @AdmissionControlled(endpoint = "update", priority = Priority.WRITE)
+    public ResponseEntity<CustomerUpdateResponse> updateCustomer(
+            @PathVariable Long customerId,
+            @RequestBody CustomerDTO customerDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        CustomerUpdateResponse response = customerService.updateCustomer(customerId, customerDTO, ifMatch);
+        return ResponseEntity.status(HttpStatus.OK).eTag(response.getEtag()).body(response);
+    }
+
+    @PatchMapping(value = "/batch", consumes = "application/x-ndjson")
+    @AdmissionControlled(endpoint = "batch", priority = Priority.WRITE)
+    public ResponseEntity<CustomerBatchUpdateResponse> updateCustomers(InputStream body) {
+        return ResponseEntity.ok(customerBatchUpdateService.updateNdjson(body));
+    }
+
+    @GetMapping("/{customerId}")
+    @AdmissionControlled(endpoint = "get", priority = Priority.READ)
+    public ResponseEntity<CustomerDTO> getCustomer(
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        VersionedCustomer versioned = customerService.getCustomer(customerId, ifNoneMatch);
+        if (versioned.customer() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versioned.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(versioned.etag()).body(versioned.customer());
+    }
+
+    // one mapping for all formats, so a request without a specific Accept header keeps getting NDJSON
+    @GetMapping(value = "/export", produces = {"application/x-ndjson", "application/cbor-seq", "application/x-jackson-smile"})
+    @AdmissionControlled(endpoint = "export", priority = Priority.READ)
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(required = false) String searchTerm,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletRequest request) {
+        ExportFormat format = exportFormat(accept);
+        AsyncTimeoutConfig.setTimeout(request, customerExportService.getRequestTimeout());
+        StreamingResponseBody body = out -> customerExportService.export(searchTerm, format, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getMediaType())).body(body);
+    }
+
+    // the highest quality, then most specific, accepted type wins; a wildcard picks the first format it covers
+    private static ExportFormat exportFormat(String accept) {
+        if (accept == null) {
+            return ExportFormat.NDJSON;
+        }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (var mediaType : accepted) {
+            for (var format : ExportFormat.values()) {
+                if (mediaType.includes(MediaType.parseMediaType(format.getMediaType()))) {
+                    return format;
+                }
+            }
+        }
+        return ExportFormat.NDJSON;
     }
 
     @GetMapping("/search")
+    @AdmissionControlled(endpoint = "search", priority = Priority.READ)
     public ResponseEntity<CustomerSearchResponse> searchCustomers(
             @RequestParam String searchTerm,
-            @RequestParam int page,
-            @RequestParam int size) {
-        Page<Customer> customerPage = customerService.searchCustomers(searchTerm, page, size);
-        log.info("----searching----");
+            @RequestParam(required = false) Integer page,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor) {
         var response = new CustomerSearchResponse();
-        response.setTotalCount(customerPage.getTotalElements());
-        response.setCustomers(customerMapper(customerPage.getContent()));
+        if (page != null && cursor == null) {
+            Page<CustomerDTO> customerPage = customerService.searchCustomers(searchTerm, page, size);
+            response.setTotalCount(customerPage.getTotalElements());
+            response.setCustomers(customerPage.getContent());
+        } else {
+            Slice<CustomerDTO> customerSlice = customerService.searchCustomersAfter(searchTerm, SearchCursor.decode(cursor), size);
+            List<CustomerDTO> customers = customerSlice.getContent();
+            if (customerSlice.hasNext() && !customers.isEmpty()) {
+                response.setNextCursor(SearchCursor.encode(customers.get(customers.size() - 1).getId()));
+            }
+            customerService.estimateSearchCount(searchTerm).ifPresent(estimate -> {
+                response.setTotalCount(estimate);
+                response.setTotalCountEstimated(true);
+            });
+            response.setCustomers(customers);
+        }
         return ResponseEntity.ok(response);
     }
-
-    static List<CustomerDTO> customerMapper(List<Customer> customers) {
-        ArrayList<CustomerDTO> customerDTOS = new ArrayList<>();
-        customers.forEach(customer -> {
-            CustomerDTO dto = new CustomerDTO();
-            dto.setName(customer.getName());
-            dto.setLastname(customer.getLastname());
-            dto.setEmail(customer.getEmail());
-            dto.setPhoneNumber(customer.getPhoneNumber());
-            dto.setType(customer.getType().toString());
-            dto.setAddresses(addressMapper(customer.getAddresses()));
-            customerDTOS.add(dto);
-        });
-        return customerDTOS;
-    }
-
-    static List<AddressDTO> addressMapper(List<Address> addresses) {
-        ArrayList<AddressDTO> addressDTOS = new ArrayList<>();
-        addresses.forEach(address -> {
-            AddressDTO dto = new AddressDTO();
-            dto.setCity(address.getCity());
-            dto.setStreet(address.getStreet());
-            dto.setPostalCode(address.getPostalCode());
-            addressDTOS.add(dto);
-        });
-        return addressDTOS;
-    }
 }
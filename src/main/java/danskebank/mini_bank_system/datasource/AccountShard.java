@@ -0,0 +1,15 @@
+package danskebank.mini_bank_system.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the account id parameter of a bean method that must run on the account's shard; see
+ * {@link ShardRoutingAspect}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AccountShard {
+}
@@ -0,0 +1,75 @@
+package danskebank.mini_bank_system.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers, for {@code datasource.routing.read-your-writes-window} after a committed write, which customers
+ * were written, so a lagging replica cannot hide the change: a read that declares it is about one of them
+ * gets its connection from the primary, whoever makes it. The read has to declare the customers before its
+ * transaction runs its first statement, as that is when the connection is chosen. Reads that cannot name
+ * their customers up front, such as a search query, still read from a replica.
+ */
+@Component
+public class ReadYourWritesWindow {
+    private final Cache<Long, Boolean> recentlyWritten;
+    private final ThreadLocal<Collection<Long>> reading = new ThreadLocal<>();
+
+    /** Ends a {@link #reading} scope. */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public ReadYourWritesWindow(@Value("${datasource.routing.read-your-writes-window:5s}") Duration window) {
+        this.recentlyWritten = window.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void recordWriteAfterCommit(Collection<Long> customerIds) {
+        if (recentlyWritten == null || customerIds.isEmpty()) {
+            return;
+        }
+        var written = List.copyOf(customerIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    written.forEach(id -> recentlyWritten.put(id, Boolean.TRUE));
+                }
+            });
+        } else {
+            written.forEach(id -> recentlyWritten.put(id, Boolean.TRUE));
+        }
+    }
+
+    /** Declares, until the scope is closed, that the current thread reads these customers. */
+    public Scope reading(Collection<Long> customerIds) {
+        var previous = reading.get();
+        reading.set(customerIds);
+        return () -> {
+            if (previous == null) {
+                reading.remove();
+            } else {
+                reading.set(previous);
+            }
+        };
+    }
+
+    /** Whether a customer the current thread reads was written within the window. */
+    public boolean isActive() {
+        var customerIds = reading.get();
+        return recentlyWritten != null && customerIds != null
+                && customerIds.stream().anyMatch(id -> recentlyWritten.getIfPresent(id) != null);
+    }
+}
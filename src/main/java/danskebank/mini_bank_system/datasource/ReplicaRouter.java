@@ -0,0 +1,153 @@
+package danskebank.mini_bank_system.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections for read-only transactions: round-robin over the replicas that passed their
+ * last health check, or from the primary when none is healthy, when a replica fails to connect, or
+ * while the {@link ReadYourWritesWindow} of a customer being read is open. Owns the primary and replica pools.
+ */
+@Slf4j
+public class ReplicaRouter implements Closeable {
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> readConnections;
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    public ReplicaRouter(DataSource primary, Map<String, DataSource> replicas, ReadYourWritesWindow readYourWritesWindow,
+                         Duration healthCheckTimeout, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+        this.replicas = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+
+        var counters = new HashMap<String, Counter>();
+        counters.put(PRIMARY, readConnectionCounter(meterRegistry, PRIMARY));
+        for (var replica : this.replicas) {
+            counters.put(replica.name, readConnectionCounter(meterRegistry, replica.name));
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Whether the replica passed its last health check")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        this.readConnections = Map.copyOf(counters);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /** The data source that read-only transactions obtain their connection from. */
+    public DataSource readOnlyDataSource() {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return readConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return readConnection();
+            }
+        };
+    }
+
+    Connection readConnection() throws SQLException {
+        if (!readYourWritesWindow.isActive()) {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+            for (int i = 0; i < size; i++) {
+                var replica = replicas.get((start + i) % size);
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    var connection = replica.dataSource.getConnection();
+                    readConnections.get(replica.name).increment();
+                    return connection;
+                } catch (SQLException e) {
+                    markDown(replica, e);
+                }
+            }
+        }
+        readConnections.get(PRIMARY).increment();
+        return primary.getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.routing.health-check-interval:PT5S}")
+    public void checkHealth() {
+        for (var replica : replicas) {
+            try (var connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(healthCheckTimeoutSeconds)) {
+                    if (!replica.healthy) {
+                        log.info("Replica {} is healthy again", replica.name);
+                    }
+                    replica.healthy = true;
+                } else {
+                    markDown(replica, null);
+                }
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            log.warn("Replica {} is unavailable, reading from the other replicas or the primary", replica.name, e);
+        }
+        replica.healthy = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static Counter readConnectionCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.read.connections")
+                .description("Connections handed to read-only transactions, by data source")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package danskebank.mini_bank_system.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source with one that keeps read-write transactions on the primary
+ * ({@code spring.datasource.*}) and sends read-only ones to the replicas in {@code datasource.replicas[n].*}
+ * through {@link ReplicaRouter}. The connection is obtained lazily, once the transaction has marked it
+ * read-only. Replica pools take their settings from {@code spring.datasource.hikari.*}. The pools are not
+ * beans of their own, so the data source is wrapped by post-processors only once.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    ReplicaRouter replicaRouter(DataSourceProperties properties, Environment environment, ReadYourWritesWindow readYourWritesWindow,
+                                MeterRegistry meterRegistry,
+                                @Value("${datasource.routing.health-check-timeout:1s}") Duration healthCheckTimeout) {
+        var binder = Binder.get(environment);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceProperties> replicaProperties = binder.bind("datasource.replicas", Bindable.listOf(DataSourceProperties.class))
+                .orElse(List.of());
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            var replica = pool(binder, replicaProperties.get(i), "replica-" + i);
+            // an unreachable replica must not prevent startup; reads fall back to the primary until it is healthy
+            replica.setInitializationFailTimeout(-1);
+            replicas.put("replica-" + i, replica);
+        }
+        return new ReplicaRouter(pool(binder, properties, ReplicaRouter.PRIMARY), replicas, readYourWritesWindow,
+                healthCheckTimeout, meterRegistry);
+    }
+
+    @Bean
+    DataSource dataSource(ReplicaRouter replicaRouter) {
+        var dataSource = new LazyConnectionDataSourceProxy(replicaRouter.getPrimary());
+        dataSource.setReadOnlyDataSource(replicaRouter.readOnlyDataSource());
+        return dataSource;
+    }
+
+    static HikariDataSource pool(Binder binder, DataSourceProperties properties, String name) {
+        var pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
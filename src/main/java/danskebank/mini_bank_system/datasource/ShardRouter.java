@@ -0,0 +1,233 @@
+package danskebank.mini_bank_system.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Spreads accounts, with their customers and addresses, over several databases. An account lives on
+ * shard {@code accountId mod shards}; a customer lives on its account's shard and is found by asking
+ * every shard once. Work runs against the shard bound to the current thread by {@link #bind}, or
+ * against shard 0, which also holds the tables that are not sharded. Owns the shard pools.
+ * <p>
+ * Without sharding there is a single shard, binding has no effect and {@link #onEveryShard} runs on
+ * the calling thread.
+ */
+public class ShardRouter implements Closeable {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+    private final List<JdbcTemplate> lookups;
+    private final List<Counter> connections;
+    private final Cache<Long, Integer> customerShards;
+    private final TaskDecorator taskDecorator;
+
+    public ShardRouter(List<DataSource> shards, long customerCacheSize, MeterRegistry meterRegistry, TaskDecorator taskDecorator) {
+        this.shards = List.copyOf(shards);
+        this.taskDecorator = taskDecorator;
+        this.lookups = this.shards.stream().map(JdbcTemplate::new).toList();
+        this.connections = new ArrayList<>();
+        for (int shard = 0; shard < this.shards.size(); shard++) {
+            connections.add(Counter.builder("datasource.shard.connections")
+                    .description("Connections handed out, by shard")
+                    .tag("shard", String.valueOf(shard))
+                    .register(meterRegistry));
+        }
+        this.customerShards = Caffeine.newBuilder().maximumSize(customerCacheSize).build();
+    }
+
+    public static ShardRouter unsharded() {
+        return new ShardRouter(List.of(), 0, null, task -> task);
+    }
+
+    /** Restores the previously bound shard when closed. */
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public int size() {
+        return Math.max(1, shards.size());
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public int shardOf(long accountId) {
+        return Math.floorMod(accountId, size());
+    }
+
+    /** The shard holding the customer, or 0 when no shard has it. */
+    public int shardOfCustomer(long customerId) {
+        return shardsOfCustomers(List.of(customerId)).get(customerId);
+    }
+
+    /**
+     * The shard holding each customer, or 0 for those no shard has. Customers not remembered yet are looked up
+     * with one query per shard for all of them.
+     */
+    public Map<Long, Integer> shardsOfCustomers(Collection<Long> customerIds) {
+        Map<Long, Integer> shards = new HashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        for (long customerId : customerIds) {
+            Integer cached = isSharded() ? customerShards.getIfPresent(customerId) : Integer.valueOf(0);
+            if (shards.putIfAbsent(customerId, cached == null ? 0 : cached) == null && cached == null) {
+                unknown.add(customerId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return shards;
+        }
+        String sql = "SELECT id FROM customer WHERE id IN (" + String.join(", ", Collections.nCopies(unknown.size(), "?")) + ")";
+        var found = onEveryShard(shard -> lookups.get(shard).queryForList(sql, Long.class, unknown.toArray()));
+        for (int shard = 0; shard < found.size(); shard++) {
+            for (long customerId : found.get(shard)) {
+                shards.put(customerId, shard);
+                customerShards.put(customerId, shard);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Remembers where a customer was seen, so routing to it needs no lookup. A customer only changes shards when
+     * it is reassigned to an account on another shard, which records its new shard here.
+     */
+    public void customerFound(long customerId, int shard) {
+        if (isSharded()) {
+            customerShards.put(customerId, shard);
+        }
+    }
+
+    /** Drops the remembered shard of the customer; whether there was one. */
+    public boolean forgetCustomer(long customerId) {
+        return isSharded() && customerShards.asMap().remove(customerId) != null;
+    }
+
+    public OptionalInt currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? OptionalInt.empty() : OptionalInt.of(shard);
+    }
+
+    /**
+     * Binds {@code shard} to the current thread. A transaction keeps the connection it obtained first,
+     * so the shard has to be bound before the transaction runs its first statement.
+     */
+    public Binding bind(int shard) {
+        if (shard < 0 || shard >= size()) {
+            throw new IllegalArgumentException("No shard " + shard);
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        try (var ignored = bind(shard)) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Runs {@code action} on every shard in parallel, each on its own virtual thread bound to that shard,
+     * and returns the results in shard order. Meant for reads: the threads do not inherit the caller's
+     * transaction or security context, only what the task decorator carries over.
+     */
+    public <T> List<T> onEveryShard(IntFunction<T> action) {
+        if (!isSharded()) {
+            return List.of(onShard(0, () -> action.apply(0)));
+        }
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int target = shard;
+                var task = new FutureTask<>(() -> onShard(target, () -> action.apply(target)));
+                executor.execute(taskDecorator.decorate(task));
+                futures.add(task);
+            }
+            List<T> results = new ArrayList<>();
+            for (var future : futures) {
+                results.add(join(future));
+            }
+            return results;
+        }
+    }
+
+    /** The data source the JPA and JDBC layers use: connections come from the bound shard, or shard 0. */
+    public DataSource dataSource() {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return connection();
+            }
+        };
+    }
+
+    Connection connection() throws SQLException {
+        Integer shard = CURRENT.get();
+        int target = shard == null ? 0 : shard;
+        connections.get(target).increment();
+        return shards.get(target).getConnection();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        }
+    }
+}
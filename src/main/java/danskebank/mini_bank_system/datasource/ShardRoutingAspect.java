@@ -0,0 +1,86 @@
+package danskebank.mini_bank_system.datasource;
+
+import danskebank.mini_bank_system.exception.CustomerNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.annotation.Annotation;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Binds the shard named by an {@link AccountShard} or {@link CustomerShard} parameter around the call.
+ * It runs outside the transaction advice, so the transaction's connection comes from that shard. A call
+ * that needs another shard than the one the running transaction is bound to fails instead of silently
+ * using the wrong database.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private final ShardRouter shardRouter;
+
+    @Around("execution(* *(.., @danskebank.mini_bank_system.datasource.AccountShard (*), ..))")
+    public Object routeByAccount(ProceedingJoinPoint joinPoint) throws Throwable {
+        return route(joinPoint, AccountShard.class, shardRouter::shardOf);
+    }
+
+    /**
+     * A customer that another instance moved to a new shard is not found on the shard remembered for it; the
+     * call is then routed once more, by asking every shard again.
+     */
+    @Around("execution(* *(.., @danskebank.mini_bank_system.datasource.CustomerShard (*), ..))")
+    public Object routeByCustomer(ProceedingJoinPoint joinPoint) throws Throwable {
+        try {
+            return route(joinPoint, CustomerShard.class, shardRouter::shardOfCustomer);
+        } catch (CustomerNotFoundException e) {
+            Long customerId = key(joinPoint, CustomerShard.class);
+            if (customerId == null || TransactionSynchronizationManager.isActualTransactionActive()
+                    || !shardRouter.forgetCustomer(customerId)) {
+                throw e;
+            }
+            return route(joinPoint, CustomerShard.class, shardRouter::shardOfCustomer);
+        }
+    }
+
+    private Object route(ProceedingJoinPoint joinPoint, Class<? extends Annotation> annotation, LongToIntFunction shardOf)
+            throws Throwable {
+        Long key = key(joinPoint, annotation);
+        if (key == null) {
+            return joinPoint.proceed();
+        }
+        int shard = shardOf.applyAsInt(key);
+        var current = shardRouter.currentShard();
+        if (current.isPresent() && current.getAsInt() == shard) {
+            return joinPoint.proceed();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            int bound = current.orElse(0);
+            if (bound == shard) {
+                return joinPoint.proceed();
+            }
+            throw new IllegalStateException(String.format("%s needs shard %d inside a transaction on shard %d",
+                    joinPoint.getSignature().toShortString(), shard, bound));
+        }
+        try (var ignored = shardRouter.bind(shard)) {
+            return joinPoint.proceed();
+        }
+    }
+
+    private static Long key(ProceedingJoinPoint joinPoint, Class<? extends Annotation> annotation) {
+        var parameterAnnotations = ((MethodSignature) joinPoint.getSignature()).getMethod().getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (var parameterAnnotation : parameterAnnotations[i]) {
+                if (annotation.isInstance(parameterAnnotation) && joinPoint.getArgs()[i] instanceof Long key) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+}
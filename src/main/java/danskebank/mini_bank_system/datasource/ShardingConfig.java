@@ -0,0 +1,127 @@
+package danskebank.mini_bank_system.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * With {@code datasource.sharding.enabled}, replaces the single data source with the shards of a
+ * {@link ShardRouter}: shard 0 is {@code spring.datasource.*} and shard n is {@code datasource.shards[n-1].*}.
+ * The connection is obtained lazily, at the first statement, so an operation can bind its shard after
+ * its transaction has begun but before it touches the database. Flyway migrates every shard, with the
+ * {@code shard} and {@code shards} placeholders set to that shard, and each shard's customer and address
+ * sequences are kept in a range of their own, as ids are used across shards. Otherwise the router has a single
+ * shard and routes nothing.
+ */
+@Configuration
+public class ShardingConfig {
+    private static final String ENABLED = "datasource.sharding.enabled";
+    // shard n hands out ids from n * 2^48 up to the next shard's first id
+    static final long SHARD_ID_RANGE = 1L << 48;
+    // the INCREMENT BY of the sequences in V1
+    private static final long SEQUENCE_INCREMENT = 50;
+    private static final Map<String, String> SHARD_SEQUENCES = Map.of("customer", "customer_seq", "address", "address_seq");
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    ShardRouter shardRouter(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+                            @Value("${datasource.sharding.customer-cache-size:1000000}") long customerCacheSize,
+                            ObjectProvider<TaskDecorator> taskDecorator) {
+        // the trigram index is built from, and kept current by, a single database
+        if (!"jpql".equals(environment.getProperty("search.engine", "trigram"))) {
+            throw new IllegalStateException(ENABLED + " requires search.engine=jpql");
+        }
+        var binder = Binder.get(environment);
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(ReplicaRoutingConfig.pool(binder, properties, "shard-0"));
+        List<DataSourceProperties> shardProperties = binder.bind("datasource.shards", Bindable.listOf(DataSourceProperties.class))
+                .orElse(List.of());
+        for (int i = 0; i < shardProperties.size(); i++) {
+            shards.add(ReplicaRoutingConfig.pool(binder, shardProperties.get(i), "shard-" + (i + 1)));
+        }
+        return new ShardRouter(shards, customerCacheSize, meterRegistry, taskDecorator.getIfUnique(() -> task -> task));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false", matchIfMissing = true)
+    ShardRouter unshardedRouter() {
+        return ShardRouter.unsharded();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    DataSource dataSource(ShardRouter shardRouter) {
+        return new LazyConnectionDataSourceProxy(shardRouter.dataSource());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    ShardRoutingAspect shardRoutingAspect(ShardRouter shardRouter) {
+        return new ShardRoutingAspect(shardRouter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    FlywayMigrationStrategy shardMigrationStrategy(ShardRouter shardRouter) {
+        return flyway -> {
+            for (int shard = 0; shard < shardRouter.size(); shard++) {
+                Map<String, String> placeholders = new HashMap<>(flyway.getConfiguration().getPlaceholders());
+                placeholders.put("shard", String.valueOf(shard));
+                placeholders.put("shards", String.valueOf(shardRouter.size()));
+                var shardFlyway = Flyway.configure(flyway.getConfiguration().getClassLoader())
+                        .configuration(flyway.getConfiguration())
+                        .placeholders(placeholders)
+                        .load();
+                int current = shard;
+                shardRouter.onShard(shard, () -> {
+                    var result = shardFlyway.migrate();
+                    separateIds(new JdbcTemplate(shardRouter.dataSource()), current);
+                    return result;
+                });
+            }
+        };
+    }
+
+    /**
+     * Moves a new shard's sequences to the start of its id range, and fails when a sequence has run past
+     * its range or when a shard that already holds rows drew its ids from another shard's range. The
+     * generator's id blocks are shared by all shards, so rows may hold ids from any range; only the
+     * sequences have to stay apart.
+     */
+    static void separateIds(JdbcTemplate jdbcTemplate, int shard) {
+        long first = shard * SHARD_ID_RANGE;
+        long last = first + SHARD_ID_RANGE - 1;
+        SHARD_SEQUENCES.forEach((table, sequence) -> {
+            long next = jdbcTemplate.queryForObject("SELECT NEXTVAL('" + sequence + "')", Long.class);
+            if (next < first) {
+                if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class) > 0) {
+                    throw new IllegalStateException(String.format("Shard %d's %s is at %d, in another shard's range, and %s has rows",
+                            shard, sequence, next, table));
+                }
+                // the generator takes the value as the top of a block of SEQUENCE_INCREMENT ids
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (first + SEQUENCE_INCREMENT - 1));
+            } else if (next > last) {
+                throw new IllegalStateException(String.format("Shard %d's %s is at %d, past its range %d to %d",
+                        shard, sequence, next, first, last));
+            }
+        });
+    }
+}
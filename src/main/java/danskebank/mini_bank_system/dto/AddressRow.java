@@ -0,0 +1,4 @@
+package danskebank.mini_bank_system.dto;
+
+public record AddressRow(Long customerId, Long id, String street, String city, String postalCode) {
+}
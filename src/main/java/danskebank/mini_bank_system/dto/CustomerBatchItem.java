@@ -0,0 +1,14 @@
+package danskebank.mini_bank_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One line of a batch update: the customer to update and the fields to change, as for a single update. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerBatchItem {
+    private Long id;
+    private CustomerDTO customer;
+}
@@ -0,0 +1,33 @@
+package danskebank.mini_bank_system.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerBatchItemResult {
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        FAILED
+    }
+
+    private long line;
+    private Long customerId;
+    private Status status;
+    private Integer version;
+    private List<String> changedFields;
+    private String error;
+
+    public static CustomerBatchItemResult failed(Long customerId, String error) {
+        var result = new CustomerBatchItemResult();
+        result.setCustomerId(customerId);
+        result.setStatus(Status.FAILED);
+        result.setError(error);
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package danskebank.mini_bank_system.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class CustomerBatchUpdateResponse {
+    private long received;
+    private long updated;
+    private long unchanged;
+    private long failed;
+    private long elapsedMillis;
+    private double itemsPerSecond;
+    private List<CustomerBatchItemResult> failures = new ArrayList<>();
+}
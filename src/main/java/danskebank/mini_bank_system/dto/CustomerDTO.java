@@ -1,15 +1,18 @@
 package danskebank.mini_bank_system.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.util.List;
 
 @Data
 public class CustomerDTO {
+    @JsonIgnore
+    private Long id;
     private String name;
     private String lastname;
     private String phoneNumber;
     private String email;
     private String type;
     private List<AddressDTO> addresses;
-}
\ No newline at end of file
+}
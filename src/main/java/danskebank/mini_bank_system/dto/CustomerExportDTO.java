@@ -0,0 +1,20 @@
+package danskebank.mini_bank_system.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A customer as written by the export: unlike {@link CustomerDTO} it carries the id, so that consumers
+ * can match exported customers to later changes.
+ */
+@Data
+public class CustomerExportDTO {
+    private Long id;
+    private String name;
+    private String lastname;
+    private String phoneNumber;
+    private String email;
+    private String type;
+    private List<AddressDTO> addresses;
+}
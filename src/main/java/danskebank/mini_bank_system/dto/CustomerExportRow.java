@@ -0,0 +1,19 @@
+package danskebank.mini_bank_system.dto;
+
+import danskebank.mini_bank_system.entity.CustomerType;
+
+/**
+ * One customer joined with one of its addresses; the address columns are null for a customer without addresses.
+ */
+public record CustomerExportRow(
+        Long id,
+        String name,
+        String lastname,
+        String phoneNumber,
+        String email,
+        CustomerType type,
+        Long addressId,
+        String street,
+        String city,
+        String postalCode) {
+}
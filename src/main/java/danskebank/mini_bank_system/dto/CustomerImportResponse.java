@@ -0,0 +1,19 @@
+package danskebank.mini_bank_system.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class CustomerImportResponse {
+    private long received;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private List<String> errors = new ArrayList<>();
+}
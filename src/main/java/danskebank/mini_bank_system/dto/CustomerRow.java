@@ -0,0 +1,6 @@
+package danskebank.mini_bank_system.dto;
+
+import danskebank.mini_bank_system.entity.CustomerType;
+
+public record CustomerRow(Long id, Long accountId, String name, String lastname, String phoneNumber, String email, CustomerType type) {
+}
@@ -1,5 +1,6 @@
 package danskebank.mini_bank_system.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -7,7 +8,10 @@ import java.util.List;
 
 @Getter
 @Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CustomerSearchResponse {
-    private long totalCount;
+    private Long totalCount;
+    private boolean totalCountEstimated;
+    private String nextCursor;
     private List<CustomerDTO> customers;
 }
@@ -0,0 +1,22 @@
+package danskebank.mini_bank_system.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class CustomerUpdateResponse {
+    private Long customerId;
+    private int version;
+    @JsonIgnore
+    private String etag;
+    private boolean changed;
+    private List<String> changedFields = new ArrayList<>();
+    private List<AddressDTO> insertedAddresses = new ArrayList<>();
+    private List<AddressDTO> updatedAddresses = new ArrayList<>();
+    private List<Long> deletedAddressIds = new ArrayList<>();
+}
@@ -0,0 +1,4 @@
+package danskebank.mini_bank_system.dto;
+
+public record CustomerVersionRow(int customerVersion, Long addressId, Integer addressVersion) {
+}
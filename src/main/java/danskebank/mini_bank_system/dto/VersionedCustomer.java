@@ -0,0 +1,7 @@
+package danskebank.mini_bank_system.dto;
+
+/**
+ * A customer with its current ETag; {@code customer} is null when the client's copy is still current.
+ */
+public record VersionedCustomer(String etag, CustomerDTO customer) {
+}
@@ -1,47 +1,35 @@
 package danskebank.mini_bank_system.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import danskebank.mini_bank_system.config.SecondLevelCacheConfig;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.OneToMany;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ACCOUNT)
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Account extends BaseEntity {
-    @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    /**
+     * Loaded only on access; owners are added and removed through {@code Customer.account} and the
+     * owner count through {@code AccountRepository.adjustNumberOfOwners}, so neither needs this set.
+     */
+    @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ACCOUNT_CUSTOMERS)
     @JsonIgnore
     private Set<Customer> customers = new HashSet<>();
 
     private int numberOfOwners;
-
-    public void addCustomer(Customer customer) {
-        boolean exists = customers.stream().anyMatch(c ->
-                c.getName().equalsIgnoreCase(customer.getName()) &&
-                        c.getLastname().equalsIgnoreCase(customer.getLastname()) &&
-                        c.getPhoneNumber().equals(customer.getPhoneNumber()) &&
-                        c.getEmail().equalsIgnoreCase(customer.getEmail())
-        );
-
-        if (exists) {
-            throw new RuntimeException("Customer is already assigned to this account.");
-        }
-
-        customer.setAccount(this);
-        customers.add(customer);
-        numberOfOwners = customers.size();
-    }
-
-    public void removeCustomer(Customer customer) {
-        customers.remove(customer);
-        numberOfOwners = customers.size();
-    }
 }
@@ -1,14 +1,25 @@
 package danskebank.mini_bank_system.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import danskebank.mini_bank_system.config.SecondLevelCacheConfig;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ADDRESS)
+@Table(indexes = @Index(name = "idx_address_customer_id", columnList = "customer_id, id"))
 @Getter
 @Setter
 @Builder
@@ -23,4 +34,16 @@ public class Address extends BaseEntity {
     @JoinColumn(name = "customer_id")
     @JsonIgnore
     private Customer customer;
+
+    // the customer's account, kept on the address as the partitioning and sharding key the two tables share
+    @Column(name = "account_id", nullable = false)
+    @JsonIgnore
+    private Long accountId;
+
+    @PrePersist
+    void copyAccountId() {
+        if (accountId == null && customer != null && customer.getAccount() != null) {
+            accountId = customer.getAccount().getId();
+        }
+    }
 }
@@ -4,28 +4,37 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedBy;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
 
 @MappedSuperclass
-//@Audited
+@EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
 public abstract class BaseEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     @JsonIgnore
     private Long id;
 
     @Version
     @JsonIgnore
     private int versionNum;
+    @CreatedBy
     @JsonIgnore
     private String createdBy;
+    @CreatedDate
     @JsonIgnore
     private LocalDateTime creationDate;
+    @LastModifiedBy
     @JsonIgnore
     private String lastModifiedBy;
+    @LastModifiedDate
     @JsonIgnore
     private LocalDateTime lastModifiedDate;
 }
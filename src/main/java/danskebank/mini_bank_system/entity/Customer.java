@@ -1,19 +1,28 @@
 package danskebank.mini_bank_system.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import danskebank.mini_bank_system.config.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CUSTOMER)
+@Table(uniqueConstraints = @UniqueConstraint(name = Customer.IDENTITY_CONSTRAINT, columnNames = "identity_fingerprint"),
+        indexes = @Index(name = "idx_customer_account_id", columnList = "account_id"))
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Customer extends BaseEntity {
+    public static final String IDENTITY_CONSTRAINT = "uk_customer_identity_fingerprint";
+
     private String name;
     private String lastname;
     private String phoneNumber;
@@ -22,12 +31,23 @@ public class Customer extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private CustomerType type;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @Column(name = "identity_fingerprint", length = 64, nullable = false)
+    @JsonIgnore
+    private String identityFingerprint;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", referencedColumnName = "id")
     @JsonIgnore
     private Account account;
 
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CUSTOMER_ADDRESSES)
     private List<Address> addresses = new ArrayList<>();
+
+    @PrePersist
+    @PreUpdate
+    void refreshIdentityFingerprint() {
+        identityFingerprint = CustomerIdentity.of(this).fingerprint();
+    }
 }
 
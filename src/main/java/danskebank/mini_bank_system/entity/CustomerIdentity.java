@@ -0,0 +1,34 @@
+package danskebank.mini_bank_system.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+public record CustomerIdentity(String name, String lastname, String email, String phoneNumber) {
+    private static final char SEPARATOR = '\u001f';
+
+    public static CustomerIdentity of(Customer customer) {
+        return new CustomerIdentity(customer.getName(), customer.getLastname(), customer.getEmail(), customer.getPhoneNumber());
+    }
+
+    /**
+     * Hex SHA-256 of the trimmed, case-folded identity fields; equal for customers that differ only in
+     * letter case or surrounding whitespace.
+     */
+    public String fingerprint() {
+        String normalized = normalize(name) + SEPARATOR + normalize(lastname) + SEPARATOR
+                + normalize(email) + SEPARATOR + normalize(phoneNumber);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
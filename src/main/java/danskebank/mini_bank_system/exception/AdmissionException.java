@@ -0,0 +1,13 @@
+package danskebank.mini_bank_system.exception;
+
+import lombok.Getter;
+
+@Getter
+public class AdmissionException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public AdmissionException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
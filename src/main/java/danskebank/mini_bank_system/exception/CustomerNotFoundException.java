@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.exception;
+
+public class CustomerNotFoundException extends CustomerException {
+
+    public CustomerNotFoundException(String message) {
+        super(message);
+    }
+}
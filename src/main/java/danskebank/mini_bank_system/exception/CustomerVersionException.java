@@ -0,0 +1,12 @@
+package danskebank.mini_bank_system.exception;
+
+public class CustomerVersionException extends CustomerException {
+
+    public CustomerVersionException(String message, Throwable err) {
+        super(message, err);
+    }
+
+    public CustomerVersionException(String message) {
+        super(message);
+    }
+}
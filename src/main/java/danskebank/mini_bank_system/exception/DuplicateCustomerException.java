@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.exception;
+
+public class DuplicateCustomerException extends CustomerException {
+
+    public DuplicateCustomerException(String message, Throwable err) {
+        super(message, err);
+    }
+}
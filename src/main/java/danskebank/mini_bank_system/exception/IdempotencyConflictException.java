@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.exception;
+
+public class IdempotencyConflictException extends IdempotencyException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
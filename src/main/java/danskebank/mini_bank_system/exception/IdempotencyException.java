@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.exception;
+
+public class IdempotencyException extends RuntimeException {
+
+    public IdempotencyException(String message) {
+        super(message);
+    }
+}
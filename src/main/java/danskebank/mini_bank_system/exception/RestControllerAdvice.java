@@ -1,5 +1,6 @@
 package danskebank.mini_bank_system.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,6 +16,24 @@ public class RestControllerAdvice {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(CustomerNotFoundException.class)
+    public ResponseEntity<ErrorResponse> customerNotFoundException(CustomerNotFoundException customerNotFoundException) {
+        var response = new ErrorResponse("Customer exception", customerNotFoundException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(CustomerVersionException.class)
+    public ResponseEntity<ErrorResponse> customerVersionException(CustomerVersionException customerVersionException) {
+        var response = new ErrorResponse("Customer exception", customerVersionException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(DuplicateCustomerException.class)
+    public ResponseEntity<ErrorResponse> duplicateCustomerException(DuplicateCustomerException duplicateCustomerException) {
+        var response = new ErrorResponse("Customer exception", duplicateCustomerException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(AddressException.class)
     public ResponseEntity<ErrorResponse> addressException(AddressException addressException) {
         var response = new ErrorResponse("Address exception", addressException.getMessage());
@@ -27,4 +46,30 @@ public class RestControllerAdvice {
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(SearchException.class)
+    public ResponseEntity<ErrorResponse> searchException(SearchException searchException) {
+        var response = new ErrorResponse("Search exception", searchException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IdempotencyException.class)
+    public ResponseEntity<ErrorResponse> idempotencyException(IdempotencyException idempotencyException) {
+        var response = new ErrorResponse("Idempotency exception", idempotencyException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> idempotencyConflictException(IdempotencyConflictException idempotencyConflictException) {
+        var response = new ErrorResponse("Idempotency exception", idempotencyConflictException.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(AdmissionException.class)
+    public ResponseEntity<ErrorResponse> admissionException(AdmissionException admissionException) {
+        var response = new ErrorResponse("Admission exception", admissionException.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionException.getRetryAfterSeconds()))
+                .body(response);
+    }
+
 }
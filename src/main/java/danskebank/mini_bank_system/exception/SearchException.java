@@ -0,0 +1,8 @@
+package danskebank.mini_bank_system.exception;
+
+public class SearchException extends RuntimeException {
+
+    public SearchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,365 @@
+package danskebank.mini_bank_system.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Delegate;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps data sources so that statement executions and {@link ResultSet#next()} rows are added to the
+ * current {@link JdbcRequestCounts}. The wrappers delegate with plain calls and only intercept the methods
+ * that execute a statement or advance a result set; a result set is only wrapped while counts are open.
+ */
+class JdbcCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return new CountingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private static ResultSet counted(ResultSet resultSet) {
+        var counts = JdbcRequestCounts.current();
+        return resultSet == null || counts == null ? resultSet : new CountingResultSet(resultSet, counts);
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return new CountingConnection(obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return new CountingConnection(obtainTargetDataSource().getConnection(username, password));
+        }
+    }
+
+    // the Connection methods that create statements, which CountingConnection wraps
+    private interface StatementFactories {
+        Statement createStatement() throws SQLException;
+
+        Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException;
+
+        Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException;
+
+        PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+                throws SQLException;
+
+        CallableStatement prepareCall(String sql) throws SQLException;
+
+        CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException;
+
+        CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+                throws SQLException;
+    }
+
+    @RequiredArgsConstructor
+    private static class CountingConnection implements Connection {
+        @Delegate(excludes = StatementFactories.class)
+        private final Connection target;
+
+        @Override
+        public Statement createStatement() throws SQLException {
+            return new CountingStatement<>(target.createStatement());
+        }
+
+        @Override
+        public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+            return new CountingStatement<>(target.createStatement(resultSetType, resultSetConcurrency));
+        }
+
+        @Override
+        public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+            return new CountingStatement<>(target.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql, autoGeneratedKeys));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql, columnIndexes));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql, columnNames));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql, resultSetType, resultSetConcurrency));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+                throws SQLException {
+            return new CountingPreparedStatement<>(target.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+
+        @Override
+        public CallableStatement prepareCall(String sql) throws SQLException {
+            return new CountingCallableStatement(target.prepareCall(sql));
+        }
+
+        @Override
+        public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+            return new CountingCallableStatement(target.prepareCall(sql, resultSetType, resultSetConcurrency));
+        }
+
+        @Override
+        public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+                throws SQLException {
+            return new CountingCallableStatement(target.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+    }
+
+    // the Statement and PreparedStatement methods that execute or return a result set, which the wrappers count
+    private interface Executions {
+        ResultSet executeQuery(String sql) throws SQLException;
+
+        int executeUpdate(String sql) throws SQLException;
+
+        int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException;
+
+        int executeUpdate(String sql, int[] columnIndexes) throws SQLException;
+
+        int executeUpdate(String sql, String[] columnNames) throws SQLException;
+
+        long executeLargeUpdate(String sql) throws SQLException;
+
+        long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException;
+
+        long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException;
+
+        long executeLargeUpdate(String sql, String[] columnNames) throws SQLException;
+
+        boolean execute(String sql) throws SQLException;
+
+        boolean execute(String sql, int autoGeneratedKeys) throws SQLException;
+
+        boolean execute(String sql, int[] columnIndexes) throws SQLException;
+
+        boolean execute(String sql, String[] columnNames) throws SQLException;
+
+        int[] executeBatch() throws SQLException;
+
+        long[] executeLargeBatch() throws SQLException;
+
+        ResultSet getResultSet() throws SQLException;
+
+        ResultSet getGeneratedKeys() throws SQLException;
+
+        ResultSet executeQuery() throws SQLException;
+
+        int executeUpdate() throws SQLException;
+
+        long executeLargeUpdate() throws SQLException;
+
+        boolean execute() throws SQLException;
+    }
+
+    @RequiredArgsConstructor
+    private static class CountingStatement<S extends Statement> implements Statement {
+        @Delegate(types = Statement.class, excludes = Executions.class)
+        final S target;
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return counted(target.executeQuery(sql));
+        }
+
+        @Override
+        public int executeUpdate(String sql) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeUpdate(sql);
+        }
+
+        @Override
+        public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeUpdate(sql, autoGeneratedKeys);
+        }
+
+        @Override
+        public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeUpdate(sql, columnIndexes);
+        }
+
+        @Override
+        public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeUpdate(sql, columnNames);
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeUpdate(sql);
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeUpdate(sql, autoGeneratedKeys);
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeUpdate(sql, columnIndexes);
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeUpdate(sql, columnNames);
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.execute(sql);
+        }
+
+        @Override
+        public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.execute(sql, autoGeneratedKeys);
+        }
+
+        @Override
+        public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.execute(sql, columnIndexes);
+        }
+
+        @Override
+        public boolean execute(String sql, String[] columnNames) throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.execute(sql, columnNames);
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeBatch();
+        }
+
+        @Override
+        public long[] executeLargeBatch() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeBatch();
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return counted(target.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return counted(target.getGeneratedKeys());
+        }
+    }
+
+    private static class CountingPreparedStatement<P extends PreparedStatement> extends CountingStatement<P> implements PreparedStatement {
+        CountingPreparedStatement(P target) {
+            super(target);
+        }
+
+        @Delegate(types = PreparedStatement.class, excludes = Executions.class)
+        private PreparedStatement prepared() {
+            return target;
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return counted(target.executeQuery());
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeUpdate();
+        }
+
+        @Override
+        public long executeLargeUpdate() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.executeLargeUpdate();
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            JdbcRequestCounts.statementExecuted();
+            return target.execute();
+        }
+    }
+
+    private static class CountingCallableStatement extends CountingPreparedStatement<CallableStatement> implements CallableStatement {
+        CountingCallableStatement(CallableStatement target) {
+            super(target);
+        }
+
+        @Delegate(types = CallableStatement.class, excludes = Executions.class)
+        private CallableStatement callable() {
+            return target;
+        }
+    }
+
+    private interface Next {
+        boolean next() throws SQLException;
+    }
+
+    @RequiredArgsConstructor
+    private static class CountingResultSet implements ResultSet {
+        @Delegate(excludes = Next.class)
+        private final ResultSet target;
+        private final JdbcRequestCounts counts;
+
+        @Override
+        public boolean next() throws SQLException {
+            boolean next = target.next();
+            if (next) {
+                counts.rowRead();
+            }
+            return next;
+        }
+    }
+}
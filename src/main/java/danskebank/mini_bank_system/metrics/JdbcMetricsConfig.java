@@ -0,0 +1,33 @@
+package danskebank.mini_bank_system.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Per-request JDBC statement and row counters. The task decorator carries a request's counters to the task
+ * executors, such as the one a streaming export runs on. With {@code metrics.jdbc.enabled=false} neither the
+ * data source wrapper, the filter nor the decorator is registered.
+ */
+@Configuration
+@ConditionalOnProperty(name = "metrics.jdbc.enabled", havingValue = "true")
+public class JdbcMetricsConfig {
+
+    @Bean
+    static JdbcCountingDataSourcePostProcessor jdbcCountingDataSourcePostProcessor() {
+        return new JdbcCountingDataSourcePostProcessor();
+    }
+
+    @Bean
+    FilterRegistrationBean<JdbcRequestMetricsFilter> jdbcRequestMetricsFilter(MeterRegistry meterRegistry) {
+        return new FilterRegistrationBean<>(new JdbcRequestMetricsFilter(meterRegistry));
+    }
+
+    @Bean
+    TaskDecorator jdbcRequestCountsTaskDecorator() {
+        return JdbcRequestCounts::propagate;
+    }
+}
@@ -0,0 +1,69 @@
+package danskebank.mini_bank_system.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statements executed and rows read by JDBC for the current request, on its thread and on the threads
+ * its work is handed to through {@link #propagate}. Work done outside a request, such as index builds at
+ * startup, is not counted.
+ */
+public final class JdbcRequestCounts {
+    private static final ThreadLocal<JdbcRequestCounts> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /** Runs {@code task} with the counts of the thread that calls this, if it has any. */
+    public static Runnable propagate(Runnable task) {
+        var counts = CURRENT.get();
+        if (counts == null) {
+            return task;
+        }
+        return () -> {
+            var previous = CURRENT.get();
+            CURRENT.set(counts);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    static JdbcRequestCounts open() {
+        var counts = new JdbcRequestCounts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    static JdbcRequestCounts current() {
+        return CURRENT.get();
+    }
+
+    static void statementExecuted() {
+        var counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements.increment();
+        }
+    }
+
+    void rowRead() {
+        rows.increment();
+    }
+}
@@ -0,0 +1,74 @@
+package danskebank.mini_bank_system.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records the JDBC statements and rows of each request as {@code jdbc.request.statements} and
+ * {@code jdbc.request.rows}, tagged like {@code http.server.requests}. An async request, such as a streaming
+ * export, is recorded once it completes.
+ */
+@RequiredArgsConstructor
+class JdbcRequestMetricsFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var counts = JdbcRequestCounts.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            JdbcRequestCounts.close();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, counts);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, counts);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, JdbcRequestCounts counts) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        summary("jdbc.request.statements", "JDBC statements executed per request", request, uri).record(counts.getStatements());
+        summary("jdbc.request.rows", "JDBC rows read per request", request, uri).record(counts.getRows());
+    }
+
+    private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,12 @@
+package danskebank.mini_bank_system.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed change as delivered to {@link OutboxSubscriber}s. {@code id} increases in insert order, not
+ * commit order: events normally arrive in id order, but one whose transaction commits after the gap timeout
+ * arrives late, after events with higher ids. {@code payload} is the JSON state of the aggregate after the change.
+ */
+public record ChangeEvent(long id, String aggregateType, long aggregateId, ChangeType type, String payload,
+                          LocalDateTime occurredAt) {
+}
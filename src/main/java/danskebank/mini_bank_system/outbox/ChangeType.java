@@ -0,0 +1,6 @@
+package danskebank.mini_bank_system.outbox;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED
+}
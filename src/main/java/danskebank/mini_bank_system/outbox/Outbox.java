@@ -0,0 +1,65 @@
+package danskebank.mini_bank_system.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes change events into {@code outbox_event} within the caller's transaction, so an event exists
+ * exactly when its change was committed, and wakes the {@link OutboxRelay} after the commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class Outbox {
+    static final String INSERT_SQL = "INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, payload, created_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay relay;
+
+    public record Change(String aggregateType, Long aggregateId, ChangeType type, Object payload) {
+    }
+
+    public void record(String aggregateType, Long aggregateId, ChangeType type, Object payload) {
+        record(List.of(new Change(aggregateType, aggregateId, type, payload)));
+    }
+
+    public void record(List<Change> changes) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be recorded in the transaction of their change.");
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        var now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes, changes.size(), (statement, change) -> {
+            statement.setString(1, change.aggregateType());
+            statement.setLong(2, change.aggregateId());
+            statement.setString(3, change.type().name());
+            statement.setString(4, json(change.payload()));
+            statement.setObject(5, now);
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wakeUp();
+            }
+        });
+    }
+
+    private String json(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload cannot be serialized: " + payload, e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package danskebank.mini_bank_system.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Delivery position of one {@link OutboxSubscriber}. Event ids are assigned when the insert runs but
+ * become visible when the transaction commits, so a missing id usually belongs to a transaction that
+ * is still open: the cursor stops in front of it for up to {@code gapTimeout}, then moves past it but
+ * keeps the id as skipped. Skipped ids are looked up again until they commit, and are then delivered
+ * late, or until {@code retention} has passed. They are only remembered in memory. A failed delivery
+ * is retried with exponential backoff.
+ */
+@Slf4j
+class OutboxCursor {
+    // a wider gap is not a transaction still open, such as a sequence that was moved forward
+    static final int MAX_TRACKED_GAP = 10_000;
+
+    private final OutboxSubscriber subscriber;
+    private final long gapTimeoutNanos;
+    private final long retryBackoffNanos;
+    private final long maxRetryBackoffNanos;
+    private final long retentionNanos;
+    // skipped id -> when it was skipped
+    private final NavigableMap<Long, Long> skipped = new TreeMap<>();
+    private volatile long offset;
+    private long gapAt = -1;
+    private long gapSince;
+    private int failures;
+    private long retryAt;
+
+    OutboxCursor(OutboxSubscriber subscriber, long offset, long gapTimeoutNanos, long retryBackoffNanos, long maxRetryBackoffNanos,
+                 long retentionNanos) {
+        this.subscriber = subscriber;
+        this.offset = offset;
+        this.gapTimeoutNanos = gapTimeoutNanos;
+        this.retryBackoffNanos = retryBackoffNanos;
+        this.maxRetryBackoffNanos = maxRetryBackoffNanos;
+        this.retentionNanos = retentionNanos;
+    }
+
+    boolean isDue(long nowNanos) {
+        return failures == 0 || nowNanos - retryAt >= 0;
+    }
+
+    /** The leading events of {@code events}, which follow the offset in id order, that may be delivered now. */
+    List<ChangeEvent> deliverable(List<ChangeEvent> events, long nowNanos) {
+        long expected = offset + 1;
+        int count = 0;
+        for (var event : events) {
+            if (event.id() != expected) {
+                if (gapAt != expected) {
+                    gapAt = expected;
+                    gapSince = nowNanos;
+                }
+                if (nowNanos - gapSince < gapTimeoutNanos) {
+                    break;
+                }
+                skip(expected, event.id() - 1, nowNanos);
+            }
+            count++;
+            expected = event.id() + 1;
+        }
+        return events.subList(0, count);
+    }
+
+    private void skip(long from, long to, long nowNanos) {
+        if (to - from >= MAX_TRACKED_GAP) {
+            log.warn("Outbox subscriber {} skips events {} to {}, which were not committed within the gap timeout; "
+                    + "too many to look up again", name(), from, to);
+            return;
+        }
+        log.warn("Outbox subscriber {} skips events {} to {}, which were not committed within the gap timeout; "
+                + "they are delivered late if they commit", name(), from, to);
+        for (long id = from; id <= to; id++) {
+            skipped.put(id, nowNanos);
+        }
+    }
+
+    /** The skipped ids to look up again, forgetting those skipped longer than the retention ago. */
+    List<Long> skipped(long nowNanos) {
+        skipped.values().removeIf(since -> nowNanos - since >= retentionNanos);
+        return List.copyOf(skipped.keySet());
+    }
+
+    void deliveredLate(List<ChangeEvent> events) {
+        events.forEach(event -> skipped.remove(event.id()));
+        failures = 0;
+    }
+
+    void delivered(long lastEventId) {
+        offset = lastEventId;
+        failures = 0;
+    }
+
+    void failed(long nowNanos) {
+        failures++;
+        long backoff = retryBackoffNanos << Math.min(failures - 1, 20);
+        retryAt = nowNanos + Math.min(maxRetryBackoffNanos, backoff);
+    }
+
+    String name() {
+        return subscriber.name();
+    }
+
+    OutboxSubscriber subscriber() {
+        return subscriber;
+    }
+
+    long offset() {
+        return offset;
+    }
+}
@@ -0,0 +1,46 @@
+package danskebank.mini_bank_system.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import org.hibernate.Length;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change events written by {@link Outbox} in the transaction of the change. The identity column keeps
+ * ids gap-free except for rolled back inserts, which {@link OutboxRelay} relies on to detect events
+ * that are not committed yet. Rows are written and read with plain JDBC; the mapping defines the table.
+ */
+@Entity
+@Immutable
+@Table(name = "outbox_event")
+@Getter
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", length = 32, nullable = false)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 16, nullable = false)
+    private ChangeType eventType;
+
+    @Column(length = Length.LONG)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,41 @@
+package danskebank.mini_bank_system.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Id of the last event delivered to each {@link OutboxSubscriber} of each instance, written by {@link OutboxRelay}.
+ */
+@Entity
+@Table(name = "outbox_offset")
+@IdClass(OutboxOffset.Key.class)
+@Getter
+public class OutboxOffset {
+    @Id
+    @Column(length = 64)
+    private String subscriber;
+
+    @Id
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String subscriber;
+        private String instanceId;
+    }
+}
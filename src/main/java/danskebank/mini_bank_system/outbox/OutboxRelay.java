@@ -0,0 +1,300 @@
+package danskebank.mini_bank_system.outbox;
+
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the rows of {@code outbox_event} to every {@link OutboxSubscriber} bean, in id order and in
+ * batches of up to {@code outbox.batch-size}, from a single background thread. The thread is woken by
+ * {@link Outbox} after each commit and otherwise polls every {@code outbox.poll-interval}, which also
+ * picks up events committed by other instances.
+ * <p>
+ * Every instance delivers every event to its own subscribers. Each subscriber's offset is stored in
+ * {@code outbox_offset} under {@code outbox.instance-id} after its batch was handled, so delivery resumes
+ * where it stopped after a restart, and a batch whose handler threw is redelivered. An instance without an
+ * offset of its own starts from the lowest one stored for the subscriber. Events are purged once they are
+ * older than {@code outbox.retention} and every subscriber of every instance has passed them; an offset not
+ * stored within the retention, such as one of an instance that is gone, no longer holds them back.
+ * <p>
+ * When sharded, every shard has its own outbox and offsets, and events are in id order per shard.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+    // below the web server's start and stop phase, like the audit writer
+    static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    static final String SELECT_SQL = "SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at "
+            + "FROM outbox_event WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    static final String SELECT_BY_ID_SQL = "SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at "
+            + "FROM outbox_event WHERE id IN (%s) ORDER BY id";
+    private static final RowMapper<ChangeEvent> EVENT_MAPPER = (rs, rowNum) -> new ChangeEvent(
+            rs.getLong("id"),
+            rs.getString("aggregate_type"),
+            rs.getLong("aggregate_id"),
+            ChangeType.valueOf(rs.getString("event_type")),
+            rs.getString("payload"),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<OutboxSubscriber> subscribers;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration gapTimeout;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration retention;
+    private final String instanceId;
+    private final Semaphore wakeUps = new Semaphore(0);
+    // by shard
+    private volatile List<List<OutboxCursor>> cursors = List.of();
+    private volatile boolean running;
+    private Thread relay;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       ShardRouter shardRouter,
+                       ObjectProvider<OutboxSubscriber> subscribers,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.batch-size:500}") int batchSize,
+                       @Value("${outbox.poll-interval:1s}") Duration pollInterval,
+                       @Value("${outbox.gap-timeout:5s}") Duration gapTimeout,
+                       @Value("${outbox.retry-backoff:1s}") Duration retryBackoff,
+                       @Value("${outbox.max-retry-backoff:1m}") Duration maxRetryBackoff,
+                       @Value("${outbox.retention:24h}") Duration retention,
+                       @Value("${outbox.instance-id:}") String instanceId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.subscribers = subscribers;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.gapTimeout = gapTimeout;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.retention = retention;
+        this.instanceId = instanceId.isBlank() ? hostName() : instanceId;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Set outbox.instance-id, the host name is not known", e);
+        }
+    }
+
+    /** Makes the relay poll now instead of at the end of its interval. */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    @Override
+    public void start() {
+        List<List<OutboxCursor>> shardCursors = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            int cursorShard = shard;
+            shardCursors.add(shardRouter.onShard(shard, () -> subscribers.orderedStream()
+                    .map(subscriber -> newCursor(subscriber, cursorShard))
+                    .toList()));
+        }
+        cursors = List.copyOf(shardCursors);
+        running = true;
+        relay = Thread.ofPlatform().name("outbox-relay").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        wakeUp();
+        if (relay == null) {
+            return;
+        }
+        try {
+            relay.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // started after the schema exists and stopped before the data source closes, like the audit writer
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void run() {
+        while (running) {
+            boolean more;
+            try {
+                more = poll();
+            } catch (RuntimeException e) {
+                log.warn("Polling the outbox failed", e);
+                more = false;
+            }
+            if (!more) {
+                try {
+                    wakeUps.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                    wakeUps.drainPermits();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Delivers one batch to each subscriber that is due; returns whether a full batch was delivered. */
+    boolean poll() {
+        boolean more = false;
+        for (int shard = 0; shard < cursors.size(); shard++) {
+            var shardCursors = cursors.get(shard);
+            more |= shardRouter.onShard(shard, () -> poll(shardCursors));
+        }
+        return more;
+    }
+
+    private boolean poll(List<OutboxCursor> shardCursors) {
+        boolean more = false;
+        for (var cursor : shardCursors) {
+            long now = System.nanoTime();
+            if (!cursor.isDue(now)) {
+                continue;
+            }
+            var skipped = cursor.skipped(now);
+            if (!skipped.isEmpty()) {
+                var late = findEvents(skipped.subList(0, Math.min(skipped.size(), batchSize)));
+                if (!late.isEmpty()) {
+                    if (!deliver(cursor, late, now)) {
+                        continue;
+                    }
+                    cursor.deliveredLate(late);
+                }
+            }
+            var events = jdbcTemplate.query(SELECT_SQL, EVENT_MAPPER, cursor.offset(), batchSize);
+            var batch = cursor.deliverable(events, now);
+            if (batch.isEmpty() || !deliver(cursor, batch, now)) {
+                continue;
+            }
+            long lastEventId = batch.getLast().id();
+            storeOffset(cursor.name(), lastEventId);
+            cursor.delivered(lastEventId);
+            more |= events.size() == batchSize && batch.size() == events.size();
+        }
+        return more;
+    }
+
+    private List<ChangeEvent> findEvents(List<Long> ids) {
+        var placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(String.format(SELECT_BY_ID_SQL, placeholders), EVENT_MAPPER, ids.toArray());
+    }
+
+    private boolean deliver(OutboxCursor cursor, List<ChangeEvent> batch, long now) {
+        try {
+            cursor.subscriber().onEvents(batch);
+        } catch (RuntimeException e) {
+            cursor.failed(now);
+            failures(cursor).increment();
+            log.warn("Outbox subscriber {} failed to handle events {} to {}, they will be redelivered",
+                    cursor.name(), batch.getFirst().id(), batch.getLast().id(), e);
+            return false;
+        }
+        delivered(cursor).increment(batch.size());
+        return true;
+    }
+
+    @Scheduled(initialDelayString = "${outbox.purge-interval:PT10M}", fixedDelayString = "${outbox.purge-interval:PT10M}")
+    public void purgeDelivered() {
+        var before = LocalDateTime.now().minus(retention);
+        for (int shard = 0; shard < cursors.size(); shard++) {
+            long local = cursors.get(shard).stream().mapToLong(OutboxCursor::offset).min().orElse(Long.MAX_VALUE);
+            int purged = shardRouter.onShard(shard, () -> {
+                // every instance's offsets, including those this instance has not stored yet
+                Long stored = jdbcTemplate.queryForObject("SELECT MIN(last_event_id) FROM outbox_offset WHERE updated_at >= ?",
+                        Long.class, before);
+                long delivered = stored == null ? local : Math.min(local, stored);
+                return jdbcTemplate.update("DELETE FROM outbox_event WHERE id <= ? AND created_at < ?", delivered, before);
+            });
+            if (purged > 0) {
+                log.info("Purged {} delivered outbox events", purged);
+            }
+        }
+    }
+
+    private OutboxCursor newCursor(OutboxSubscriber subscriber, int shard) {
+        var offsets = jdbcTemplate.queryForList("SELECT last_event_id FROM outbox_offset WHERE subscriber = ? AND instance_id = ?",
+                Long.class, subscriber.name(), instanceId);
+        Long start = offsets.isEmpty()
+                ? jdbcTemplate.queryForObject("SELECT MIN(last_event_id) FROM outbox_offset WHERE subscriber = ?", Long.class, subscriber.name())
+                : offsets.getFirst();
+        var cursor = new OutboxCursor(subscriber, start == null ? 0 : start,
+                gapTimeout.toNanos(), retryBackoff.toNanos(), maxRetryBackoff.toNanos(), retention.toNanos());
+        var offset = Gauge.builder("outbox.offset", cursor, OutboxCursor::offset)
+                .description("Id of the last outbox event delivered to the subscriber")
+                .tag("subscriber", subscriber.name());
+        if (shardRouter.isSharded()) {
+            offset.tag("shard", String.valueOf(shard));
+        }
+        offset.register(meterRegistry);
+        log.info("Outbox subscriber {} of instance {} resumes after event {} on shard {}", subscriber.name(), instanceId,
+                cursor.offset(), shard);
+        return cursor;
+    }
+
+    private void storeOffset(String subscriber, long lastEventId) {
+        var now = LocalDateTime.now();
+        try {
+            if (jdbcTemplate.update("UPDATE outbox_offset SET last_event_id = ?, updated_at = ? WHERE subscriber = ? AND instance_id = ?",
+                    lastEventId, now, subscriber, instanceId) == 0) {
+                jdbcTemplate.update("INSERT INTO outbox_offset (subscriber, instance_id, last_event_id, updated_at) VALUES (?, ?, ?, ?)",
+                        subscriber, instanceId, lastEventId, now);
+            }
+        } catch (DataAccessException e) {
+            // the batch was handled; after a restart it is delivered again from the last stored offset
+            log.warn("Storing offset {} of outbox subscriber {} failed", lastEventId, subscriber, e);
+        }
+    }
+
+    private Counter delivered(OutboxCursor cursor) {
+        return Counter.builder("outbox.events.delivered")
+                .description("Outbox events handled by the subscriber")
+                .tag("subscriber", cursor.name())
+                .register(meterRegistry);
+    }
+
+    private Counter failures(OutboxCursor cursor) {
+        return Counter.builder("outbox.delivery.failures")
+                .description("Outbox batches the subscriber failed to handle")
+                .tag("subscriber", cursor.name())
+                .register(meterRegistry);
+    }
+}
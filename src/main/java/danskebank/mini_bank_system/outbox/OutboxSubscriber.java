@@ -0,0 +1,16 @@
+package danskebank.mini_bank_system.outbox;
+
+import java.util.List;
+
+/**
+ * In-process consumer of the change stream. Delivery is at least once: a batch is redelivered when
+ * {@link #onEvents} throws, or when the application stops before the subscriber's offset was stored,
+ * so handling an event twice must be harmless.
+ */
+public interface OutboxSubscriber {
+
+    /** Identifies the stored offset; renaming a subscriber restarts it from the oldest retained event. */
+    String name();
+
+    void onEvents(List<ChangeEvent> events);
+}
@@ -0,0 +1,10 @@
+package danskebank.mini_bank_system.repository;
+
+public interface AccountOwnerCount {
+
+    /**
+     * Atomically adds {@code delta} to the owner count and returns the number of accounts updated,
+     * which is 0 when the account does not exist.
+     */
+    int adjustNumberOfOwners(Long id, int delta);
+}
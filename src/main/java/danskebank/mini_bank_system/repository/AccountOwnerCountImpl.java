@@ -0,0 +1,39 @@
+package danskebank.mini_bank_system.repository;
+
+import danskebank.mini_bank_system.entity.Account;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs the owner count update as a native query that declares no query space. A JPQL bulk update would
+ * evict every cached account; this evicts only the one it changed, again once the transaction has ended,
+ * so a read that cached the old count in between does not outlive the commit.
+ */
+@RequiredArgsConstructor
+class AccountOwnerCountImpl implements AccountOwnerCount {
+    private final EntityManager entityManager;
+
+    @Override
+    public int adjustNumberOfOwners(Long id, int delta) {
+        int updated = entityManager.createNativeQuery("UPDATE account SET number_of_owners = number_of_owners + :delta WHERE id = :id")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .setParameter("delta", delta)
+                .setParameter("id", id)
+                .executeUpdate();
+        var cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Account.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Account.class, id);
+                }
+            });
+        }
+        return updated;
+    }
+}
@@ -1,13 +1,35 @@
 package danskebank.mini_bank_system.repository;
 
+import danskebank.mini_bank_system.dto.AddressRow;
 import danskebank.mini_bank_system.entity.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
-    Optional<List<Address>> findAllByCustomerId(Long customerId);
+    @Query("""
+        SELECT new danskebank.mini_bank_system.dto.AddressRow(a.customer.id, a.id, a.street, a.city, a.postalCode)
+        FROM Address a
+        WHERE a.customer.id IN :customerIds
+        ORDER BY a.id
+    """)
+    List<AddressRow> findRowsByCustomerIdIn(@Param("customerIds") Collection<Long> customerIds);
+
+    /**
+     * Like {@link #findRowsByCustomerIdIn(Collection)}, restricted to the customers' accounts so that a table
+     * partitioned by account only reads the partitions holding them.
+     */
+    @Query("""
+        SELECT new danskebank.mini_bank_system.dto.AddressRow(a.customer.id, a.id, a.street, a.city, a.postalCode)
+        FROM Address a
+        WHERE a.accountId IN :accountIds AND a.customer.id IN :customerIds
+        ORDER BY a.id
+    """)
+    List<AddressRow> findRowsByCustomerIdIn(@Param("accountIds") Collection<Long> accountIds,
+                                            @Param("customerIds") Collection<Long> customerIds);
 }
@@ -1,33 +1,116 @@
 package danskebank.mini_bank_system.repository;
 
+import danskebank.mini_bank_system.dto.CustomerExportRow;
+import danskebank.mini_bank_system.dto.CustomerRow;
+import danskebank.mini_bank_system.dto.CustomerVersionRow;
 import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.search.CustomerDocumentRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
-    Optional<Customer> findByNameAndLastnameAndEmailAndPhoneNumber(String name, String lastname, String email, String phoneNumber);
+    // Customer-address joins also match the account_id both rows carry, so PostgreSQL can join a partitioned
+    // customer table to a partitioned address table partition by partition, and prune by account.
 
-    @Query("""
-        SELECT c
+    String SEARCH_FROM = """
         FROM Customer c
         INNER JOIN Address a
-        ON c.id = a.customer.id
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
+        ON c.id = a.customer.id AND a.accountId = c.account.id
+    """;
+
+    String SEARCH_PREDICATE = """
+        (LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(c.lastname) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(c.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(c.phoneNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(c.type) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(a.city) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
            OR LOWER(a.street) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
-           OR LOWER(a.postalCode) LIKE LOWER(CONCAT('%', :searchTerm, '%'))
+           OR LOWER(a.postalCode) LIKE LOWER(CONCAT('%', :searchTerm, '%')))
+    """;
+
+    String EXPORT_SELECT = """
+        SELECT new danskebank.mini_bank_system.dto.CustomerExportRow(
+            x.id, x.name, x.lastname, x.phoneNumber, x.email, x.type, y.id, y.street, y.city, y.postalCode)
+        FROM Customer x
+        LEFT JOIN Address y
+        ON x.id = y.customer.id AND y.accountId = x.account.id
+    """;
+
+    String EXPORT_ORDER = " ORDER BY x.id, y.id";
+
+    Optional<Customer> findByIdentityFingerprint(String identityFingerprint);
+
+    @Query("SELECT c.identityFingerprint FROM Customer c WHERE c.identityFingerprint IN :fingerprints")
+    List<String> findExistingFingerprints(@Param("fingerprints") Collection<String> fingerprints);
+
+    @Query("SELECT c.identityFingerprint FROM Customer c")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamIdentityFingerprints();
+
+    @Query("""
+        SELECT new danskebank.mini_bank_system.dto.CustomerRow(c.id, c.account.id, c.name, c.lastname, c.phoneNumber, c.email, c.type)
+        FROM Customer c
+        WHERE c.id IN :ids
+    """)
+    List<CustomerRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c FROM Customer c LEFT JOIN FETCH c.addresses WHERE c.id IN :ids")
+    List<Customer> findAllWithAddressesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+        SELECT new danskebank.mini_bank_system.dto.CustomerVersionRow(c.versionNum, a.id, a.versionNum)
+        FROM Customer c
+        LEFT JOIN Address a
+        ON c.id = a.customer.id AND a.accountId = c.account.id
+        WHERE c.id = :id
+        ORDER BY a.id
+    """)
+    List<CustomerVersionRow> findVersionRows(@Param("id") Long id);
+
+    @Query(value = "SELECT DISTINCT c.id " + SEARCH_FROM + " WHERE " + SEARCH_PREDICATE + " ORDER BY c.id",
+            countQuery = "SELECT COUNT(DISTINCT c.id) " + SEARCH_FROM + " WHERE " + SEARCH_PREDICATE)
+    Page<Long> searchCustomerIds(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Query("SELECT DISTINCT c.id " + SEARCH_FROM + " WHERE c.id > :afterId AND " + SEARCH_PREDICATE + " ORDER BY c.id")
+    Slice<Long> searchCustomerIdsAfter(@Param("searchTerm") String searchTerm, @Param("afterId") long afterId,
+                                       Pageable pageable);
+
+    @Query("""
+        SELECT new danskebank.mini_bank_system.search.CustomerDocumentRow(
+            c.id, c.name, c.lastname, c.email, c.phoneNumber, c.type, a.street, a.city, a.postalCode)
+        FROM Customer c
+        INNER JOIN Address a
+        ON c.id = a.customer.id AND a.accountId = c.account.id
+        ORDER BY c.id
     """)
-    Page<Customer> searchCustomers(@Param("searchTerm") String searchTerm, Pageable pageable);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<CustomerDocumentRow> streamSearchDocuments();
+
+    @Query(EXPORT_SELECT + EXPORT_ORDER)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<CustomerExportRow> streamExportRows();
+
+    @Query(EXPORT_SELECT + " WHERE x.id IN (SELECT c.id " + SEARCH_FROM + " WHERE " + SEARCH_PREDICATE + ")" + EXPORT_ORDER)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<CustomerExportRow> streamExportRows(@Param("searchTerm") String searchTerm);
 }
@@ -0,0 +1,36 @@
+package danskebank.mini_bank_system.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.outbox.ChangeEvent;
+import danskebank.mini_bank_system.service.CustomerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/** Reads the customer change events of the outbox as search documents, for the search subscribers. */
+@Component
+@RequiredArgsConstructor
+class CustomerChanges {
+    private final ObjectMapper objectMapper;
+
+    record Change(long eventId, CustomerDocument document) {
+    }
+
+    List<Change> of(List<ChangeEvent> events) {
+        return events.stream()
+                .filter(event -> CustomerService.AGGREGATE_TYPE.equals(event.aggregateType()))
+                .map(event -> new Change(event.id(), CustomerDocument.of(event.aggregateId(), read(event))))
+                .toList();
+    }
+
+    private CustomerDTO read(ChangeEvent event) {
+        try {
+            return objectMapper.readValue(event.payload(), CustomerDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox event " + event.id() + " is not a customer", e);
+        }
+    }
+}
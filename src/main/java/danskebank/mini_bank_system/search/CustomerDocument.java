@@ -0,0 +1,75 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lower-cased searchable fields of one customer, mirroring the columns matched by the JPQL search.
+ * A customer without addresses has no document, as the JPQL search inner joins on addresses.
+ */
+public record CustomerDocument(long customerId, List<String> fields, boolean hasAddresses) {
+
+    public static CustomerDocument of(Customer customer) {
+        var fields = new ArrayList<String>();
+        addCustomerFields(fields, customer.getName(), customer.getLastname(), customer.getEmail(),
+                customer.getPhoneNumber(), customer.getType() == null ? null : customer.getType().name());
+        List<Address> addresses = customer.getAddresses() == null ? List.of() : customer.getAddresses();
+        addresses.forEach(address -> addAddressFields(fields, address.getStreet(), address.getCity(), address.getPostalCode()));
+        return new CustomerDocument(customer.getId(), fields, !addresses.isEmpty());
+    }
+
+    /** The document of a customer as published in an outbox event, which carries the id separately. */
+    public static CustomerDocument of(long customerId, CustomerDTO customer) {
+        var fields = new ArrayList<String>();
+        addCustomerFields(fields, customer.getName(), customer.getLastname(), customer.getEmail(),
+                customer.getPhoneNumber(), customer.getType());
+        List<AddressDTO> addresses = customer.getAddresses() == null ? List.of() : customer.getAddresses();
+        addresses.forEach(address -> addAddressFields(fields, address.getStreet(), address.getCity(), address.getPostalCode()));
+        return new CustomerDocument(customerId, fields, !addresses.isEmpty());
+    }
+
+    public static CustomerDocument of(List<CustomerDocumentRow> rows) {
+        var first = rows.get(0);
+        var fields = new ArrayList<String>();
+        addCustomerFields(fields, first.name(), first.lastname(), first.email(),
+                first.phoneNumber(), first.type() == null ? null : first.type().name());
+        rows.forEach(row -> addAddressFields(fields, row.street(), row.city(), row.postalCode()));
+        return new CustomerDocument(first.customerId(), fields, true);
+    }
+
+    public boolean contains(String term) {
+        for (String field : fields) {
+            if (field.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addCustomerFields(List<String> fields, String name, String lastname, String email,
+                                          String phoneNumber, String type) {
+        add(fields, name);
+        add(fields, lastname);
+        add(fields, email);
+        add(fields, phoneNumber);
+        add(fields, type);
+    }
+
+    private static void addAddressFields(List<String> fields, String street, String city, String postalCode) {
+        add(fields, street);
+        add(fields, city);
+        add(fields, postalCode);
+    }
+
+    private static void add(List<String> fields, String value) {
+        if (value != null) {
+            fields.add(value.toLowerCase(Locale.ROOT));
+        }
+    }
+}
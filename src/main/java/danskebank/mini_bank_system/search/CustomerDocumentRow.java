@@ -0,0 +1,15 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.entity.CustomerType;
+
+public record CustomerDocumentRow(
+        Long customerId,
+        String name,
+        String lastname,
+        String email,
+        String phoneNumber,
+        CustomerType type,
+        String street,
+        String city,
+        String postalCode) {
+}
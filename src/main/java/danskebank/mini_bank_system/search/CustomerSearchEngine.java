@@ -0,0 +1,25 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.entity.Customer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.OptionalLong;
+
+/**
+ * Resolves a free-text search term to the ids of matching customers, ordered by id.
+ */
+public interface CustomerSearchEngine {
+
+    Page<Long> search(String searchTerm, Pageable pageable);
+
+    Slice<Long> searchAfter(String searchTerm, long afterId, int size);
+
+    /**
+     * Cheap upper bound of the number of matches, or empty when it would cost a full count.
+     */
+    OptionalLong estimateCount(String searchTerm);
+
+    void index(Customer customer);
+}
@@ -0,0 +1,38 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalLong;
+
+@Component
+@RequiredArgsConstructor
+public class JpqlCustomerSearchEngine implements CustomerSearchEngine {
+    private final CustomerRepository customerRepository;
+
+    @Override
+    public Page<Long> search(String searchTerm, Pageable pageable) {
+        return customerRepository.searchCustomerIds(searchTerm, pageable);
+    }
+
+    @Override
+    public Slice<Long> searchAfter(String searchTerm, long afterId, int size) {
+        return customerRepository.searchCustomerIdsAfter(searchTerm, afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    public OptionalLong estimateCount(String searchTerm) {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void index(Customer customer) {
+        // the database is the index
+    }
+}
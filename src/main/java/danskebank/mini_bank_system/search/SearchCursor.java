@@ -0,0 +1,36 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.exception.SearchException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor carrying the id of the last customer on the previous slice.
+ */
+public final class SearchCursor {
+    private static final String PREFIX = "c1:";
+
+    private SearchCursor() {
+    }
+
+    public static String encode(long lastCustomerId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastCustomerId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new SearchException("Invalid search cursor.");
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new SearchException("Invalid search cursor.");
+        }
+    }
+}
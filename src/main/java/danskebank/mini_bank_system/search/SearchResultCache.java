@@ -0,0 +1,187 @@
+package danskebank.mini_bank_system.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.outbox.ChangeEvent;
+import danskebank.mini_bank_system.outbox.OutboxSubscriber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches search result pages by lower-cased term, page and size, bounded by {@code search.cache.max-size}
+ * entries and {@code search.cache.ttl}. A committed write drops only the pages of the terms that the written
+ * customers matched before or after the write, found through an index from term to cached pages. Every term
+ * has a version, which invalidating it replaces: a page computed while a matching write committed is
+ * not stored. Writes made by other instances arrive through the outbox, which carries only the state after the
+ * write: those drop the terms the customer matches now and the terms with a cached page showing it. A page
+ * that does not show a customer who stopped matching its term, such as a later page, can stay stale until
+ * the TTL.
+ */
+@Component
+public class SearchResultCache implements OutboxSubscriber {
+    private final Cache<Key, Entry> cache;
+    private final CustomerChanges changes;
+    // the cached pages of each term; a term's pages are only stored and dropped inside compute on its entry
+    private final ConcurrentHashMap<String, Term> terms = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Timer entryAge;
+    private final Counter invalidations;
+
+    private record Key(String term, int page, int size) {
+    }
+
+    private record Entry(Page<CustomerDTO> page, long createdNanos) {
+    }
+
+    private static final class Term {
+        private final long version;
+        private final Set<Key> keys = new HashSet<>();
+
+        private Term(long version) {
+            this.version = version;
+        }
+    }
+
+    public SearchResultCache(MeterRegistry meterRegistry, CustomerChanges changes,
+                             @Value("${search.cache.max-size:10000}") long maxSize,
+                             @Value("${search.cache.ttl:60s}") Duration ttl) {
+        this.changes = changes;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                    if (key != null && cause.wasEvicted()) {
+                        unindex(key);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.results");
+        this.entryAge = Timer.builder("search.results.age")
+                .description("Age of cached search pages when they are served")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("search.results.invalidated")
+                .description("Cached search terms dropped by committed writes")
+                .register(meterRegistry);
+    }
+
+    public Page<CustomerDTO> get(String searchTerm, int page, int size, Supplier<Page<CustomerDTO>> search) {
+        var key = new Key(searchTerm.toLowerCase(Locale.ROOT), page, size);
+        var entry = cache.getIfPresent(key);
+        if (entry != null) {
+            entryAge.record(System.nanoTime() - entry.createdNanos(), TimeUnit.NANOSECONDS);
+            return entry.page();
+        }
+        // read before searching: a matching write committed during the search replaces the version
+        long version = terms.computeIfAbsent(key.term(), term -> new Term(versions.incrementAndGet())).version;
+        long created = System.nanoTime();
+        Page<CustomerDTO> result = null;
+        try {
+            result = search.get();
+        } finally {
+            var computed = result;
+            terms.computeIfPresent(key.term(), (term, current) -> {
+                if (computed != null && current.version == version) {
+                    cache.put(key, new Entry(computed, created));
+                    current.keys.add(key);
+                }
+                return current.keys.isEmpty() ? null : current;
+            });
+        }
+        return result;
+    }
+
+    /** Once the running transaction commits, drops the pages of every term the documents contain. */
+    public void invalidateAfterCommit(Collection<CustomerDocument> documents) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(documents);
+                }
+            });
+        } else {
+            invalidate(documents);
+        }
+    }
+
+    public void invalidate(Collection<CustomerDocument> documents) {
+        invalidate(documents, Set.of());
+    }
+
+    @Override
+    public String name() {
+        return "search-cache";
+    }
+
+    @Override
+    public void onEvents(List<ChangeEvent> events) {
+        var documents = changes.of(events).stream().map(CustomerChanges.Change::document).toList();
+        invalidate(documents, documents.stream().map(CustomerDocument::customerId).collect(Collectors.toSet()));
+    }
+
+    // drops the terms the documents contain, and those with a cached page showing one of shownCustomerIds
+    private void invalidate(Collection<CustomerDocument> documents, Set<Long> shownCustomerIds) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        for (var term : terms.keySet()) {
+            boolean matches = documents.stream().anyMatch(document -> document.contains(term));
+            if (!matches && shownCustomerIds.isEmpty()) {
+                continue;
+            }
+            terms.computeIfPresent(term, (key, current) -> {
+                if (!matches && !shows(current, shownCustomerIds)) {
+                    return current;
+                }
+                cache.invalidateAll(current.keys);
+                invalidations.increment();
+                return null;
+            });
+        }
+    }
+
+    private boolean shows(Term term, Set<Long> customerIds) {
+        return term.keys.stream()
+                .map(cache::getIfPresent)
+                .filter(Objects::nonNull)
+                .anyMatch(entry -> entry.page().getContent().stream().anyMatch(customer -> customerIds.contains(customer.getId())));
+    }
+
+    // keeps the index to the pages still cached; runs after the eviction, on Caffeine's executor
+    private void unindex(Key key) {
+        terms.computeIfPresent(key.term(), (term, current) -> {
+            if (!cache.asMap().containsKey(key)) {
+                current.keys.remove(key);
+            }
+            return current.keys.isEmpty() ? null : current;
+        });
+    }
+
+    int indexedTerms() {
+        return terms.size();
+    }
+}
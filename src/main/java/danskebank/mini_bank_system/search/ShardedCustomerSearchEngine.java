@@ -0,0 +1,89 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.entity.Customer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+
+/**
+ * Runs every search on all shards in parallel through the JPQL engine and merges the id-ordered
+ * results. A page at offset n needs the first n + size matches of every shard, so deep pages cost
+ * more than with a single database; cursor searches read size + 1 matches per shard at any depth.
+ * The shard each match came from is handed to the router, so loading the matches needs no lookup.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "datasource.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardedCustomerSearchEngine implements CustomerSearchEngine {
+    private final JpqlCustomerSearchEngine shardSearch;
+    private final ShardRouter shardRouter;
+
+    @Override
+    public Page<Long> search(String searchTerm, Pageable pageable) {
+        int limit = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+        var pages = shardRouter.onEveryShard(shard -> shardSearch.search(searchTerm, PageRequest.of(0, limit)));
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        var ids = merge(pages, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(ids, pageable, total);
+    }
+
+    @Override
+    public Slice<Long> searchAfter(String searchTerm, long afterId, int size) {
+        var slices = shardRouter.onEveryShard(shard -> shardSearch.searchAfter(searchTerm, afterId, size));
+        var ids = merge(slices, 0, size + 1);
+        boolean hasNext = ids.size() > size || slices.stream().anyMatch(Slice::hasNext);
+        return new SliceImpl<>(ids.size() > size ? ids.subList(0, size) : ids, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public OptionalLong estimateCount(String searchTerm) {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void index(Customer customer) {
+        // every shard's database is its own index
+    }
+
+    // k-way merge of the shards' ascending id lists, skipping the first offset ids
+    private List<Long> merge(List<? extends Slice<Long>> shardResults, long offset, int size) {
+        record Head(long id, int shard, int index) {
+        }
+        var heads = new PriorityQueue<Head>((a, b) -> Long.compare(a.id(), b.id()));
+        for (int shard = 0; shard < shardResults.size(); shard++) {
+            var ids = shardResults.get(shard).getContent();
+            if (!ids.isEmpty()) {
+                heads.add(new Head(ids.getFirst(), shard, 0));
+            }
+        }
+        List<Long> merged = new ArrayList<>(size);
+        for (long skipped = 0; !heads.isEmpty() && merged.size() < size; ) {
+            var head = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(head.id());
+                shardRouter.customerFound(head.id(), head.shard());
+            }
+            var ids = shardResults.get(head.shard()).getContent();
+            if (head.index() + 1 < ids.size()) {
+                heads.add(new Head(ids.get(head.index() + 1), head.shard(), head.index() + 1));
+            }
+        }
+        return merged;
+    }
+}
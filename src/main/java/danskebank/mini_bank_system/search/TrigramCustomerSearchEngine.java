@@ -0,0 +1,133 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.outbox.ChangeEvent;
+import danskebank.mini_bank_system.outbox.OutboxSubscriber;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves searches from a {@link TrigramIndex} built at startup. The index follows the outbox, so it sees the
+ * writes of every instance; this instance's own writes are also applied as soon as they commit, so they can be
+ * searched before the relay delivers them. Until the initial build has finished, searches go to the JPQL engine.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "trigram", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TrigramCustomerSearchEngine implements CustomerSearchEngine, OutboxSubscriber {
+    private final CustomerRepository customerRepository;
+    private final JpqlCustomerSearchEngine fallback;
+    private final PlatformTransactionManager transactionManager;
+    private final CustomerChanges changes;
+    private final TrigramIndex index = new TrigramIndex();
+    // customer id -> id of the last outbox event applied to its document
+    private final ConcurrentHashMap<Long, Long> appliedEvents = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (var rows = customerRepository.streamSearchDocuments()) {
+                List<CustomerDocumentRow> customerRows = new ArrayList<>();
+                for (var row : (Iterable<CustomerDocumentRow>) rows::iterator) {
+                    if (!customerRows.isEmpty() && !customerRows.get(0).customerId().equals(row.customerId())) {
+                        index.putIfAbsent(CustomerDocument.of(customerRows));
+                        customerRows = new ArrayList<>();
+                    }
+                    customerRows.add(row);
+                }
+                if (!customerRows.isEmpty()) {
+                    index.putIfAbsent(CustomerDocument.of(customerRows));
+                }
+            }
+        });
+        ready = true;
+        log.info("Trigram search index built with {} customers in {} ms",
+                index.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public Page<Long> search(String searchTerm, Pageable pageable) {
+        if (!ready) {
+            return fallback.search(searchTerm, pageable);
+        }
+        var hits = index.search(searchTerm.toLowerCase(Locale.ROOT), pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(hits.ids(), pageable, hits.total());
+    }
+
+    @Override
+    public Slice<Long> searchAfter(String searchTerm, long afterId, int size) {
+        if (!ready) {
+            return fallback.searchAfter(searchTerm, afterId, size);
+        }
+        List<Long> ids = index.searchAfter(searchTerm.toLowerCase(Locale.ROOT), afterId, size + 1);
+        boolean hasNext = ids.size() > size;
+        return new SliceImpl<>(hasNext ? ids.subList(0, size) : ids, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public OptionalLong estimateCount(String searchTerm) {
+        if (!ready) {
+            return fallback.estimateCount(searchTerm);
+        }
+        return OptionalLong.of(index.estimateCount(searchTerm.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    public void index(Customer customer) {
+        var document = CustomerDocument.of(customer);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index.put(document);
+                }
+            });
+        } else {
+            index.put(document);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "search-index";
+    }
+
+    // a customer's writes are ordered by its version, but an event delivered late can follow a newer one
+    @Override
+    public void onEvents(List<ChangeEvent> events) {
+        for (var change : changes.of(events)) {
+            if (appliedEvents.merge(change.document().customerId(), change.eventId(), Math::max) == change.eventId()) {
+                index.put(change.document());
+            }
+        }
+    }
+}
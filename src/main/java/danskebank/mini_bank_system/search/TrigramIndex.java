@@ -0,0 +1,226 @@
+package danskebank.mini_bank_system.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from character trigrams to sorted customer id postings.
+ * Candidates are intersected from the postings of the term's trigrams and then verified
+ * with a substring match, so results are identical to a {@code LIKE '%term%'} scan.
+ */
+public class TrigramIndex {
+    private final Map<Long, CustomerDocument> documents = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Postings allIds = new Postings();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record Hits(List<Long> ids, long total) {
+    }
+
+    public void put(CustomerDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.customerId());
+            if (document.hasAddresses()) {
+                addInternal(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putIfAbsent(CustomerDocument document) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(document.customerId())) {
+                addInternal(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long customerId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(customerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Hits search(String term, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] candidates = candidates(term);
+            var ids = new ArrayList<Long>(Math.max(0, Math.min(limit, candidates.length)));
+            long total = 0;
+            for (long id : candidates) {
+                if (documents.get(id).contains(term)) {
+                    if (total >= offset && ids.size() < limit) {
+                        ids.add(id);
+                    }
+                    total++;
+                }
+            }
+            return new Hits(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> searchAfter(String term, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] candidates = candidates(term);
+            int position = Arrays.binarySearch(candidates, afterId);
+            var ids = new ArrayList<Long>(Math.min(limit, candidates.length));
+            for (int i = position >= 0 ? position + 1 : -position - 1; i < candidates.length && ids.size() < limit; i++) {
+                if (documents.get(candidates[i]).contains(term)) {
+                    ids.add(candidates[i]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateCount(String term) {
+        lock.readLock().lock();
+        try {
+            return candidates(term).length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] candidates(String term) {
+        Set<Long> termTrigrams = trigrams(List.of(term));
+        if (termTrigrams.isEmpty()) {
+            return allIds.toArray();
+        }
+        var lists = new ArrayList<Postings>(termTrigrams.size());
+        for (Long trigram : termTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+        long[] result = lists.get(0).toArray();
+        int length = result.length;
+        for (int i = 1; i < lists.size() && length > 0; i++) {
+            Postings list = lists.get(i);
+            int kept = 0;
+            for (int j = 0; j < length; j++) {
+                if (list.contains(result[j])) {
+                    result[kept++] = result[j];
+                }
+            }
+            length = kept;
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private void addInternal(CustomerDocument document) {
+        long id = document.customerId();
+        documents.put(id, document);
+        allIds.add(id);
+        for (Long trigram : trigrams(document.fields())) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(id);
+        }
+    }
+
+    private void removeInternal(long id) {
+        CustomerDocument previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        allIds.remove(id);
+        for (Long trigram : trigrams(previous.fields())) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    static Set<Long> trigrams(List<String> values) {
+        var result = new HashSet<Long>();
+        for (String value : values) {
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                result.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+            }
+        }
+        return result;
+    }
+
+    static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            if (size == 0 || id > ids[size - 1]) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
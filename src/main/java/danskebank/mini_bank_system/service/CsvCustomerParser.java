@@ -0,0 +1,91 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.exception.CustomerException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps CSV rows to customers by header name. Each row carries one customer and at most one address
+ * ({@code street}, {@code city}, {@code postalCode} columns are optional). Quoted fields may contain
+ * commas and doubled quotes, but not line breaks.
+ */
+public class CsvCustomerParser {
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "lastname", "phoneNumber", "email", "type");
+
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    public CsvCustomerParser(String header) {
+        if (header == null) {
+            throw new CustomerException("CSV header is missing.");
+        }
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        REQUIRED_COLUMNS.stream()
+                .filter(column -> !columns.containsKey(column))
+                .findFirst()
+                .ifPresent(column -> {
+                    throw new CustomerException(String.format("CSV column %s is missing.", column));
+                });
+    }
+
+    public CustomerDTO parse(String line) {
+        List<String> values = split(line);
+        var customerDTO = new CustomerDTO();
+        customerDTO.setName(value(values, "name"));
+        customerDTO.setLastname(value(values, "lastname"));
+        customerDTO.setPhoneNumber(value(values, "phoneNumber"));
+        customerDTO.setEmail(value(values, "email"));
+        customerDTO.setType(value(values, "type"));
+
+        var addressDTO = new AddressDTO();
+        addressDTO.setStreet(value(values, "street"));
+        addressDTO.setCity(value(values, "city"));
+        addressDTO.setPostalCode(value(values, "postalCode"));
+        boolean hasAddress = addressDTO.getStreet() != null || addressDTO.getCity() != null || addressDTO.getPostalCode() != null;
+        customerDTO.setAddresses(hasAddress ? List.of(addressDTO) : List.of());
+        return customerDTO;
+    }
+
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    static List<String> split(String line) {
+        var values = new ArrayList<String>();
+        var current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
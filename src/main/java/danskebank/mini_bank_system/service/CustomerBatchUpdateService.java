@@ -0,0 +1,167 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.dto.CustomerBatchItem;
+import danskebank.mini_bank_system.dto.CustomerBatchItemResult;
+import danskebank.mini_bank_system.dto.CustomerBatchUpdateResponse;
+import danskebank.mini_bank_system.exception.AddressException;
+import danskebank.mini_bank_system.exception.CustomerException;
+import jakarta.persistence.PersistenceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams {@code {"id": ..., "customer": {...}}} items from an NDJSON body and applies them in chunks
+ * through {@link CustomerService#updateCustomers}, one transaction per chunk. When a chunk fails as a
+ * whole, its items are retried one transaction each, so one conflicting item only fails itself. Failures
+ * raised by JPA itself at flush, such as constraint violations and optimistic lock conflicts, count as well.
+ * Only the counts and the first failures are kept, so the response does not grow with the body.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerBatchUpdateService {
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final CustomerService customerService;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    @Value("${customer.batch.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public CustomerBatchUpdateResponse updateNdjson(InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(CustomerBatchItem.class);
+        long start = System.nanoTime();
+        var response = new CustomerBatchUpdateResponse();
+        List<CustomerBatchItem> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        try (var lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                response.setReceived(response.getReceived() + 1);
+                CustomerBatchItem item;
+                try {
+                    item = reader.readValue(line);
+                    if (item == null || item.getId() == null || item.getCustomer() == null) {
+                        throw new CustomerException("id and customer are required.");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    add(response, lineNumber, CustomerBatchItemResult.failed(null, e.getMessage()));
+                    continue;
+                }
+                chunk.add(item);
+                chunkLines.add(lineNumber);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, chunkLines, response);
+                    chunk.clear();
+                    chunkLines.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new CustomerException("Failed to read batch body.", e);
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, chunkLines, response);
+        }
+        // malformed lines are reported as they are read, ahead of the chunk they interrupted
+        response.getFailures().sort(Comparator.comparingLong(CustomerBatchItemResult::getLine));
+
+        long elapsedNanos = System.nanoTime() - start;
+        response.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        response.setItemsPerSecond(elapsedNanos == 0 ? 0 : response.getReceived() * 1_000_000_000d / elapsedNanos);
+        log.info("Batch update of {} customers: {} updated, {} unchanged, {} failed at {} items/sec",
+                response.getReceived(), response.getUpdated(), response.getUnchanged(), response.getFailed(),
+                Math.round(response.getItemsPerSecond()));
+        return response;
+    }
+
+    private void writeChunk(List<CustomerBatchItem> chunk, List<Long> lines, CustomerBatchUpdateResponse response) {
+        List<CustomerBatchItemResult> results;
+        if (shardRouter.isSharded()) {
+            // one transaction per shard holding customers of the chunk
+            var customerShards = shardRouter.shardsOfCustomers(chunk.stream().map(CustomerBatchItem::getId).toList());
+            Map<Integer, List<Integer>> itemsByShard = new TreeMap<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                itemsByShard.computeIfAbsent(customerShards.get(chunk.get(i).getId()), shard -> new ArrayList<>()).add(i);
+            }
+            var shardResults = new CustomerBatchItemResult[chunk.size()];
+            itemsByShard.forEach((shard, items) -> {
+                var shardChunk = items.stream().map(chunk::get).toList();
+                var shardLines = items.stream().map(lines::get).toList();
+                var written = shardRouter.onShard(shard, () -> write(shardChunk, shardLines));
+                for (int i = 0; i < items.size(); i++) {
+                    shardResults[items.get(i)] = written.get(i);
+                }
+            });
+            results = List.of(shardResults);
+        } else {
+            results = write(chunk, lines);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            add(response, lines.get(i), results.get(i));
+        }
+    }
+
+    private List<CustomerBatchItemResult> write(List<CustomerBatchItem> chunk, List<Long> lines) {
+        try {
+            return customerService.updateCustomers(chunk);
+        } catch (DataAccessException | PersistenceException e) {
+            log.warn("Batch update chunk ending at line {} failed, retrying its items one by one", lines.getLast(), e);
+            return chunk.stream().map(this::updateOne).toList();
+        }
+    }
+
+    private CustomerBatchItemResult updateOne(CustomerBatchItem item) {
+        try {
+            var update = customerService.updateCustomer(item.getId(), item.getCustomer());
+            var result = new CustomerBatchItemResult();
+            result.setCustomerId(item.getId());
+            result.setStatus(update.isChanged() ? CustomerBatchItemResult.Status.UPDATED : CustomerBatchItemResult.Status.UNCHANGED);
+            result.setVersion(update.getVersion());
+            result.setChangedFields(update.isChanged() ? update.getChangedFields() : null);
+            return result;
+        } catch (DataAccessException | PersistenceException e) {
+            return CustomerBatchItemResult.failed(item.getId(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } catch (CustomerException | AddressException | IllegalArgumentException e) {
+            return CustomerBatchItemResult.failed(item.getId(), e.getMessage());
+        }
+    }
+
+    private static void add(CustomerBatchUpdateResponse response, long line, CustomerBatchItemResult result) {
+        result.setLine(line);
+        switch (result.getStatus()) {
+            case UPDATED -> response.setUpdated(response.getUpdated() + 1);
+            case UNCHANGED -> response.setUnchanged(response.getUnchanged() + 1);
+            case FAILED -> {
+                response.setFailed(response.getFailed() + 1);
+                if (response.getFailures().size() < MAX_REPORTED_FAILURES) {
+                    response.getFailures().add(result);
+                }
+            }
+        }
+    }
+}
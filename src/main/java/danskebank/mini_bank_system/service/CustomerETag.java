@@ -0,0 +1,53 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.dto.CustomerVersionRow;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import org.springframework.http.ETag;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Weak ETag of a customer: its own version plus a checksum of its addresses' ids and versions. Address
+ * rows carry their own versions, so an address change, insert or delete does not bump the customer's.
+ */
+final class CustomerETag {
+
+    private CustomerETag() {
+    }
+
+    static String of(Customer customer) {
+        var checksum = new CRC32();
+        customer.getAddresses().stream()
+                .sorted(Comparator.comparing(Address::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                .forEach(address -> update(checksum, address.getId(), address.getVersionNum()));
+        return format(customer.getVersionNum(), checksum);
+    }
+
+    /** From rows ordered by address id, with a single row without address for a customer without addresses. */
+    static String of(List<CustomerVersionRow> rows) {
+        var checksum = new CRC32();
+        rows.stream()
+                .filter(row -> row.addressId() != null)
+                .forEach(row -> update(checksum, row.addressId(), row.addressVersion()));
+        return format(rows.getFirst().customerVersion(), checksum);
+    }
+
+    /** Weak comparison against an {@code If-None-Match} or {@code If-Match} header; {@code *} matches any tag. */
+    static boolean matches(String header, String etag) {
+        var current = ETag.create(etag);
+        return ETag.parse(header).stream()
+                .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(current, false));
+    }
+
+    private static void update(CRC32 checksum, Long addressId, int addressVersion) {
+        checksum.update((addressId + ":" + addressVersion + ";").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String format(int customerVersion, CRC32 checksum) {
+        return String.format("W/\"%d-%08x\"", customerVersion, checksum.getValue());
+    }
+}
@@ -0,0 +1,172 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerExportDTO;
+import danskebank.mini_bank_system.dto.CustomerExportRow;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes customers as a stream of values, one per customer, from a forward-only cursor over customer and
+ * address projection rows ordered by customer id: NDJSON lines, a CBOR sequence or a Smile stream. Only
+ * the customer being written is held in memory, and projections never enter the persistence context, so
+ * memory use does not grow with the export size.
+ */
+@Slf4j
+@Service
+public class CustomerExportService {
+    private final CustomerRepository customerRepository;
+    private final ShardRouter shardRouter;
+    private final PlatformTransactionManager transactionManager;
+    private final Duration requestTimeout;
+    private final Map<ExportFormat, ObjectMapper> objectMappers = new EnumMap<>(ExportFormat.class);
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson"),
+        CBOR("application/cbor-seq"),
+        SMILE("application/x-jackson-smile");
+
+        private final String mediaType;
+
+        ExportFormat(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+
+    public CustomerExportService(CustomerRepository customerRepository, ObjectMapper objectMapper, ShardRouter shardRouter,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${customer.export.request-timeout:-1}") Duration requestTimeout) {
+        this.customerRepository = customerRepository;
+        this.shardRouter = shardRouter;
+        this.transactionManager = transactionManager;
+        this.requestTimeout = requestTimeout;
+        objectMappers.put(ExportFormat.NDJSON, objectMapper);
+        objectMappers.put(ExportFormat.CBOR, objectMapper.copyWith(new CBORFactory()));
+        objectMappers.put(ExportFormat.SMILE, objectMapper.copyWith(new SmileFactory()));
+    }
+
+    /**
+     * How long an export request may stream; zero or negative for no limit.
+     */
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(String searchTerm, ExportFormat format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long exported = 0;
+        ObjectMapper objectMapper = objectMappers.get(format);
+        ObjectWriter writer = objectMapper.writerFor(CustomerExportDTO.class);
+        boolean newlineDelimited = format == ExportFormat.NDJSON;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (!shardRouter.isSharded()) {
+                exported = write(searchTerm, writer, generator, newlineDelimited);
+            } else {
+                // shard after shard, each from its own read-only transaction; ids are ordered within a shard
+                var transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                for (int shard = 0; shard < shardRouter.size(); shard++) {
+                    exported += shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                        try {
+                            return write(searchTerm, writer, generator, newlineDelimited);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported {} customers as {} in {} ms", exported, format, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return exported;
+    }
+
+    private long write(String searchTerm, ObjectWriter writer, JsonGenerator generator, boolean newlineDelimited) throws IOException {
+        long exported = 0;
+        try (Stream<CustomerExportRow> rows = searchTerm == null || searchTerm.isBlank()
+                ? customerRepository.streamExportRows()
+                : customerRepository.streamExportRows(searchTerm)) {
+            Iterator<CustomerExportRow> iterator = rows.iterator();
+            CustomerExportDTO customer = null;
+            while (iterator.hasNext()) {
+                var row = iterator.next();
+                if (customer == null || !customer.getId().equals(row.id())) {
+                    if (customer != null) {
+                        writeValue(writer, generator, customer, newlineDelimited);
+                        exported++;
+                    }
+                    customer = toDto(row);
+                }
+                if (row.addressId() != null) {
+                    customer.getAddresses().add(toAddressDto(row));
+                }
+            }
+            if (customer != null) {
+                writeValue(writer, generator, customer, newlineDelimited);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    // binary values are self-delimiting, so only NDJSON needs a separator
+    private static void writeValue(ObjectWriter writer, JsonGenerator generator, CustomerExportDTO customer,
+                                   boolean newlineDelimited) throws IOException {
+        writer.writeValue(generator, customer);
+        if (newlineDelimited) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    private static CustomerExportDTO toDto(CustomerExportRow row) {
+        var dto = new CustomerExportDTO();
+        dto.setId(row.id());
+        dto.setName(row.name());
+        dto.setLastname(row.lastname());
+        dto.setPhoneNumber(row.phoneNumber());
+        dto.setEmail(row.email());
+        dto.setType(row.type() == null ? null : row.type().toString());
+        dto.setAddresses(new ArrayList<>());
+        return dto;
+    }
+
+    private static AddressDTO toAddressDto(CustomerExportRow row) {
+        var dto = new AddressDTO();
+        dto.setId(row.addressId());
+        dto.setStreet(row.street());
+        dto.setCity(row.city());
+        dto.setPostalCode(row.postalCode());
+        return dto;
+    }
+}
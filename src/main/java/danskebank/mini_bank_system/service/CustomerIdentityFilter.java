@@ -0,0 +1,106 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the identity fingerprints of stored customers. A negative answer means no
+ * customer with the fingerprint was loaded at startup or written by this instance since, so a bulk
+ * write can skip the database probe; a positive answer may be false. Until the filter has been loaded
+ * at startup every fingerprint is reported as possibly present. Fingerprints inserted by other
+ * instances are not seen here, so a negative answer is never taken as proof on its own: the unique
+ * constraint on the fingerprint column rejects what it misses, and callers recover from that. When
+ * sharded, the filter holds the fingerprints of every shard.
+ */
+@Slf4j
+@Component
+public class CustomerIdentityFilter {
+    private final CustomerRepository customerRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean ready;
+
+    public CustomerIdentityFilter(CustomerRepository customerRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ShardRouter shardRouter,
+                                  @Value("${customer.identity-filter.expected-insertions:1000000}") long expectedInsertions,
+                                  @Value("${customer.identity-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.customerRepository = customerRepository;
+        this.transactionManager = transactionManager;
+        this.shardRouter = shardRouter;
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        long loaded = 0;
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            loaded += shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                try (var fingerprints = customerRepository.streamIdentityFingerprints()) {
+                    return fingerprints.peek(this::put).count();
+                }
+            }));
+        }
+        ready = true;
+        log.info("Customer identity filter loaded {} fingerprints ({} bits, {} hashes) in {} ms",
+                loaded, bitCount, hashCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public boolean mightContain(String fingerprint) {
+        if (!ready) {
+            return true;
+        }
+        long hash1 = hash1(fingerprint);
+        long hash2 = hash2(fingerprint);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String fingerprint) {
+        long hash1 = hash1(fingerprint);
+        long hash2 = hash2(fingerprint);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // retry until the bit is set
+            }
+        }
+    }
+
+    // the fingerprint is already a uniformly distributed SHA-256 hex string, so its halves serve as hashes
+    private static long hash1(String fingerprint) {
+        return Long.parseUnsignedLong(fingerprint, 0, 16, 16);
+    }
+
+    private static long hash2(String fingerprint) {
+        return Long.parseUnsignedLong(fingerprint, 16, 32, 16) | 1;
+    }
+}
@@ -0,0 +1,227 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import danskebank.mini_bank_system.datasource.AccountShard;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerImportResponse;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
+import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.exception.AccountException;
+import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.outbox.ChangeType;
+import danskebank.mini_bank_system.outbox.Outbox;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.search.CustomerDocument;
+import danskebank.mini_bank_system.search.CustomerSearchEngine;
+import danskebank.mini_bank_system.search.SearchResultCache;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams customers from an NDJSON or CSV body line by line and writes them in chunks, each chunk
+ * in its own transaction with batched inserts, detaching the chunk's entities once written. Rows
+ * repeating a customer identity fingerprint already seen in the body, or already stored in the
+ * database, are counted as duplicates and skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerImportService {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final AccountRepository accountRepository;
+    private final CustomerRepository customerRepository;
+    private final CustomerSearchEngine searchEngine;
+    private final SearchResultCache searchResultCache;
+    private final CustomerIdentityFilter identityFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Outbox outbox;
+    private final EntityManager entityManager;
+
+    @Value("${customer.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @FunctionalInterface
+    interface RowParser {
+        CustomerDTO parse(String line) throws IOException;
+    }
+
+    private record ChunkOutcome(long imported, long duplicates) {
+    }
+
+    public CustomerImportResponse importNdjson(@AccountShard Long accountId, InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(CustomerDTO.class);
+        try (var lines = reader(body)) {
+            return importRows(accountId, lines, 0, reader::readValue);
+        } catch (IOException e) {
+            throw new CustomerException("Failed to read import body.", e);
+        }
+    }
+
+    public CustomerImportResponse importCsv(@AccountShard Long accountId, InputStream body) {
+        try (var lines = reader(body)) {
+            var parser = new CsvCustomerParser(lines.readLine());
+            return importRows(accountId, lines, 1, parser::parse);
+        } catch (IOException e) {
+            throw new CustomerException("Failed to read import body.", e);
+        }
+    }
+
+    CustomerImportResponse importRows(Long accountId, BufferedReader lines, long firstLine, RowParser parser) throws IOException {
+        if (!accountRepository.existsById(accountId)) {
+            throw new AccountException("Account not found");
+        }
+        long start = System.nanoTime();
+        var response = new CustomerImportResponse();
+        Set<String> seen = new HashSet<>();
+        List<CustomerDTO> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = firstLine;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            response.setReceived(response.getReceived() + 1);
+            CustomerDTO customerDTO;
+            try {
+                customerDTO = parser.parse(line);
+                validate(customerDTO);
+            } catch (IOException | RuntimeException e) {
+                fail(response, 1, String.format("line %d: %s", lineNumber, e.getMessage()));
+                continue;
+            }
+            if (!seen.add(fingerprint(customerDTO))) {
+                response.setDuplicates(response.getDuplicates() + 1);
+                continue;
+            }
+            chunk.add(customerDTO);
+            if (chunk.size() >= chunkSize) {
+                writeChunk(accountId, chunk, lineNumber, response);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(accountId, chunk, lineNumber, response);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        response.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        response.setRowsPerSecond(elapsedNanos == 0 ? 0 : response.getReceived() * 1_000_000_000d / elapsedNanos);
+        log.info("Imported {} of {} customers into account {} ({} duplicates, {} failed) at {} rows/sec",
+                response.getImported(), response.getReceived(), accountId, response.getDuplicates(),
+                response.getFailed(), Math.round(response.getRowsPerSecond()));
+        return response;
+    }
+
+    private void writeChunk(Long accountId, List<CustomerDTO> chunk, long lastLine, CustomerImportResponse response) {
+        writeChunk(accountId, chunk, lastLine, response, false);
+    }
+
+    /**
+     * Writes the chunk, probing the database only for the fingerprints the identity filter cannot rule
+     * out. The filter does not know customers created by other instances, so a chunk that fails on the
+     * identity constraint is retried once with every fingerprint probed.
+     */
+    private void writeChunk(Long accountId, List<CustomerDTO> chunk, long lastLine, CustomerImportResponse response, boolean probeAll) {
+        try {
+            ChunkOutcome outcome = transactionTemplate.execute(status -> {
+                var account = accountRepository.getReferenceById(accountId);
+                List<String> fingerprints = chunk.stream().map(CustomerImportService::fingerprint).toList();
+                List<String> candidates = probeAll
+                        ? fingerprints
+                        : fingerprints.stream().filter(identityFilter::mightContain).toList();
+                Set<String> existing = candidates.isEmpty()
+                        ? Set.of()
+                        : new HashSet<>(customerRepository.findExistingFingerprints(candidates));
+
+                List<Customer> customers = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (!existing.contains(fingerprints.get(i))) {
+                        customers.add(CustomerService.newCustomer(chunk.get(i), account));
+                        identityFilter.put(fingerprints.get(i));
+                    }
+                }
+                customerRepository.saveAll(customers);
+                if (!customers.isEmpty()) {
+                    accountRepository.adjustNumberOfOwners(accountId, customers.size());
+                }
+                outbox.record(customers.stream()
+                        .map(customer -> new Outbox.Change(CustomerService.AGGREGATE_TYPE, customer.getId(),
+                                ChangeType.CREATED, CustomerService.customerDto(customer)))
+                        .toList());
+                customers.forEach(searchEngine::index);
+                searchResultCache.invalidateAfterCommit(customers.stream().map(CustomerDocument::of).toList());
+                // the chunk's entities are not needed again; when the chunk joins an enclosing transaction,
+                // this keeps the shared persistence context from growing with the body
+                customerRepository.flush();
+                entityManager.clear();
+                return new ChunkOutcome(customers.size(), chunk.size() - customers.size());
+            });
+            response.setImported(response.getImported() + outcome.imported());
+            response.setDuplicates(response.getDuplicates() + outcome.duplicates());
+        } catch (DataIntegrityViolationException e) {
+            if (!probeAll && CustomerService.isDuplicateIdentity(e)) {
+                log.info("Import chunk ending at line {} met an identity unknown to the filter, retrying with every row probed", lastLine);
+                writeChunk(accountId, chunk, lastLine, response, true);
+                return;
+            }
+            log.warn("Import chunk ending at line {} failed", lastLine, e);
+            fail(response, chunk.size(), String.format("chunk ending at line %d: %s", lastLine, e.getMostSpecificCause().getMessage()));
+        } catch (DataAccessException e) {
+            log.warn("Import chunk ending at line {} failed", lastLine, e);
+            fail(response, chunk.size(), String.format("chunk ending at line %d: %s", lastLine, e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    private static void validate(CustomerDTO customerDTO) {
+        if (customerDTO == null || customerDTO.getName() == null || customerDTO.getLastname() == null
+                || customerDTO.getEmail() == null || customerDTO.getPhoneNumber() == null) {
+            throw new CustomerException("name, lastname, email and phoneNumber are required.");
+        }
+        if (customerDTO.getType() == null) {
+            throw new CustomerException("type is required.");
+        }
+        CustomerType.valueOf(customerDTO.getType());
+        if (customerDTO.getAddresses() == null) {
+            customerDTO.setAddresses(List.of());
+        }
+    }
+
+    private static String fingerprint(CustomerDTO customerDTO) {
+        return new CustomerIdentity(customerDTO.getName(), customerDTO.getLastname(), customerDTO.getEmail(), customerDTO.getPhoneNumber())
+                .fingerprint();
+    }
+
+    private static void fail(CustomerImportResponse response, long rows, String error) {
+        response.setFailed(response.getFailed() + rows);
+        if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+            response.getErrors().add(error);
+        }
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+}
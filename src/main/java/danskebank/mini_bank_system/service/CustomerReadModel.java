@@ -0,0 +1,109 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.datasource.ReadYourWritesWindow;
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.AddressRow;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerRow;
+import danskebank.mini_bank_system.repository.AddressRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Builds customer DTOs from two projection queries (customers, then their addresses) instead of
+ * loading entities, so a page of results costs a fixed number of statements. When sharded and not
+ * already bound to a shard, the ids are looked up on their shards in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+public class CustomerReadModel {
+    private final CustomerRepository customerRepository;
+    private final AddressRepository addressRepository;
+    private final ShardRouter shardRouter;
+    private final PlatformTransactionManager transactionManager;
+    private final ReadYourWritesWindow readYourWritesWindow;
+
+    @Transactional(readOnly = true)
+    public List<CustomerDTO> findAllInOrder(List<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CustomerDTO> customersById = new HashMap<>();
+        if (!shardRouter.isSharded() || shardRouter.currentShard().isPresent()) {
+            // a transaction that has not run a statement yet picks its connection by these ids
+            try (var reading = readYourWritesWindow.reading(customerIds)) {
+                customersById.putAll(findAll(customerIds));
+            }
+        } else {
+            Map<Integer, List<Long>> idsByShard = new HashMap<>();
+            for (Long id : customerIds) {
+                idsByShard.computeIfAbsent(shardRouter.shardOfCustomer(id), shard -> new ArrayList<>()).add(id);
+            }
+            var transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            shardRouter.onEveryShard(shard -> idsByShard.containsKey(shard)
+                            ? transactionTemplate.execute(status -> findAll(idsByShard.get(shard)))
+                            : Map.<Long, CustomerDTO>of())
+                    .forEach(customersById::putAll);
+        }
+        return customerIds.stream()
+                .map(customersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<Long, CustomerDTO> findAll(Collection<Long> customerIds) {
+        Map<Long, CustomerDTO> customersById = new HashMap<>();
+        Set<Long> accountIds = new HashSet<>();
+        for (CustomerRow row : customerRepository.findRowsByIdIn(customerIds)) {
+            customersById.put(row.id(), toDto(row));
+            accountIds.add(row.accountId());
+        }
+        if (customersById.isEmpty()) {
+            return customersById;
+        }
+        // naming the accounts lets a partitioned address table skip the other accounts' partitions
+        var addresses = accountIds.contains(null)
+                ? addressRepository.findRowsByCustomerIdIn(customersById.keySet())
+                : addressRepository.findRowsByCustomerIdIn(accountIds, customersById.keySet());
+        for (AddressRow row : addresses) {
+            customersById.get(row.customerId()).getAddresses().add(toDto(row));
+        }
+        return customersById;
+    }
+
+    private static CustomerDTO toDto(CustomerRow row) {
+        var dto = new CustomerDTO();
+        dto.setId(row.id());
+        dto.setName(row.name());
+        dto.setLastname(row.lastname());
+        dto.setPhoneNumber(row.phoneNumber());
+        dto.setEmail(row.email());
+        dto.setType(row.type() == null ? null : row.type().toString());
+        dto.setAddresses(new ArrayList<>());
+        return dto;
+    }
+
+    private static AddressDTO toDto(AddressRow row) {
+        var dto = new AddressDTO();
+        dto.setId(row.id());
+        dto.setStreet(row.street());
+        dto.setCity(row.city());
+        dto.setPostalCode(row.postalCode());
+        return dto;
+    }
+}
@@ -1,148 +1,538 @@
 package danskebank.mini_bank_system.service;
 
+import danskebank.mini_bank_system.datasource.AccountShard;
+import danskebank.mini_bank_system.datasource.CustomerShard;
+import danskebank.mini_bank_system.datasource.ReadYourWritesWindow;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerBatchItem;
+import danskebank.mini_bank_system.dto.CustomerBatchItemResult;
 import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerUpdateResponse;
+import danskebank.mini_bank_system.dto.VersionedCustomer;
+import danskebank.mini_bank_system.entity.Account;
 import danskebank.mini_bank_system.entity.Address;
 import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
 import danskebank.mini_bank_system.entity.CustomerType;
 import danskebank.mini_bank_system.exception.AccountException;
 import danskebank.mini_bank_system.exception.AddressException;
 import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.exception.CustomerNotFoundException;
+import danskebank.mini_bank_system.exception.CustomerVersionException;
+import danskebank.mini_bank_system.exception.DuplicateCustomerException;
+import danskebank.mini_bank_system.outbox.ChangeType;
+import danskebank.mini_bank_system.outbox.Outbox;
 import danskebank.mini_bank_system.repository.AccountRepository;
 import danskebank.mini_bank_system.repository.AddressRepository;
 import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.search.CustomerDocument;
+import danskebank.mini_bank_system.search.CustomerSearchEngine;
+import danskebank.mini_bank_system.search.SearchResultCache;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
+    public static final String AGGREGATE_TYPE = "Customer";
+
     private final CustomerRepository customerRepository;
     private final AccountRepository accountRepository;
     private final AddressRepository addressRepository;
+    private final CustomerSearchEngine searchEngine;
+    private final CustomerReadModel customerReadModel;
+    private final CustomerIdentityFilter identityFilter;
+    private final SearchResultCache searchResultCache;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final Outbox outbox;
+    private final CustomerShardMover shardMover;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
-    public Customer createCustomer(Long accountId, CustomerDTO customerDTO) {
-
-        var account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new AccountException("Account not found"));
-
-        var existingCustomer = customerRepository.findByNameAndLastnameAndEmailAndPhoneNumber(
+    /**
+     * Creates the customer in {@code accountId}, or reassigns the customer with the same identity to it. The
+     * database is only probed for the identity when the identity filter cannot rule it out. The filter does not
+     * know customers created by other instances, so a create that fails on the identity constraint is retried
+     * once, in a new transaction, with the probe. Joining a caller's transaction rules out that retry, so
+     * then the probe always runs.
+     */
+    @Timed(value = "customer.service", histogram = true)
+    public Customer createCustomer(@AccountShard Long accountId, CustomerDTO customerDTO) {
+        var fingerprint = new CustomerIdentity(
                 customerDTO.getName(),
                 customerDTO.getLastname(),
                 customerDTO.getEmail(),
-                customerDTO.getPhoneNumber()).orElse(null);
+                customerDTO.getPhoneNumber()).fingerprint();
+        boolean probe = TransactionSynchronizationManager.isActualTransactionActive() || identityFilter.mightContain(fingerprint);
+        try {
+            return transactionTemplate.execute(status -> createCustomer(accountId, customerDTO, fingerprint, probe));
+        } catch (DuplicateCustomerException e) {
+            if (probe) {
+                throw e;
+            }
+            log.info("Create met an identity unknown to the filter, retrying with the probe");
+            return transactionTemplate.execute(status -> createCustomer(accountId, customerDTO, fingerprint, true));
+        }
+    }
 
-        if (existingCustomer != null) {
-            if (account.getCustomers().contains(existingCustomer)) {
-                throw new CustomerException("Customer is already assigned to this account.");
+    private Customer createCustomer(Long accountId, CustomerDTO customerDTO, String fingerprint, boolean probe) {
+        var existingCustomer = probe ? customerRepository.findByIdentityFingerprint(fingerprint).orElse(null) : null;
+        // with sharding, the identity is only unique per shard, so the customer may be on another account's shard;
+        // no constraint spans the shards, so they are asked even when the filter rules the identity out
+        var elsewhere = existingCustomer == null ? shardMover.findOnOtherShard(fingerprint).orElse(null) : null;
+
+        // membership is the customer's account_id, so neither check loads the account's other owners
+        if (existingCustomer != null && existingCustomer.getAccount() != null
+                && accountId.equals(existingCustomer.getAccount().getId())) {
+            throw new CustomerException("Customer is already assigned to this account.");
+        }
+        if (accountRepository.adjustNumberOfOwners(accountId, 1) == 0) {
+            throw new AccountException("Account not found");
+        }
+        var account = accountRepository.getReferenceById(accountId);
+
+        if (elsewhere != null) {
+            var movedCustomer = shardMover.moveHere(elsewhere, account);
+            outbox.record(AGGREGATE_TYPE, movedCustomer.getId(), ChangeType.UPDATED, customerDto(movedCustomer));
+            readYourWritesWindow.recordWriteAfterCommit(List.of(movedCustomer.getId()));
+            return movedCustomer;
+
+        } else if (existingCustomer != null) {
+            if (existingCustomer.getAccount() != null) {
+                accountRepository.adjustNumberOfOwners(existingCustomer.getAccount().getId(), -1);
             }
             existingCustomer.setAccount(account);
+            existingCustomer.getAddresses().forEach(address -> address.setAccountId(accountId));
             customerRepository.save(existingCustomer);
+            outbox.record(AGGREGATE_TYPE, existingCustomer.getId(), ChangeType.UPDATED, customerDto(existingCustomer));
+            readYourWritesWindow.recordWriteAfterCommit(List.of(existingCustomer.getId()));
             return existingCustomer;
 
         } else {
-            List<Address> addresses = customerDTO.getAddresses().stream()
-                    .map(addressDTO -> Address.builder()
-                            .street(addressDTO.getStreet())
-                            .city(addressDTO.getCity())
-                            .postalCode(addressDTO.getPostalCode())
-                            .build())
-                    .collect(Collectors.toList());
-
-            var newCustomer = new Customer();
-            newCustomer.setName(customerDTO.getName());
-            newCustomer.setLastname(customerDTO.getLastname());
-            newCustomer.setPhoneNumber(customerDTO.getPhoneNumber());
-            newCustomer.setEmail(customerDTO.getEmail());
-            newCustomer.setType(CustomerType.valueOf(customerDTO.getType()));
-            newCustomer.setAccount(account);
-            addresses.forEach(address -> {
-                address.setCustomer(newCustomer);
-                address.setCreatedBy("User");
-                address.setCreationDate(LocalDateTime.now());
-                address.setLastModifiedDate(LocalDateTime.now());
-                address.setLastModifiedBy("User");
-                address.setVersionNum(1);
-            });
-            newCustomer.setAddresses(addresses);
-            newCustomer.setCreatedBy("User");
-            newCustomer.setCreationDate(LocalDateTime.now());
-            newCustomer.setLastModifiedDate(LocalDateTime.now());
-            newCustomer.setLastModifiedBy("User");
-//            newCustomer.setVersionNum(1);
-
+            var newCustomer = newCustomer(customerDTO, account);
             customerRepository.save(newCustomer);
+            flushIdentity(fingerprint);
+            outbox.record(AGGREGATE_TYPE, newCustomer.getId(), ChangeType.CREATED, customerDto(newCustomer));
+            searchEngine.index(newCustomer);
+            searchResultCache.invalidateAfterCommit(List.of(CustomerDocument.of(newCustomer)));
+            readYourWritesWindow.recordWriteAfterCommit(List.of(newCustomer.getId()));
             return newCustomer;
         }
     }
 
+    static Customer newCustomer(CustomerDTO customerDTO, Account account) {
+        var newCustomer = new Customer();
+        newCustomer.setName(customerDTO.getName());
+        newCustomer.setLastname(customerDTO.getLastname());
+        newCustomer.setPhoneNumber(customerDTO.getPhoneNumber());
+        newCustomer.setEmail(customerDTO.getEmail());
+        newCustomer.setType(CustomerType.valueOf(customerDTO.getType()));
+        newCustomer.setAccount(account);
+        newCustomer.setAddresses(customerDTO.getAddresses().stream()
+                .map(addressDTO -> newAddress(addressDTO, newCustomer))
+                .collect(Collectors.toList()));
+        return newCustomer;
+    }
+
+    private static Address newAddress(AddressDTO addressDTO, Customer customer) {
+        var address = Address.builder()
+                .street(addressDTO.getStreet())
+                .city(addressDTO.getCity())
+                .postalCode(addressDTO.getPostalCode())
+                .customer(customer)
+                .build();
+        address.setVersionNum(1);
+        return address;
+    }
+
+    /**
+     * Applies a partial update. Null fields are left as they are, while a present {@code addresses} list is
+     * the complete new set of addresses: entries are matched to stored addresses by id, or else by identical
+     * street, city and postal code, and stored addresses left unmatched are deleted. Only rows that really
+     * differ are written, and the response lists what changed.
+     */
+    @Transactional
+    @Timed(value = "customer.service", histogram = true)
+    public CustomerUpdateResponse updateCustomer(@CustomerShard Long id, CustomerDTO customerDTO) {
+        return updateCustomer(id, customerDTO, null);
+    }
+
+    /**
+     * As {@link #updateCustomer(Long, CustomerDTO)}, but only while the customer still matches the
+     * {@code If-Match} header: a stale ETag, or a change committed by someone else before this one,
+     * fails with a {@link CustomerVersionException} instead of waiting on a lock.
+     */
     @Transactional
-    public Customer updateCustomer(Long id, CustomerDTO customerDTO) {
+    @Timed(value = "customer.service", histogram = true)
+    public CustomerUpdateResponse updateCustomer(@CustomerShard Long id, CustomerDTO customerDTO, String ifMatch) {
         var customer = customerRepository.findById(id)
-                .orElseThrow(() -> new CustomerException("Customer not found."));
+                .orElseThrow(() -> new CustomerNotFoundException("Customer not found."));
+        if (ifMatch != null && !CustomerETag.matches(ifMatch, CustomerETag.of(customer))) {
+            throw new CustomerVersionException("Customer was modified since it was read.");
+        }
+        validateUpdate(customer, customerDTO);
+
+        // the pages of the terms the customer stops matching are stale as well
+        var before = CustomerDocument.of(customer);
+        List<Address> deleted = new ArrayList<>();
+        var response = applyUpdate(customer, customerDTO, deleted);
+        deleteAddresses(deleted);
+        if (response.isChanged()) {
+            try {
+                flushIdentity(CustomerIdentity.of(customer).fingerprint());
+            } catch (OptimisticLockingFailureException e) {
+                if (ifMatch == null) {
+                    throw e;
+                }
+                throw new CustomerVersionException("Customer was modified since it was read.", e);
+            }
+            outbox.record(AGGREGATE_TYPE, customer.getId(), ChangeType.UPDATED, customerDto(customer));
+            searchEngine.index(customer);
+            searchResultCache.invalidateAfterCommit(List.of(before, CustomerDocument.of(customer)));
+            readYourWritesWindow.recordWriteAfterCommit(List.of(customer.getId()));
+        }
+        response.setVersion(customer.getVersionNum());
+        response.setEtag(CustomerETag.of(customer));
+        return response;
+    }
 
-        customer.setName(customerDTO.getName());
-        customer.setLastname(customerDTO.getLastname());
-        customer.setPhoneNumber(customerDTO.getPhoneNumber());
-        customer.setEmail(customerDTO.getEmail());
-        customer.setType(CustomerType.valueOf(customerDTO.getType()));
-//        customer.setVersionNum(customer.getVersionNum() + 1);
-        customer.setLastModifiedBy("User");
-        customer.setLastModifiedDate(LocalDateTime.now());
+    /**
+     * Applies a chunk of batch items in one transaction. The customers are loaded together with their
+     * addresses by one query and the changed rows are written in JDBC batches at a single flush. An item
+     * that is invalid, names an unknown customer or would take another customer's identity is reported
+     * as failed and leaves its customer untouched; the other items are applied. Results are in item order.
+     * A failure at flush, such as a concurrent update, rolls back the whole chunk.
+     */
+    @Transactional
+    @Timed(value = "customer.service", histogram = true)
+    public List<CustomerBatchItemResult> updateCustomers(List<CustomerBatchItem> items) {
+        Map<Long, Customer> customers = customerRepository.findAllWithAddressesByIdIn(
+                        items.stream().map(CustomerBatchItem::getId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Customer::getId, customer -> customer));
 
+        // identities are checked up front: a query issued after the first change would flush it
+        Set<String> candidates = new HashSet<>();
+        for (var item : items) {
+            var customer = customers.get(item.getId());
+            if (customer != null) {
+                var fingerprint = prospectiveIdentity(customer, item.getCustomer()).fingerprint();
+                if (!fingerprint.equals(customer.getIdentityFingerprint()) && identityFilter.mightContain(fingerprint)) {
+                    candidates.add(fingerprint);
+                }
+            }
+        }
+        Set<String> taken = candidates.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(customerRepository.findExistingFingerprints(candidates));
+
+        List<CustomerBatchItemResult> results = new ArrayList<>(items.size());
+        Set<Long> changedIds = new LinkedHashSet<>();
+        List<CustomerDocument> documents = new ArrayList<>();
+        List<Address> deleted = new ArrayList<>();
+        for (var item : items) {
+            var customer = customers.get(item.getId());
+            if (customer == null) {
+                results.add(CustomerBatchItemResult.failed(item.getId(), "Customer not found."));
+                continue;
+            }
+            try {
+                validateUpdate(customer, item.getCustomer());
+            } catch (CustomerException | AddressException | IllegalArgumentException e) {
+                results.add(CustomerBatchItemResult.failed(item.getId(), e.getMessage()));
+                continue;
+            }
+            var fingerprint = prospectiveIdentity(customer, item.getCustomer()).fingerprint();
+            String current = customer.getIdentityFingerprint();
+            if (!fingerprint.equals(current) && !taken.add(fingerprint)) {
+                results.add(CustomerBatchItemResult.failed(item.getId(),
+                        "Customer with the same name, lastname, email and phone number already exists."));
+                continue;
+            }
+            var before = CustomerDocument.of(customer);
+            var response = applyUpdate(customer, item.getCustomer(), deleted);
+            if (response.isChanged()) {
+                changedIds.add(customer.getId());
+                documents.add(before);
+                // later items compare against the new identity, and the one given up is not free for others until the flush
+                taken.add(current);
+                customer.setIdentityFingerprint(fingerprint);
+            }
+            var result = new CustomerBatchItemResult();
+            result.setCustomerId(customer.getId());
+            result.setStatus(response.isChanged() ? CustomerBatchItemResult.Status.UPDATED : CustomerBatchItemResult.Status.UNCHANGED);
+            result.setChangedFields(response.isChanged() ? response.getChangedFields() : null);
+            results.add(result);
+        }
+
+        deleteAddresses(deleted);
+        if (!changedIds.isEmpty()) {
+            customerRepository.flush();
+            List<Customer> changed = changedIds.stream().map(customers::get).toList();
+            changed.forEach(customer -> identityFilter.put(customer.getIdentityFingerprint()));
+            outbox.record(changed.stream()
+                    .map(customer -> new Outbox.Change(AGGREGATE_TYPE, customer.getId(), ChangeType.UPDATED, customerDto(customer)))
+                    .toList());
+            changed.forEach(searchEngine::index);
+            changed.forEach(customer -> documents.add(CustomerDocument.of(customer)));
+            searchResultCache.invalidateAfterCommit(documents);
+            readYourWritesWindow.recordWriteAfterCommit(changedIds);
+        }
+        for (var result : results) {
+            if (result.getStatus() != CustomerBatchItemResult.Status.FAILED) {
+                result.setVersion(customers.get(result.getCustomerId()).getVersionNum());
+            }
+        }
+        return results;
+    }
+
+    /** Rejects an update that names an address the customer does not have, or an unknown type. */
+    static void validateUpdate(Customer customer, CustomerDTO customerDTO) {
+        if (customerDTO == null) {
+            throw new CustomerException("customer is required.");
+        }
+        if (customerDTO.getType() != null) {
+            CustomerType.valueOf(customerDTO.getType());
+        }
         if (customerDTO.getAddresses() != null) {
-            List<Address> existingAddresses = addressRepository.findAllByCustomerId(customer.getId()).orElseThrow(
-                    () -> new AddressException(String.format("No address found with %s id", customer.getId())));
-
-            Map<Long, Address> existingAddressMap = existingAddresses.stream()
-                    .collect(Collectors.toMap(Address::getId, address -> address));
-
-            List<Address> updatedAddresses = new ArrayList<>();
-
-            for (var addressUpdate : customerDTO.getAddresses()) {
-                if (addressUpdate.getId() != null && existingAddressMap.containsKey(addressUpdate.getId())) {
-                    var existingAddress = existingAddressMap.get(addressUpdate.getId());
-                    existingAddress.setStreet(addressUpdate.getStreet());
-                    existingAddress.setCity(addressUpdate.getCity());
-                    existingAddress.setPostalCode(addressUpdate.getPostalCode());
-                    existingAddress.setLastModifiedDate(LocalDateTime.now());
-                    existingAddress.setVersionNum(existingAddress.getVersionNum() + 1);
-                    existingAddress.setLastModifiedBy("Updated User");
-                    updatedAddresses.add(existingAddress);
-                } else {
-                    var newAddress = new Address();
-                    newAddress.setCustomer(customer);
-                    newAddress.setStreet(addressUpdate.getStreet());
-                    newAddress.setCity(addressUpdate.getCity());
-                    newAddress.setPostalCode(addressUpdate.getPostalCode());
-                    newAddress.setVersionNum(1);
-                    newAddress.setCreatedBy("User");
-                    newAddress.setCreationDate(LocalDateTime.now());
-                    newAddress.setLastModifiedBy("User");
-                    newAddress.setLastModifiedDate(LocalDateTime.now());
-                    updatedAddresses.add(newAddress);
+            Set<Long> addressIds = customer.getAddresses().stream().map(Address::getId).collect(Collectors.toSet());
+            for (var addressDTO : customerDTO.getAddresses()) {
+                if (addressDTO.getId() != null && !addressIds.contains(addressDTO.getId())) {
+                    throw new AddressException(String.format("No address found with %s id", addressDTO.getId()));
                 }
             }
-            addressRepository.saveAll(updatedAddresses);
-            customer.setAddresses(updatedAddresses);
         }
-        customerRepository.save(customer);
-        return customer;
     }
 
-    public Page<Customer> searchCustomers(String searchTerm, int page, int size) {
-        var pageable = PageRequest.of(page, size);
-        return customerRepository.searchCustomers(searchTerm, pageable);
+    private static CustomerIdentity prospectiveIdentity(Customer customer, CustomerDTO customerDTO) {
+        if (customerDTO == null) {
+            return CustomerIdentity.of(customer);
+        }
+        return new CustomerIdentity(
+                Objects.requireNonNullElse(customerDTO.getName(), customer.getName()),
+                Objects.requireNonNullElse(customerDTO.getLastname(), customer.getLastname()),
+                Objects.requireNonNullElse(customerDTO.getEmail(), customer.getEmail()),
+                Objects.requireNonNullElse(customerDTO.getPhoneNumber(), customer.getPhoneNumber()));
+    }
+
+    /**
+     * Changes the customer's fields and addresses in memory, without flushing. Addresses to delete are
+     * detached from the customer and added to {@code deleted} for {@link #deleteAddresses}.
+     */
+    private CustomerUpdateResponse applyUpdate(Customer customer, CustomerDTO customerDTO, List<Address> deleted) {
+        var response = new CustomerUpdateResponse();
+        response.setCustomerId(customer.getId());
+        List<String> changedFields = response.getChangedFields();
+        if (diff(customer.getName(), customerDTO.getName(), customer::setName)) {
+            changedFields.add("name");
+        }
+        if (diff(customer.getLastname(), customerDTO.getLastname(), customer::setLastname)) {
+            changedFields.add("lastname");
+        }
+        if (diff(customer.getPhoneNumber(), customerDTO.getPhoneNumber(), customer::setPhoneNumber)) {
+            changedFields.add("phoneNumber");
+        }
+        if (diff(customer.getEmail(), customerDTO.getEmail(), customer::setEmail)) {
+            changedFields.add("email");
+        }
+        if (customerDTO.getType() != null && diff(customer.getType(), CustomerType.valueOf(customerDTO.getType()), customer::setType)) {
+            changedFields.add("type");
+        }
+        if (customerDTO.getAddresses() != null) {
+            updateAddresses(customer, customerDTO.getAddresses(), response, deleted);
+        }
+
+        response.setChanged(!changedFields.isEmpty()
+                || !response.getInsertedAddresses().isEmpty()
+                || !response.getUpdatedAddresses().isEmpty()
+                || !response.getDeletedAddressIds().isEmpty());
+        return response;
+    }
+
+    private void updateAddresses(Customer customer, List<AddressDTO> requested, CustomerUpdateResponse response, List<Address> deleted) {
+        Map<Long, Address> unmatched = new LinkedHashMap<>();
+        customer.getAddresses().forEach(address -> unmatched.put(address.getId(), address));
+
+        List<AddressDTO> withoutId = new ArrayList<>();
+        for (var addressDTO : requested) {
+            if (addressDTO.getId() == null) {
+                withoutId.add(addressDTO);
+                continue;
+            }
+            var address = unmatched.remove(addressDTO.getId());
+            if (address == null) {
+                throw new AddressException(String.format("No address found with %s id", addressDTO.getId()));
+            }
+            boolean changed = diff(address.getStreet(), addressDTO.getStreet(), address::setStreet);
+            changed |= diff(address.getCity(), addressDTO.getCity(), address::setCity);
+            changed |= diff(address.getPostalCode(), addressDTO.getPostalCode(), address::setPostalCode);
+            if (changed) {
+                response.getUpdatedAddresses().add(addressDto(address));
+            }
+        }
+
+        List<Address> inserted = new ArrayList<>();
+        for (var addressDTO : withoutId) {
+            var same = unmatched.values().stream()
+                    .filter(address -> sameAddress(address, addressDTO))
+                    .findFirst();
+            if (same.isPresent()) {
+                unmatched.remove(same.get().getId());
+            } else {
+                inserted.add(newAddress(addressDTO, customer));
+            }
+        }
+
+        if (!unmatched.isEmpty()) {
+            deleted.addAll(unmatched.values());
+            customer.getAddresses().removeAll(unmatched.values());
+            response.getDeletedAddressIds().addAll(unmatched.keySet());
+        }
+        if (!inserted.isEmpty()) {
+            addressRepository.saveAll(inserted);
+            customer.getAddresses().addAll(inserted);
+            inserted.forEach(address -> response.getInsertedAddresses().add(addressDto(address)));
+        }
+    }
+
+    private void deleteAddresses(List<Address> deleted) {
+        if (!deleted.isEmpty()) {
+            // removed as entities, they are deleted in one JDBC batch at the flush, audited by Hibernate's
+            // events, and evicted from the second-level cache one by one; a bulk delete would drop whole regions
+            addressRepository.deleteAll(deleted);
+        }
+    }
+
+    private static <T> boolean diff(T current, T requested, Consumer<T> setter) {
+        if (requested == null || requested.equals(current)) {
+            return false;
+        }
+        setter.accept(requested);
+        return true;
+    }
+
+    private static boolean sameAddress(Address address, AddressDTO addressDTO) {
+        return Objects.equals(address.getStreet(), addressDTO.getStreet())
+                && Objects.equals(address.getCity(), addressDTO.getCity())
+                && Objects.equals(address.getPostalCode(), addressDTO.getPostalCode());
+    }
+
+    /** The customer with its addresses, as published in outbox events. */
+    static CustomerDTO customerDto(Customer customer) {
+        var dto = new CustomerDTO();
+        dto.setId(customer.getId());
+        dto.setName(customer.getName());
+        dto.setLastname(customer.getLastname());
+        dto.setPhoneNumber(customer.getPhoneNumber());
+        dto.setEmail(customer.getEmail());
+        dto.setType(customer.getType() == null ? null : customer.getType().toString());
+        dto.setAddresses(customer.getAddresses().stream().map(CustomerService::addressDto).collect(Collectors.toList()));
+        return dto;
+    }
+
+    private static AddressDTO addressDto(Address address) {
+        var dto = new AddressDTO();
+        dto.setId(address.getId());
+        dto.setStreet(address.getStreet());
+        dto.setCity(address.getCity());
+        dto.setPostalCode(address.getPostalCode());
+        return dto;
+    }
+
+    /**
+     * Flushes pending writes so that a concurrent insert of the same identity fails here on the unique
+     * fingerprint constraint, rather than at commit time as an untranslated error.
+     */
+    private void flushIdentity(String fingerprint) {
+        identityFilter.put(fingerprint);
+        try {
+            customerRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateIdentity(e)) {
+                throw e;
+            }
+            throw new DuplicateCustomerException("Customer with the same name, lastname, email and phone number already exists.", e);
+        }
+    }
+
+    /** Whether the unique identity fingerprint was violated, rather than a foreign key or a NOT NULL column. */
+    static boolean isDuplicateIdentity(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException violation) || violation.getConstraintName() == null) {
+            return false;
+        }
+        // H2 names the unique index behind the constraint: SCHEMA.<CONSTRAINT>_INDEX_<n>
+        var name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+        name = name.substring(name.lastIndexOf('.') + 1).replaceFirst("_index_\\d+$", "");
+        return Customer.IDENTITY_CONSTRAINT.equals(name);
+    }
+
+    /**
+     * Reads the customer's ETag from the version columns alone, and loads the customer only when it
+     * does not match {@code ifNoneMatch}.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = "customer.service", histogram = true)
+    public VersionedCustomer getCustomer(@CustomerShard Long id, String ifNoneMatch) {
+        try (var reading = readYourWritesWindow.reading(List.of(id))) {
+            var versions = customerRepository.findVersionRows(id);
+            if (versions.isEmpty()) {
+                throw new CustomerNotFoundException("Customer not found.");
+            }
+            var etag = CustomerETag.of(versions);
+            if (ifNoneMatch != null && CustomerETag.matches(ifNoneMatch, etag)) {
+                return new VersionedCustomer(etag, null);
+            }
+            var customers = customerReadModel.findAllInOrder(List.of(id));
+            if (customers.isEmpty()) {
+                throw new CustomerNotFoundException("Customer not found.");
+            }
+            return new VersionedCustomer(etag, customers.getFirst());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = "customer.service", histogram = true)
+    public Page<CustomerDTO> searchCustomers(String searchTerm, int page, int size) {
+        return searchResultCache.get(searchTerm, page, size, () -> {
+            var pageable = PageRequest.of(page, size);
+            Page<Long> customerIds = searchEngine.search(searchTerm, pageable);
+            return new PageImpl<>(customerReadModel.findAllInOrder(customerIds.getContent()), pageable, customerIds.getTotalElements());
+        });
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = "customer.service", histogram = true)
+    public Slice<CustomerDTO> searchCustomersAfter(String searchTerm, long afterId, int size) {
+        Slice<Long> customerIds = searchEngine.searchAfter(searchTerm, afterId, size);
+        return new SliceImpl<>(customerReadModel.findAllInOrder(customerIds.getContent()), customerIds.getPageable(), customerIds.hasNext());
+    }
+
+    public OptionalLong estimateSearchCount(String searchTerm) {
+        return searchEngine.estimateCount(searchTerm);
     }
 }
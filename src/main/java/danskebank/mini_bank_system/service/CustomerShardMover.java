@@ -0,0 +1,121 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Moves a customer, with its addresses, to the shard of the account it is reassigned to. The identity
+ * constraint only holds within a database, so with sharding a create first looks for the identity on the
+ * other shards. The rows are copied, keeping their ids, into the running transaction on the account's shard;
+ * after that commits, they are deleted from the old shard and the old account loses an owner. If that
+ * cleanup fails, the customer is left on both shards and the failure is logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class CustomerShardMover {
+    private final ShardRouter shardRouter;
+    private final CustomerRepository customerRepository;
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    record ShardedCustomer(int shard, Customer customer) {
+    }
+
+    /** The customer with this identity on a shard other than the bound one, with its addresses loaded. */
+    Optional<ShardedCustomer> findOnOtherShard(String fingerprint) {
+        if (!shardRouter.isSharded()) {
+            return Optional.empty();
+        }
+        int current = shardRouter.currentShard().orElse(0);
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return shardRouter.onEveryShard(shard -> shard == current ? Optional.<ShardedCustomer>empty()
+                        : readOnly.execute(status -> customerRepository.findByIdentityFingerprint(fingerprint)
+                                .map(customer -> {
+                                    customer.getAddresses().size();
+                                    return new ShardedCustomer(shard, customer);
+                                })))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    /** Copies the customer into {@code account}, on the bound shard, and returns it as a managed entity. */
+    Customer moveHere(ShardedCustomer found, Account account) {
+        var customer = found.customer();
+        long id = customer.getId();
+        Long previousAccountId = customer.getAccount() == null ? null : customer.getAccount().getId();
+        jdbcTemplate.update("""
+                INSERT INTO customer (id, version_num, created_by, creation_date, last_modified_by, last_modified_date,
+                                      name, lastname, phone_number, email, type, identity_fingerprint, account_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, id, customer.getVersionNum(), customer.getCreatedBy(), customer.getCreationDate(),
+                customer.getLastModifiedBy(), customer.getLastModifiedDate(), customer.getName(), customer.getLastname(),
+                customer.getPhoneNumber(), customer.getEmail(), customer.getType() == null ? null : customer.getType().name(),
+                customer.getIdentityFingerprint(), account.getId());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO address (id, version_num, created_by, creation_date, last_modified_by, last_modified_date,
+                                     street, city, postal_code, customer_id, account_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, customer.getAddresses(), customer.getAddresses().size(), (statement, address) -> {
+            statement.setLong(1, address.getId());
+            statement.setInt(2, address.getVersionNum());
+            statement.setObject(3, address.getCreatedBy());
+            statement.setObject(4, address.getCreationDate());
+            statement.setObject(5, address.getLastModifiedBy());
+            statement.setObject(6, address.getLastModifiedDate());
+            statement.setString(7, address.getStreet());
+            statement.setString(8, address.getCity());
+            statement.setString(9, address.getPostalCode());
+            statement.setLong(10, id);
+            statement.setLong(11, account.getId());
+        });
+        // the cached rows still name the old account
+        var cache = entityManagerFactory.getCache();
+        cache.evict(Customer.class, id);
+        customer.getAddresses().stream().map(Address::getId).forEach(addressId -> cache.evict(Address.class, addressId));
+
+        int to = shardRouter.currentShard().orElse(0);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shardRouter.customerFound(id, to);
+                removeFrom(found.shard(), id, previousAccountId);
+            }
+        });
+        return customerRepository.findById(id).orElseThrow();
+    }
+
+    private void removeFrom(int shard, long customerId, Long accountId) {
+        var transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            shardRouter.onShard(shard, () -> transaction.execute(status -> {
+                jdbcTemplate.update("DELETE FROM address WHERE customer_id = ?", customerId);
+                jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+                return accountId == null ? 0 : accountRepository.adjustNumberOfOwners(accountId, -1);
+            }));
+        } catch (RuntimeException e) {
+            log.error("Customer {} was moved off shard {}, but could not be deleted there", customerId, shard, e);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import danskebank.mini_bank_system.datasource.AccountShard;
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.entity.IdempotencyRecord;
+import danskebank.mini_bank_system.exception.IdempotencyConflictException;
+import danskebank.mini_bank_system.exception.IdempotencyException;
+import danskebank.mini_bank_system.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Replays the stored response of a request repeated with the same {@code Idempotency-Key}. The response is
+ * written to the {@code idempotency_record} table in the transaction of the request's own writes, so either
+ * both commit or neither does, and is replayed for {@code idempotency.ttl}, also after a restart or by
+ * another instance. Records live on the shard of the account the request writes to. A bounded in-memory
+ * index of keys and request hashes rejects a key reused for a different request without a query; bodies
+ * are only kept in the table. A duplicate arriving while the first request is running on this instance
+ * waits for its outcome. Only successful responses are stored; a failed request may be retried with the
+ * same key.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Cache<String, StoredKey> keys;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter replays;
+
+    record StoredKey(String requestHash, LocalDateTime expiresAt) {
+    }
+
+    record StoredResponse(String requestHash, int status, String body, LocalDateTime expiresAt) {
+    }
+
+    // a key loaded from the table expires with its record, not a full TTL after loading
+    private static class UntilExpiresAt implements Expiry<String, StoredKey> {
+        @Override
+        public long expireAfterCreate(String key, StoredKey stored, long currentTime) {
+            return Math.max(0, Duration.between(LocalDateTime.now(), stored.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, StoredKey stored, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, stored, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, StoredKey stored, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              ShardRouter shardRouter,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.max-size:100000}") long maxSize,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilExpiresAt())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, keys, "idempotency.keys");
+        this.replays = Counter.builder("idempotency.replays")
+                .description("Responses replayed for a repeated Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code action} once per {@code key}, in one transaction with the stored response, and answers with
+     * its result as JSON and {@code status}. A repeated key replays that response, or fails when
+     * {@code request} differs from the first one. {@code accountId} names the shard the action writes to.
+     */
+    public ResponseEntity<String> execute(@AccountShard Long accountId, String key, Object request, HttpStatus status,
+                                          Supplier<?> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyException(String.format("Idempotency-Key must be 1 to %d characters.", MAX_KEY_LENGTH));
+        }
+        var requestHash = hash(request);
+        var known = keys.getIfPresent(key);
+        if (known != null) {
+            checkRequest(known.requestHash(), requestHash);
+        }
+
+        var pending = new CompletableFuture<StoredResponse>();
+        var first = inFlight.putIfAbsent(key, pending);
+        if (first != null) {
+            return replay(await(first), requestHash);
+        }
+        try {
+            var stored = load(key);
+            if (stored == null) {
+                try {
+                    stored = transactionTemplate.execute(transaction -> {
+                        var response = new StoredResponse(requestHash, status.value(), toJson(action.get()), LocalDateTime.now().plus(ttl));
+                        idempotencyRecordRepository.save(new IdempotencyRecord(
+                                key, response.requestHash(), response.status(), response.body(), response.expiresAt()));
+                        return response;
+                    });
+                } catch (DataIntegrityViolationException e) {
+                    // another instance stored the key first, and this request's writes were rolled back with the record
+                    stored = load(key);
+                    if (stored == null) {
+                        throw e;
+                    }
+                    pending.complete(stored);
+                    return replay(stored, requestHash);
+                }
+                keys.put(key, new StoredKey(stored.requestHash(), stored.expiresAt()));
+                pending.complete(stored);
+                return response(stored).body(stored.body());
+            }
+            pending.complete(stored);
+            return replay(stored, requestHash);
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${idempotency.purge-interval:PT10M}", fixedDelayString = "${idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            int purged = shardRouter.onShard(shard, () -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency records", purged);
+            }
+        }
+    }
+
+    private StoredResponse load(String key) {
+        var record = idempotencyRecordRepository.findById(key).orElse(null);
+        if (record == null) {
+            return null;
+        }
+        if (!record.getExpiresAt().isAfter(LocalDateTime.now())) {
+            // not purged yet; remove it so the key can be stored again
+            idempotencyRecordRepository.delete(record);
+            keys.invalidate(key);
+            return null;
+        }
+        keys.put(key, new StoredKey(record.getRequestHash(), record.getExpiresAt()));
+        return new StoredResponse(record.getRequestHash(), record.getStatus(), record.getBody(), record.getExpiresAt());
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress.");
+        } catch (ExecutionException e) {
+            // the duplicate gets the same error as the request it waited for
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ResponseEntity<String> replay(StoredResponse stored, String requestHash) {
+        checkRequest(stored.requestHash(), requestHash);
+        replays.increment();
+        return response(stored).header(REPLAYED_HEADER, "true").body(stored.body());
+    }
+
+    private static void checkRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyException("Idempotency-Key was already used for a different request.");
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder response(StoredResponse stored) {
+        return ResponseEntity.status(stored.status()).contentType(MediaType.APPLICATION_JSON);
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(hash);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
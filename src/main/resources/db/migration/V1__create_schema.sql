@@ -0,0 +1,91 @@
+CREATE SEQUENCE account_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE customer_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE address_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE account (
+    id                 BIGINT       NOT NULL,
+    version_num        INTEGER      NOT NULL,
+    created_by         VARCHAR(255),
+    creation_date      TIMESTAMP(6),
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP(6),
+    number_of_owners   INTEGER      NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE customer (
+    id                   BIGINT       NOT NULL,
+    version_num          INTEGER      NOT NULL,
+    created_by           VARCHAR(255),
+    creation_date        TIMESTAMP(6),
+    last_modified_by     VARCHAR(255),
+    last_modified_date   TIMESTAMP(6),
+    name                 VARCHAR(255),
+    lastname             VARCHAR(255),
+    phone_number         VARCHAR(255),
+    email                VARCHAR(255),
+    type                 VARCHAR(255) CHECK (type IN ('PRIVATE', 'INDIVIDUAL', 'PUBLIC')),
+    identity_fingerprint VARCHAR(64)  NOT NULL,
+    account_id           BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_customer_identity_fingerprint UNIQUE (identity_fingerprint),
+    CONSTRAINT fk_customer_account FOREIGN KEY (account_id) REFERENCES account (id)
+);
+
+CREATE INDEX idx_customer_account_id ON customer (account_id);
+
+CREATE TABLE address (
+    id                 BIGINT       NOT NULL,
+    version_num        INTEGER      NOT NULL,
+    created_by         VARCHAR(255),
+    creation_date      TIMESTAMP(6),
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP(6),
+    street             VARCHAR(255),
+    city               VARCHAR(255),
+    postal_code        VARCHAR(255),
+    customer_id        BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_address_customer FOREIGN KEY (customer_id) REFERENCES customer (id)
+);
+
+CREATE TABLE audit_log (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    entity_type  VARCHAR(32)   NOT NULL,
+    entity_id    BIGINT        NOT NULL,
+    action       VARCHAR(8)    NOT NULL CHECK (action IN ('INSERT', 'UPDATE', 'DELETE')),
+    before_image VARCHAR(4000),
+    after_image  VARCHAR(4000),
+    changed_by   VARCHAR(255),
+    changed_at   TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_audit_log_entity ON audit_log (entity_type, entity_id);
+
+CREATE TABLE idempotency_record (
+    idempotency_key VARCHAR(128)  NOT NULL,
+    request_hash    VARCHAR(64)   NOT NULL,
+    status          INTEGER       NOT NULL,
+    body            VARCHAR(8000),
+    expires_at      TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_record_expires_at ON idempotency_record (expires_at);
+
+CREATE TABLE outbox_event (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    aggregate_type VARCHAR(32)    NOT NULL,
+    aggregate_id   BIGINT         NOT NULL,
+    event_type     VARCHAR(16)    NOT NULL CHECK (event_type IN ('CREATED', 'UPDATED')),
+    payload        VARCHAR(32600),
+    created_at     TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE outbox_offset (
+    subscriber    VARCHAR(64) NOT NULL,
+    last_event_id BIGINT      NOT NULL,
+    PRIMARY KEY (subscriber)
+);
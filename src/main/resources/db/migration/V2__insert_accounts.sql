@@ -1,4 +1,4 @@
 INSERT INTO account (id, version_num, created_by, creation_date, last_modified_by, last_modified_date, number_of_owners)
 VALUES
-    (1, 1, 'system', CURRENT_TIMESTAMP, 'system', CURRENT_TIMESTAMP, 2),
-    (2, 1, 'system', CURRENT_TIMESTAMP, 'system', CURRENT_TIMESTAMP, 1);
\ No newline at end of file
+    (1, 1, 'system', CURRENT_TIMESTAMP, 'system', CURRENT_TIMESTAMP, 0),
+    (2, 1, 'system', CURRENT_TIMESTAMP, 'system', CURRENT_TIMESTAMP, 0);
\ No newline at end of file
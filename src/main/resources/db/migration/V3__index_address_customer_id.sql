@@ -0,0 +1,3 @@
+-- address rows are always reached through their customer: the addresses collection, AddressRepository.findRowsByCustomerIdIn,
+-- and the customer-address joins of search, export and version lookups; id makes the index return them in id order
+CREATE INDEX idx_address_customer_id ON address (customer_id, id);
@@ -0,0 +1,5 @@
+-- every address carries its customer's account, the key that customer and address are partitioned and sharded by,
+-- so address queries can name the account and a partitioned address table only reads that account's partition
+ALTER TABLE address ADD COLUMN account_id BIGINT;
+
+UPDATE address SET account_id = (SELECT c.account_id FROM customer c WHERE c.id = address.customer_id);
@@ -0,0 +1,17 @@
+-- every instance delivers the events to its own subscribers and keeps its own offset; the purge goes by the lowest
+-- offset of the instances that stored one within the retention. Existing offsets are kept as instance '', where
+-- instances without an offset of their own resume from
+CREATE TABLE outbox_instance_offset (
+    subscriber    VARCHAR(64)  NOT NULL,
+    instance_id   VARCHAR(64)  NOT NULL,
+    last_event_id BIGINT       NOT NULL,
+    updated_at    TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (subscriber, instance_id)
+);
+
+INSERT INTO outbox_instance_offset (subscriber, instance_id, last_event_id, updated_at)
+SELECT subscriber, '', last_event_id, CURRENT_TIMESTAMP FROM outbox_offset;
+
+DROP TABLE outbox_offset;
+
+ALTER TABLE outbox_instance_offset RENAME TO outbox_offset;
@@ -0,0 +1,5 @@
+-- the customer-address joins match on account_id, so an address without one would drop out of search and export
+UPDATE address SET account_id = (SELECT c.account_id FROM customer c WHERE c.id = address.customer_id)
+WHERE account_id IS NULL;
+
+ALTER TABLE address ALTER COLUMN account_id SET NOT NULL;
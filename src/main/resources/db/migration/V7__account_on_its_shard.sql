@@ -0,0 +1,3 @@
+-- V2 seeds the same accounts into every shard; an account belongs only to shard account_id mod shards
+-- (a single database is shard 0 of 1, which keeps them all)
+DELETE FROM account WHERE MOD(id, ${shards}) <> ${shard};
@@ -0,0 +1,109 @@
+-- customer and address are hash-partitioned by account_id into ${partitions} partitions each, with matching
+-- bounds, so the planner can join them partition by partition and skips every partition but the account's
+-- when a query names it. A partitioned table's keys have to include account_id: the primary keys become
+-- (id, account_id), and the identity fingerprint, which must stay unique across accounts, moves to a
+-- customer_identity table that triggers keep in step with customer.
+ALTER TABLE address RENAME TO address_old;
+ALTER TABLE address_old RENAME CONSTRAINT address_pkey TO address_old_pkey;
+ALTER INDEX idx_address_customer_id RENAME TO idx_address_old_customer_id;
+ALTER TABLE customer RENAME TO customer_old;
+ALTER TABLE customer_old RENAME CONSTRAINT customer_pkey TO customer_old_pkey;
+ALTER TABLE customer_old RENAME CONSTRAINT uk_customer_identity_fingerprint TO uk_customer_old_identity_fingerprint;
+ALTER TABLE customer_old RENAME CONSTRAINT fk_customer_account TO fk_customer_old_account;
+ALTER INDEX idx_customer_account_id RENAME TO idx_customer_old_account_id;
+
+CREATE TABLE customer (
+    id                   BIGINT       NOT NULL,
+    version_num          INTEGER      NOT NULL,
+    created_by           VARCHAR(255),
+    creation_date        TIMESTAMP(6),
+    last_modified_by     VARCHAR(255),
+    last_modified_date   TIMESTAMP(6),
+    name                 VARCHAR(255),
+    lastname             VARCHAR(255),
+    phone_number         VARCHAR(255),
+    email                VARCHAR(255),
+    type                 VARCHAR(255) CHECK (type IN ('PRIVATE', 'INDIVIDUAL', 'PUBLIC')),
+    identity_fingerprint VARCHAR(64)  NOT NULL,
+    account_id           BIGINT       NOT NULL,
+    PRIMARY KEY (id, account_id),
+    CONSTRAINT fk_customer_account FOREIGN KEY (account_id) REFERENCES account (id)
+) PARTITION BY HASH (account_id);
+
+CREATE TABLE address (
+    id                 BIGINT       NOT NULL,
+    version_num        INTEGER      NOT NULL,
+    created_by         VARCHAR(255),
+    creation_date      TIMESTAMP(6),
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP(6),
+    street             VARCHAR(255),
+    city               VARCHAR(255),
+    postal_code        VARCHAR(255),
+    customer_id        BIGINT,
+    account_id         BIGINT       NOT NULL,
+    PRIMARY KEY (id, account_id),
+    -- a customer moving to another account takes its addresses along; deferred, because Hibernate may
+    -- write the customer and its addresses in either order within the transaction
+    CONSTRAINT fk_address_customer FOREIGN KEY (customer_id, account_id) REFERENCES customer (id, account_id)
+        ON UPDATE CASCADE DEFERRABLE INITIALLY DEFERRED
+) PARTITION BY HASH (account_id);
+
+DO $$
+BEGIN
+    FOR remainder IN 0..${partitions} - 1 LOOP
+        EXECUTE format('CREATE TABLE customer_p%s PARTITION OF customer FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       remainder, ${partitions}, remainder);
+        EXECUTE format('CREATE TABLE address_p%s PARTITION OF address FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       remainder, ${partitions}, remainder);
+    END LOOP;
+END
+$$;
+
+CREATE INDEX idx_customer_account_id ON customer (account_id);
+CREATE INDEX idx_address_customer_id ON address (customer_id, id);
+
+INSERT INTO customer (id, version_num, created_by, creation_date, last_modified_by, last_modified_date, name, lastname,
+                      phone_number, email, type, identity_fingerprint, account_id)
+SELECT id, version_num, created_by, creation_date, last_modified_by, last_modified_date, name, lastname,
+       phone_number, email, type, identity_fingerprint, account_id
+FROM customer_old;
+
+INSERT INTO address (id, version_num, created_by, creation_date, last_modified_by, last_modified_date, street, city,
+                     postal_code, customer_id, account_id)
+SELECT id, version_num, created_by, creation_date, last_modified_by, last_modified_date, street, city,
+       postal_code, customer_id, account_id
+FROM address_old;
+
+CREATE TABLE customer_identity (
+    identity_fingerprint VARCHAR(64) NOT NULL,
+    customer_id          BIGINT      NOT NULL,
+    CONSTRAINT uk_customer_identity_fingerprint PRIMARY KEY (identity_fingerprint)
+);
+
+INSERT INTO customer_identity (identity_fingerprint, customer_id)
+SELECT identity_fingerprint, id FROM customer;
+
+CREATE FUNCTION maintain_customer_identity() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM customer_identity WHERE identity_fingerprint = OLD.identity_fingerprint;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO customer_identity (identity_fingerprint, customer_id) VALUES (NEW.identity_fingerprint, NEW.id);
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_identity_insert_delete
+    AFTER INSERT OR DELETE ON customer
+    FOR EACH ROW EXECUTE FUNCTION maintain_customer_identity();
+
+CREATE TRIGGER customer_identity_update
+    AFTER UPDATE OF identity_fingerprint ON customer
+    FOR EACH ROW WHEN (OLD.identity_fingerprint IS DISTINCT FROM NEW.identity_fingerprint)
+    EXECUTE FUNCTION maintain_customer_identity();
+
+DROP TABLE address_old;
+DROP TABLE customer_old;
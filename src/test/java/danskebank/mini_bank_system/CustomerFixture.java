@@ -0,0 +1,91 @@
+package danskebank.mini_bank_system;
+
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the {@link CustomerDTO} a test creates a customer from. Unset fields get defaults: the email is
+ * derived from the name and the customer has one address in Scranton. Tests that share a database and
+ * create the same person more than once use {@link #uniqueName()}, as a repeated identity is reassigned
+ * rather than created.
+ */
+public final class CustomerFixture {
+    private final String name;
+    private String suffix = "";
+    private String lastname = "Beesly";
+    private String email;
+    private String phoneNumber = "1234567890";
+    private String type = "PRIVATE";
+    private List<AddressDTO> addresses;
+
+    private CustomerFixture(String name) {
+        this.name = name;
+    }
+
+    public static CustomerFixture customer(String name) {
+        return new CustomerFixture(name);
+    }
+
+    public static AddressDTO address(String street, String city, String postalCode) {
+        return address(null, street, city, postalCode);
+    }
+
+    public static AddressDTO address(Long id, String street, String city, String postalCode) {
+        var address = new AddressDTO();
+        address.setId(id);
+        address.setStreet(street);
+        address.setCity(city);
+        address.setPostalCode(postalCode);
+        return address;
+    }
+
+    public CustomerFixture lastname(String lastname) {
+        this.lastname = lastname;
+        return this;
+    }
+
+    public CustomerFixture email(String email) {
+        this.email = email;
+        return this;
+    }
+
+    public CustomerFixture phoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+        return this;
+    }
+
+    public CustomerFixture type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    /** Appends the current nano time to the name, but not to the email derived from it. */
+    public CustomerFixture uniqueName() {
+        this.suffix = String.valueOf(System.nanoTime());
+        return this;
+    }
+
+    /** The one address, in {@code city}, instead of the default. */
+    public CustomerFixture city(String city) {
+        return addresses(address("1725 Slough Avenue", city, "18505"));
+    }
+
+    public CustomerFixture addresses(AddressDTO... addresses) {
+        this.addresses = new ArrayList<>(List.of(addresses));
+        return this;
+    }
+
+    public CustomerDTO build() {
+        var customer = new CustomerDTO();
+        customer.setName(name + suffix);
+        customer.setLastname(lastname);
+        customer.setEmail(email == null ? name.toLowerCase() + "@example.com" : email);
+        customer.setPhoneNumber(phoneNumber);
+        customer.setType(type);
+        customer.setAddresses(addresses == null ? new ArrayList<>(List.of(address("1725 Slough Avenue", "Scranton", "18505"))) : addresses);
+        return customer;
+    }
+}
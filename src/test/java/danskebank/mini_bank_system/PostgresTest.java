@@ -0,0 +1,43 @@
+package danskebank.mini_bank_system;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A test against the PostgreSQL database of {@code postgres.url}, by default the one in docker-compose.yaml.
+ * Such tests only run with {@code mvn test -Ppostgres}. The test owns the {@code postgres_test} schema:
+ * it is cleaned and migrated again when the context starts.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("postgres")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${postgres.url:jdbc:postgresql://localhost:5432/mydatabase}",
+        "spring.datasource.username=${postgres.username:myuser}",
+        "spring.datasource.password=${postgres.password:mypassword}",
+        "spring.datasource.hikari.schema=postgres_test",
+        "spring.flyway.default-schema=postgres_test",
+        "spring.flyway.clean-disabled=false"
+})
+@Import(PostgresTest.CleanMigration.class)
+public @interface PostgresTest {
+    @TestConfiguration
+    class CleanMigration {
+        @Bean
+        FlywayMigrationStrategy cleanMigration() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package danskebank.mini_bank_system.admission;
+
+import danskebank.mini_bank_system.exception.AdmissionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+class AdmissionControlTest {
+    private MeterRegistry meterRegistry;
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var environment = new MockEnvironment()
+                .withProperty("admission.capacity", "4")
+                .withProperty("admission.reserved-for-writes", "2")
+                .withProperty("admission.retry-after", "3s")
+                .withProperty("admission.endpoints.create.initial-limit", "1");
+        admissionControl = new AdmissionControl(meterRegistry, environment);
+    }
+
+    @Test
+    void acquire_ShouldShedReads_BeforeCapacityReservedForWrites() {
+        admissionControl.acquire("search", Priority.READ);
+        admissionControl.acquire("search", Priority.READ);
+
+        var exception = Assertions.assertThrows(AdmissionException.class, () -> admissionControl.acquire("search", Priority.READ));
+        Assertions.assertEquals(3, exception.getRetryAfterSeconds());
+        Assertions.assertNotNull(admissionControl.acquire("update", Priority.WRITE));
+        Assertions.assertNotNull(admissionControl.acquire("update", Priority.WRITE));
+        Assertions.assertThrows(AdmissionException.class, () -> admissionControl.acquire("update", Priority.WRITE));
+
+        Assertions.assertEquals(1, meterRegistry.get("admission.rejected").tag("endpoint", "search").tag("reason", "capacity").counter().count());
+        Assertions.assertEquals(4, meterRegistry.get("admission.capacity.in.flight").gauge().value());
+    }
+
+    @Test
+    void acquire_ShouldApplyEndpointLimit_AndReturnSharedCapacityOnRejection() {
+        var permit = admissionControl.acquire("create", Priority.WRITE);
+
+        Assertions.assertThrows(AdmissionException.class, () -> admissionControl.acquire("create", Priority.WRITE));
+        Assertions.assertEquals(1, meterRegistry.get("admission.capacity.in.flight").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("admission.limit").tag("endpoint", "create").gauge().value());
+
+        permit.release(false);
+        Assertions.assertEquals(0, meterRegistry.get("admission.in.flight").tag("endpoint", "create").gauge().value());
+        Assertions.assertNotNull(admissionControl.acquire("create", Priority.WRITE));
+    }
+}
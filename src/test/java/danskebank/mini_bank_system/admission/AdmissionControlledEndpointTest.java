@@ -0,0 +1,48 @@
+package danskebank.mini_bank_system.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// all capacity is reserved for writes, so every search is shed
+@SpringBootTest(properties = {
+        "admission.capacity=2",
+        "admission.reserved-for-writes=2",
+        "admission.retry-after=5s"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class AdmissionControlledEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void search_ShouldReturnServiceUnavailableWithRetryAfter_WhenShed() throws Exception {
+        mockMvc.perform(get("/customers/search").param("searchTerm", "vilnius").param("page", "0").param("size", "10"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                .andExpect(jsonPath("$.message").value("Too many concurrent search requests, retry later."));
+    }
+
+    @Test
+    void createCustomer_ShouldBeAdmitted_FromCapacityReservedForWrites() throws Exception {
+        mockMvc.perform(post("/customers/create/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"Darryl","lastname":"Philbin","phoneNumber":"1234567890","email":"darryl@example.com",
+                                 "type":"PRIVATE","addresses":[]}
+                                """))
+                .andExpect(status().isCreated());
+    }
+}
@@ -0,0 +1,68 @@
+package danskebank.mini_bank_system.admission;
+
+import danskebank.mini_bank_system.controller.CustomerController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Arrays;
+
+class AdmissionInterceptorTest {
+    private MeterRegistry meterRegistry;
+    private AdmissionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new AdmissionInterceptor(new AdmissionControl(meterRegistry, new MockEnvironment()));
+    }
+
+    @Test
+    void export_ShouldHoldOnePermit_UntilTheAsyncDispatchCompletes() throws Exception {
+        var handler = handler("exportCustomers");
+        var request = new MockHttpServletRequest("GET", "/customers/export");
+        var response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        Assertions.assertEquals(1, inFlight("export"));
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(request, response, handler);
+        Assertions.assertEquals(1, inFlight("export"));
+        interceptor.afterCompletion(request, response, handler, null);
+        Assertions.assertEquals(0, inFlight("export"));
+        Assertions.assertEquals(0, meterRegistry.get("admission.capacity.in.flight").gauge().value());
+    }
+
+    @Test
+    void streamingEndpoints_ShouldBeAdmissionControlled() throws Exception {
+        for (var method : new String[]{"importCustomersNdjson", "importCustomersCsv", "updateCustomers", "exportCustomers"}) {
+            var request = new MockHttpServletRequest();
+            interceptor.preHandle(request, new MockHttpServletResponse(), handler(method));
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), handler(method), null);
+        }
+
+        Assertions.assertNotNull(meterRegistry.find("admission.limit").tag("endpoint", "import").gauge());
+        Assertions.assertNotNull(meterRegistry.find("admission.limit").tag("endpoint", "batch").gauge());
+        Assertions.assertNotNull(meterRegistry.find("admission.limit").tag("endpoint", "export").gauge());
+    }
+
+    private double inFlight(String endpoint) {
+        return meterRegistry.get("admission.in.flight").tag("endpoint", endpoint).gauge().value();
+    }
+
+    private static HandlerMethod handler(String name) {
+        var method = Arrays.stream(CustomerController.class.getMethods())
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        return new HandlerMethod(new Object(), method);
+    }
+}
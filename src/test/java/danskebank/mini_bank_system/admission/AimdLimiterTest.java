@@ -0,0 +1,62 @@
+package danskebank.mini_bank_system.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class AimdLimiterTest {
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void tryAcquire_ShouldRejectAtLimit() {
+        var limiter = new AimdLimiter(2, 1, 10, THRESHOLD, 0.5);
+
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertFalse(limiter.tryAcquire());
+
+        limiter.release(FAST, false);
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void release_ShouldGrowLimitAdditively_WhenFastAndBusy() {
+        var limiter = new AimdLimiter(4, 1, 5, THRESHOLD, 0.5);
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+
+        limiter.release(FAST, false);
+        Assertions.assertEquals(5, limiter.getLimit());
+        limiter.release(FAST, false);
+        Assertions.assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void release_ShouldKeepLimit_WhenFastButMostlyIdle() {
+        var limiter = new AimdLimiter(10, 1, 20, THRESHOLD, 0.5);
+        limiter.tryAcquire();
+
+        limiter.release(FAST, false);
+
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void release_ShouldShrinkLimitMultiplicatively_WhenSlowOrFailed() {
+        var limiter = new AimdLimiter(8, 3, 20, THRESHOLD, 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        Assertions.assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        Assertions.assertEquals(3, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,114 @@
+package danskebank.mini_bank_system.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+@ExtendWith(MockitoExtension.class)
+class AuditQueueTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void publish_ShouldWriteOnCallerThread_WhenWriterIsNotRunning() {
+        var auditQueue = new AuditQueue(jdbcTemplate, new ObjectMapper(), meterRegistry, 10, 10, 0);
+
+        auditQueue.publish(event(1L));
+
+        verifyWritten(List.of(event(1L)));
+    }
+
+    @Test
+    void publish_ShouldFallBackToCallerThread_WhenQueueIsFull() throws InterruptedException {
+        var auditQueue = new AuditQueue(jdbcTemplate, new ObjectMapper(), meterRegistry, 1, 10, 0);
+        // block the writer inside its first batch so that the queue stays full
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Mockito.when(jdbcTemplate.batchUpdate(Mockito.eq(AuditQueue.INSERT_SQL), Mockito.<List<AuditEvent>>any(),
+                        Mockito.anyInt(), Mockito.<ParameterizedPreparedStatementSetter<AuditEvent>>any()))
+                .thenAnswer(invocation -> {
+                    if (Thread.currentThread().getName().equals("audit-writer")) {
+                        writing.countDown();
+                        release.await();
+                    }
+                    return new int[0][];
+                });
+        auditQueue.start();
+
+        auditQueue.publish(event(1L));
+        writing.await();
+        auditQueue.publish(event(2L));
+        auditQueue.publish(event(3L));
+
+        Assertions.assertEquals(1, meterRegistry.get("audit.events.overflow").counter().count());
+        release.countDown();
+        auditQueue.stop();
+        Mockito.verify(jdbcTemplate, Mockito.times(3)).batchUpdate(Mockito.eq(AuditQueue.INSERT_SQL),
+                Mockito.<List<AuditEvent>>any(), Mockito.anyInt(), Mockito.<ParameterizedPreparedStatementSetter<AuditEvent>>any());
+    }
+
+    @Test
+    void stop_ShouldDoNothing_WhenNeverStarted() {
+        var auditQueue = new AuditQueue(jdbcTemplate, new ObjectMapper(), meterRegistry, 10, 10, 0);
+
+        Assertions.assertDoesNotThrow(() -> auditQueue.stop());
+        Assertions.assertFalse(auditQueue.isRunning());
+    }
+
+    @Test
+    void getPhase_ShouldBeBelowTheWebServersPhase() {
+        var auditQueue = new AuditQueue(jdbcTemplate, new ObjectMapper(), meterRegistry, 10, 10, 0);
+
+        // the web server starts and stops in SMART_LIFECYCLE_PHASE - 1024
+        Assertions.assertTrue(auditQueue.getPhase() < WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1024);
+    }
+
+    @Test
+    void write_ShouldRetryAndThenDropBatch_WhenDatabaseKeepsFailing() {
+        var auditQueue = new AuditQueue(jdbcTemplate, new ObjectMapper(), meterRegistry, 10, 10, 0);
+        Mockito.when(jdbcTemplate.batchUpdate(Mockito.eq(AuditQueue.INSERT_SQL), Mockito.<List<AuditEvent>>any(),
+                        Mockito.anyInt(), Mockito.<ParameterizedPreparedStatementSetter<AuditEvent>>any()))
+                .thenThrow(new DataAccessResourceFailureException("database is down"));
+
+        auditQueue.write(List.of(event(1L)));
+
+        Mockito.verify(jdbcTemplate, Mockito.times(AuditQueue.MAX_ATTEMPTS)).batchUpdate(Mockito.eq(AuditQueue.INSERT_SQL),
+                Mockito.<List<AuditEvent>>any(), Mockito.anyInt(), Mockito.<ParameterizedPreparedStatementSetter<AuditEvent>>any());
+    }
+
+    private void verifyWritten(List<AuditEvent> events) {
+        ArgumentCaptor<List<AuditEvent>> written = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate).batchUpdate(Mockito.eq(AuditQueue.INSERT_SQL), written.capture(),
+                Mockito.eq(events.size()), Mockito.<ParameterizedPreparedStatementSetter<AuditEvent>>any());
+        Assertions.assertEquals(events, written.getValue());
+    }
+
+    private AuditEvent event(Long id) {
+        return new AuditEvent("Customer", id, AuditAction.INSERT, null, Map.of("name", "John"), "User",
+                LocalDateTime.of(2024, 1, 1, 0, 0));
+    }
+}
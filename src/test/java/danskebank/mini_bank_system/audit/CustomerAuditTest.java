@@ -0,0 +1,71 @@
+package danskebank.mini_bank_system.audit;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class CustomerAuditTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void customerChanges_ShouldBeWrittenToAuditLog_WithBeforeAndAfterImages() throws InterruptedException {
+        var customer = customerService.createCustomer(1L, createCustomerDTO("kevin@example.com",
+                address("1 Gedimino"), address("2 Pilies")));
+        var update = new CustomerDTO();
+        update.setEmail("kevin.malone@example.com");
+        update.setAddresses(List.of(address("1 Gedimino")));
+        customerService.updateCustomer(customer.getId(), update);
+
+        var rows = awaitAuditRows(customer.getId(), 5);
+
+        Assertions.assertEquals(List.of("Customer INSERT", "Address INSERT", "Address INSERT", "Customer UPDATE", "Address DELETE"),
+                rows.stream().map(row -> row.get("entity_type") + " " + row.get("action")).toList());
+        var customerUpdate = rows.get(3);
+        Assertions.assertTrue(customerUpdate.get("before_image").toString().contains("\"email\":\"kevin@example.com\""));
+        Assertions.assertTrue(customerUpdate.get("after_image").toString().contains("\"email\":\"kevin.malone@example.com\""));
+        Assertions.assertEquals("User", customerUpdate.get("changed_by"));
+        Assertions.assertNull(rows.get(4).get("after_image"));
+        Assertions.assertTrue(rows.get(4).get("before_image").toString().contains("\"street\":\"2 Pilies\""));
+    }
+
+    private List<Map<String, Object>> awaitAuditRows(Long customerId, int expected) throws InterruptedException {
+        var sql = """
+                SELECT l.* FROM audit_log l
+                WHERE (l.entity_type = 'Customer' AND l.entity_id = ?)
+                   OR (l.entity_type = 'Address' AND (l.before_image LIKE ? OR l.after_image LIKE ?))
+                ORDER BY l.id
+                """;
+        var customerReference = "%\"customer\":" + customerId + "%";
+        List<Map<String, Object>> rows = List.of();
+        for (int i = 0; i < 50 && rows.size() < expected; i++) {
+            Thread.sleep(100);
+            rows = jdbcTemplate.queryForList(sql, customerId, customerReference, customerReference);
+        }
+        return rows;
+    }
+
+    private CustomerDTO createCustomerDTO(String email, AddressDTO... addresses) {
+        return CustomerFixture.customer("Kevin").lastname("Malone").email(email).addresses(addresses).build();
+    }
+
+    private AddressDTO address(String street) {
+        return CustomerFixture.address(street, "Vilnius", "12345");
+    }
+}
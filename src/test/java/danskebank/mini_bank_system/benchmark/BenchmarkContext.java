@@ -0,0 +1,129 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.MiniBankSystemApplication;
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Boots the application against a private in-memory H2 database and seeds synthetic customers.
+ */
+public final class BenchmarkContext {
+    static final String[] NAMES = {"Michael", "Dwight", "Jim", "Pam", "Angela", "Oscar", "Kevin", "Stanley"};
+    static final String[] LASTNAMES = {"Scott", "Schrute", "Halpert", "Beesly", "Martin", "Martinez", "Malone", "Hudson"};
+    static final String[] CITIES = {"Vilnius", "Kaunas", "Klaipeda", "Siauliai", "Panevezys", "Alytus", "Druskininkai"};
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        return start(properties, Duration.ZERO);
+    }
+
+    /**
+     * Starts the application with {@code databaseLatency} added to every statement execution and
+     * commit, to stand in for the network round trip to a real database server.
+     */
+    public static ConfigurableApplicationContext start(Map<String, Object> properties, Duration databaseLatency) {
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("server.port", "0");
+        defaults.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        defaults.put("spring.datasource.driverClassName", "org.h2.Driver");
+        defaults.put("spring.datasource.username", "sa");
+        defaults.put("spring.datasource.password", "");
+        defaults.put("spring.jpa.show-sql", "false");
+        defaults.put("logging.level.root", "WARN");
+        defaults.putAll(properties);
+        String[] args = defaults.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        var builder = new SpringApplicationBuilder(MiniBankSystemApplication.class);
+        if (!databaseLatency.isZero()) {
+            builder.initializers(context -> context.getBeanFactory()
+                    .addBeanPostProcessor(new LatencyDataSourcePostProcessor(databaseLatency)));
+        }
+        return builder.run(args);
+    }
+
+    public static void seed(ConfigurableApplicationContext context, int customers) {
+        var accountRepository = context.getBean(AccountRepository.class);
+        var customerRepository = context.getBean(CustomerRepository.class);
+        Account account = accountRepository.findById(1L).orElseThrow();
+        List<Customer> batch = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            batch.add(customer(account, i));
+            if (batch.size() == 1000) {
+                customerRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        customerRepository.saveAll(batch);
+    }
+
+    /**
+     * Seeds {@code customers} spread round-robin over {@code accounts} accounts, creating the accounts
+     * the migrations did not, and keeps each account's owner count in step.
+     */
+    public static void seed(ConfigurableApplicationContext context, int accounts, int customers) {
+        var accountRepository = context.getBean(AccountRepository.class);
+        var customerRepository = context.getBean(CustomerRepository.class);
+        // the migrations insert accounts with fixed ids that account_seq does not know about, so further ones get theirs here
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        long existing = accountRepository.count();
+        long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM account", Long.class);
+        for (long i = existing; i < accounts; i++) {
+            jdbcTemplate.update("INSERT INTO account (id, version_num, number_of_owners) VALUES (?, 0, 0)", nextId++);
+        }
+        List<Account> owners = accountRepository.findAll(Sort.by("id")).subList(0, accounts);
+        int[] added = new int[accounts];
+        List<Customer> batch = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            batch.add(customer(owners.get(i % accounts), i));
+            added[i % accounts]++;
+            if (batch.size() == 1000) {
+                customerRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        customerRepository.saveAll(batch);
+        var transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        for (int i = 0; i < accounts; i++) {
+            long id = owners.get(i).getId();
+            int delta = added[i];
+            transactionTemplate.executeWithoutResult(status -> accountRepository.adjustNumberOfOwners(id, delta));
+        }
+    }
+
+    static Customer customer(Account account, int i) {
+        var customer = new Customer();
+        customer.setName(NAMES[i % NAMES.length]);
+        customer.setLastname(LASTNAMES[(i / NAMES.length) % LASTNAMES.length] + i);
+        customer.setEmail("customer" + i + "@example.com");
+        customer.setPhoneNumber(String.format("370%08d", i));
+        customer.setType(CustomerType.values()[i % CustomerType.values().length]);
+        customer.setAccount(account);
+        var address = new Address();
+        address.setStreet(i + " Gedimino Avenue");
+        address.setCity(CITIES[i % CITIES.length]);
+        address.setPostalCode(String.format("%05d", i % 100000));
+        address.setCustomer(customer);
+        customer.setAddresses(new ArrayList<>(List.of(address)));
+        return customer;
+    }
+}
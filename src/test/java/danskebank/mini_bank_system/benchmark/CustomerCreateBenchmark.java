@@ -0,0 +1,80 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates customers on one hot account, with and without the second-level cache.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=CustomerCreateBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerCreateBenchmark {
+
+    @Param({"1000"})
+    private int customers;
+
+    @Param({"true", "false"})
+    private boolean secondLevelCache;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", secondLevelCache,
+                "spring.jpa.properties.hibernate.cache.use_query_cache", secondLevelCache));
+        BenchmarkContext.seed(context, customers);
+        customerService = context.getBean(CustomerService.class);
+        next = customers;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Customer createOnHotAccount() {
+        int i = next++;
+        var addressDTO = new AddressDTO();
+        addressDTO.setStreet(i + " Gedimino Avenue");
+        addressDTO.setCity("Vilnius");
+        addressDTO.setPostalCode("01103");
+
+        var customerDTO = new CustomerDTO();
+        customerDTO.setName("Created");
+        customerDTO.setLastname("Customer" + i);
+        customerDTO.setEmail("created" + i + "@example.com");
+        customerDTO.setPhoneNumber(String.format("370%08d", i));
+        customerDTO.setType("PRIVATE");
+        customerDTO.setAddresses(List.of(addressDTO));
+        return customerService.createCustomer(1L, customerDTO);
+    }
+}
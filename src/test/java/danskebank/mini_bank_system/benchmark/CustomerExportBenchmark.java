@@ -0,0 +1,60 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.service.CustomerExportService;
+import danskebank.mini_bank_system.service.CustomerExportService.ExportFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports every seeded customer to a discarding stream. Run with {@code -prof gc} to see that the allocation
+ * rate scales with the export while the heap after GC does not:
+ * {@code mvn -Pbenchmark test -Dbenchmark.args="CustomerExportBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class CustomerExportBenchmark {
+
+    @Param({"10000", "100000"})
+    private int customers;
+
+    private ConfigurableApplicationContext context;
+    private CustomerExportService customerExportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        BenchmarkContext.seed(context, customers);
+        customerExportService = context.getBean(CustomerExportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long exportAll() throws IOException {
+        return customerExportService.export(null, ExportFormat.NDJSON, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,68 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.service.CustomerReadModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds result pages through {@link CustomerReadModel}, the projection queries and DTO mapping that
+ * serve search and export, against a seeded H2 database. Pages walk through the seeded ids.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=CustomerReadModelBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerReadModelBenchmark {
+
+    @Param({"10000"})
+    private int customers;
+
+    @Param({"20", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private CustomerReadModel readModel;
+    private List<Long> customerIds;
+    private int nextPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        BenchmarkContext.seed(context, customers);
+        readModel = context.getBean(CustomerReadModel.class);
+        customerIds = context.getBean(JdbcTemplate.class).queryForList("SELECT id FROM customer ORDER BY id", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CustomerDTO> findAllInOrder() {
+        int pages = Math.max(1, customerIds.size() / pageSize);
+        int from = (nextPage++ % pages) * pageSize;
+        return readModel.findAllInOrder(customerIds.subList(from, Math.min(customerIds.size(), from + pageSize)));
+    }
+}
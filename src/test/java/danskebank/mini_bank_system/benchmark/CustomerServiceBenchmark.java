@@ -0,0 +1,104 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerUpdateResponse;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the {@link CustomerService} create, update and search paths against a seeded H2 database.
+ * Data volume is set with {@code -p customers=...}.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=CustomerServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    private int customers;
+
+    @Param({"vilnius"})
+    private String searchTerm;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private List<long[]> customerAddressIds;
+    private int nextCreate;
+    private int nextUpdate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        BenchmarkContext.seed(context, customers);
+        customerService = context.getBean(CustomerService.class);
+        customerAddressIds = context.getBean(JdbcTemplate.class).query(
+                "SELECT customer_id, id FROM address ORDER BY customer_id",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        nextCreate = customers;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Customer createCustomer() {
+        int i = nextCreate++;
+        return customerService.createCustomer(2L, customerDTO(i, "created" + i + "@example.com", null));
+    }
+
+    @Benchmark
+    public CustomerUpdateResponse updateCustomer() {
+        int n = nextUpdate++;
+        long[] ids = customerAddressIds.get(n % customerAddressIds.size());
+        return customerService.updateCustomer(ids[0], customerDTO(n, "updated" + n + "@example.com", ids[1]));
+    }
+
+    @Benchmark
+    public Page<CustomerDTO> searchCustomers() {
+        return customerService.searchCustomers(searchTerm, 0, 20);
+    }
+
+    private static CustomerDTO customerDTO(int i, String email, Long addressId) {
+        var addressDTO = new AddressDTO();
+        addressDTO.setId(addressId);
+        addressDTO.setStreet(i + " Gedimino Avenue");
+        addressDTO.setCity("Vilnius");
+        addressDTO.setPostalCode("01103");
+
+        var customerDTO = new CustomerDTO();
+        customerDTO.setName("Customer");
+        customerDTO.setLastname("Lastname" + i);
+        customerDTO.setEmail(email);
+        customerDTO.setPhoneNumber(String.format("370%08d", i));
+        customerDTO.setType("PRIVATE");
+        customerDTO.setAddresses(List.of(addressDTO));
+        return customerDTO;
+    }
+}
@@ -0,0 +1,71 @@
+package danskebank.mini_bank_system.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Wraps the application's data source so that statement executions and commits block for a fixed
+ * time, the way they would while waiting on a remote database.
+ */
+class LatencyDataSourcePostProcessor implements BeanPostProcessor {
+    private final Duration latency;
+
+    LatencyDataSourcePostProcessor(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, result, name) ->
+                    result instanceof Connection connection ? proxy(Connection.class, connection, this::connectionResult) : result);
+        }
+        return bean;
+    }
+
+    private Object connectionResult(Object target, Object result, String method) throws InterruptedException {
+        if ("commit".equals(method)) {
+            Thread.sleep(latency);
+        }
+        if (result instanceof Statement statement) {
+            return proxy(statementType(statement), statement, (statementTarget, statementResult, statementMethod) -> {
+                if (statementMethod.startsWith("execute")) {
+                    Thread.sleep(latency);
+                }
+                return statementResult;
+            });
+        }
+        return result;
+    }
+
+    private static Class<? extends Statement> statementType(Statement statement) {
+        if (statement instanceof java.sql.CallableStatement) {
+            return java.sql.CallableStatement.class;
+        }
+        return statement instanceof java.sql.PreparedStatement ? java.sql.PreparedStatement.class : Statement.class;
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler {
+        Object handle(Object target, Object result, String method) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<? extends T> type, T target, ResultHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            try {
+                return handler.handle(target, method.invoke(target, args), method.getName());
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(LatencyDataSourcePostProcessor.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+}
@@ -0,0 +1,106 @@
+package danskebank.mini_bank_system.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerSearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes and parses a search response page as JSON, CBOR and Smile, with mappers configured like the
+ * application's. Time per operation is the benchmark score; the encoded size of the page and the bytes
+ * per customer are printed at the start of each trial.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=ResponseEncodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"20", "1000"})
+    private int customers;
+
+    private ObjectMapper objectMapper;
+    private CustomerSearchResponse response;
+    private byte[] encoded;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var json = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper = switch (format) {
+            case "cbor" -> json.copyWith(new CBORFactory());
+            case "smile" -> json.copyWith(new SmileFactory());
+            default -> json;
+        };
+        List<CustomerDTO> page = new ArrayList<>(customers);
+        for (int i = 0; i < customers; i++) {
+            page.add(customer(i));
+        }
+        response = new CustomerSearchResponse();
+        response.setTotalCount((long) customers * 10);
+        response.setCustomers(page);
+        encoded = objectMapper.writeValueAsBytes(response);
+        System.out.printf("%n%s: %d bytes for %d customers, %.1f bytes per customer%n",
+                format, encoded.length, customers, (double) encoded.length / customers);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        buffer.reset();
+        objectMapper.writeValue(buffer, response);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public CustomerSearchResponse deserialize() throws IOException {
+        return objectMapper.readValue(encoded, CustomerSearchResponse.class);
+    }
+
+    private static CustomerDTO customer(int i) {
+        var customer = new CustomerDTO();
+        customer.setId(100_000L + i);
+        customer.setName("Customer" + i);
+        customer.setLastname("Lastname" + i);
+        customer.setEmail("customer" + i + "@example.com");
+        customer.setPhoneNumber(String.format("370%08d", i));
+        customer.setType(i % 2 == 0 ? "PRIVATE" : "PUBLIC");
+        List<AddressDTO> addresses = new ArrayList<>(2);
+        for (int j = 0; j < 2; j++) {
+            var address = new AddressDTO();
+            address.setId(200_000L + i * 2L + j);
+            address.setStreet(j + " Gedimino Avenue");
+            address.setCity("Vilnius");
+            address.setPostalCode("01103");
+            addresses.add(address);
+        }
+        customer.setAddresses(addresses);
+        return customer;
+    }
+}
@@ -0,0 +1,72 @@
+package danskebank.mini_bank_system.benchmark;
+
+import danskebank.mini_bank_system.search.CustomerSearchEngine;
+import danskebank.mini_bank_system.search.JpqlCustomerSearchEngine;
+import danskebank.mini_bank_system.search.TrigramCustomerSearchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the trigram index with the JPQL {@code LIKE} scan on the same seeded data.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=SearchEngineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchEngineBenchmark {
+
+    @Param({"10000"})
+    private int customers;
+
+    @Param({"trigram", "jpql"})
+    private String engine;
+
+    @Param({"vilnius", "schrute42", "customer9999@"})
+    private String searchTerm;
+
+    private ConfigurableApplicationContext context;
+    private CustomerSearchEngine searchEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        BenchmarkContext.seed(context, customers);
+        if ("trigram".equals(engine)) {
+            var trigram = context.getBean(TrigramCustomerSearchEngine.class);
+            trigram.build();
+            searchEngine = trigram;
+        } else {
+            searchEngine = context.getBean(JpqlCustomerSearchEngine.class);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Long> search() {
+        return searchEngine.search(searchTerm, PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,63 @@
+package danskebank.mini_bank_system.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request: boots the application in a fresh JVM and measures until the first search
+ * has been answered, with eager or lazy bean initialization. Each fork measures one cold start.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=StartupBenchmark}; AOT and the CDS archive
+ * only apply to the packaged JAR, see the Startup section of the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    @Param({"false", "true"})
+    private boolean lazyInitialization;
+
+    private ConfigurableApplicationContext context;
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int firstRequest() throws IOException, InterruptedException {
+        context = BenchmarkContext.start(Map.of("spring.main.lazy-initialization", lazyInitialization));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        try (var client = HttpClient.newHttpClient()) {
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/customers/search?searchTerm=vilnius&size=20")).build();
+            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("First request failed with " + response.statusCode());
+            }
+            return response.statusCode();
+        }
+    }
+}
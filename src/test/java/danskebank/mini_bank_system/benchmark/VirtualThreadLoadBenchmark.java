@@ -0,0 +1,102 @@
+package danskebank.mini_bank_system.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires bursts of concurrent search requests over HTTP at the application running on platform or
+ * virtual request threads, with a fixed per-statement database latency.
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark.args=VirtualThreadLoadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    @Param({"true", "false"})
+    private boolean virtualThreads;
+
+    @Param({"1000"})
+    private int concurrency;
+
+    @Param({"20", "400"})
+    private int poolSize;
+
+    @Param({"20"})
+    private int databaseLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                        "spring.threads.virtual.enabled", virtualThreads,
+                        "spring.datasource.hikari.maximum-pool-size", poolSize,
+                        "spring.datasource.hikari.minimum-idle", poolSize,
+                        "spring.datasource.hikari.connection-timeout", 60000,
+                        "server.tomcat.accept-count", concurrency,
+                        // measures queueing on the pool, so nothing may be shed
+                        "admission.enabled", false),
+                Duration.ofMillis(databaseLatencyMillis));
+        BenchmarkContext.seed(context, 1000);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().executor(clientExecutor).version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/customers/search?searchTerm=vilnius&size=20")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int burst() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<HttpResponse<Void>>[] responses = new CompletableFuture[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        int ok = 0;
+        for (var response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        if (ok != concurrency) {
+            throw new IllegalStateException(ok + " of " + concurrency + " requests succeeded");
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,147 @@
+package danskebank.mini_bank_system.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
+import danskebank.mini_bank_system.repository.AddressRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "customer.batch.chunk-size=4")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CustomerBatchUpdateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void updateCustomers_ShouldApplyValidItems_AndReportCountsAndFailures() throws Exception {
+        var pam = create("Pam", "1 Gedimino", "2 Pilies");
+        var jim = create("Jim", "3 Vokieciu");
+        var kevin = create("Kevin", "4 Traku");
+        long kept = pam.getAddresses().get(0).getId();
+
+        var response = batch(
+                item(pam.getId(), Map.of("lastname", "Halpert", "addresses", List.of(
+                        Map.of("id", kept, "street", "1 Gedimino", "city", "Vilnius", "postalCode", "12345"),
+                        Map.of("street", "5 Ausros", "city", "Vilnius", "postalCode", "12345")))),
+                item(jim.getId(), Map.of("name", jim.getName())),
+                "{not json",
+                item(Long.MAX_VALUE, Map.of("name", "Nobody")),
+                item(kevin.getId(), Map.of("addresses", List.of(Map.of("id", kept, "street", "1 Gedimino")))),
+                item(kevin.getId(), Map.of("phoneNumber", "5550001111")));
+
+        Assertions.assertEquals(6, response.get("received").asLong());
+        Assertions.assertEquals(2, response.get("updated").asLong());
+        Assertions.assertEquals(1, response.get("unchanged").asLong());
+        Assertions.assertEquals(3, response.get("failed").asLong());
+        var failures = response.get("failures");
+        Assertions.assertEquals(List.of(3, 4, 5), failures.findValues("line").stream().map(JsonNode::asInt).toList());
+        Assertions.assertEquals("Customer not found.", failures.get(1).get("error").asText());
+        Assertions.assertEquals(String.format("No address found with %s id", kept), failures.get(2).get("error").asText());
+
+        Assertions.assertEquals("Halpert", customerRepository.findById(pam.getId()).orElseThrow().getLastname());
+        Assertions.assertEquals(List.of("1 Gedimino", "5 Ausros"), addressRepository.findRowsByCustomerIdIn(List.of(pam.getId())).stream()
+                .map(row -> row.street())
+                .toList());
+        Assertions.assertEquals("5550001111", customerRepository.findById(kevin.getId()).orElseThrow().getPhoneNumber());
+    }
+
+    @Test
+    void updateCustomers_ShouldFailOnlyTheItem_ThatTakesAnotherCustomersIdentity() throws Exception {
+        var oscar = create("Oscar", "1 Gedimino");
+        var angela = create("Angela", "2 Pilies");
+        var toby = create("Toby", "3 Vokieciu");
+
+        var response = batch(
+                item(angela.getId(), identityOf(oscar)),
+                item(toby.getId(), Map.of("lastname", "Flenderson")));
+
+        Assertions.assertEquals(1, response.get("updated").asLong());
+        Assertions.assertEquals(List.of(1), response.get("failures").findValues("line").stream().map(JsonNode::asInt).toList());
+        Assertions.assertEquals("Customer with the same name, lastname, email and phone number already exists.",
+                response.get("failures").get(0).get("error").asText());
+        Assertions.assertEquals(angela.getName(), customerRepository.findById(angela.getId()).orElseThrow().getName());
+        Assertions.assertEquals("Flenderson", customerRepository.findById(toby.getId()).orElseThrow().getLastname());
+    }
+
+    @Test
+    void updateCustomers_ShouldRetryItemsOneByOne_WhenTheChunkFailsAtFlush() throws Exception {
+        var ryan = create("Ryan", "1 Gedimino");
+        var kelly = create("Kelly", "2 Pilies");
+        // written behind the identity filter's back, so the conflict only shows when the chunk is flushed
+        var unseen = Map.<String, Object>of("name", "Unseen", "lastname", "Customer", "email", "unseen" + System.nanoTime() + "@example.com",
+                "phoneNumber", "5559990000");
+        jdbcTemplate.update("INSERT INTO customer (id, version_num, name, lastname, email, phone_number, type, identity_fingerprint) "
+                        + "VALUES (?, 0, ?, ?, ?, ?, 'PRIVATE', ?)",
+                System.nanoTime() % 1_000_000_000 + 1_000_000_000L, unseen.get("name"), unseen.get("lastname"), unseen.get("email"),
+                unseen.get("phoneNumber"), new CustomerIdentity((String) unseen.get("name"), (String) unseen.get("lastname"),
+                        (String) unseen.get("email"), (String) unseen.get("phoneNumber")).fingerprint());
+
+        var response = batch(
+                item(ryan.getId(), unseen),
+                item(kelly.getId(), Map.of("lastname", "Kapoor")));
+
+        Assertions.assertEquals(1, response.get("updated").asLong());
+        Assertions.assertEquals(List.of(1), response.get("failures").findValues("line").stream().map(JsonNode::asInt).toList());
+        Assertions.assertEquals(ryan.getName(), customerRepository.findById(ryan.getId()).orElseThrow().getName());
+        Assertions.assertEquals("Kapoor", customerRepository.findById(kelly.getId()).orElseThrow().getLastname());
+    }
+
+    private JsonNode batch(String... lines) throws Exception {
+        var body = mockMvc.perform(patch("/customers/batch")
+                        .contentType("application/x-ndjson")
+                        .content(String.join("\n", lines)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String item(long id, Map<String, Object> customer) throws Exception {
+        return objectMapper.writeValueAsString(Map.of("id", id, "customer", customer));
+    }
+
+    private static Map<String, Object> identityOf(Customer customer) {
+        return Map.of("name", customer.getName(), "lastname", customer.getLastname(), "email", customer.getEmail(),
+                "phoneNumber", customer.getPhoneNumber());
+    }
+
+    private Customer create(String name, String... streets) {
+        var addresses = Arrays.stream(streets).map(street -> CustomerFixture.address(street, "Vilnius", "12345")).toArray(AddressDTO[]::new);
+        return customerService.createCustomer(1L, CustomerFixture.customer(name).lastname("Batch").uniqueName().addresses(addresses).build());
+    }
+}
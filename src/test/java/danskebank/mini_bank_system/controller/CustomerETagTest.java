@@ -0,0 +1,109 @@
+package danskebank.mini_bank_system.controller;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CustomerETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void getCustomer_ShouldReturnNotModified_UntilAnAddressChanges() throws Exception {
+        var customer = customerService.createCustomer(1L, customer("Stanley"));
+
+        var etag = mockMvc.perform(get("/customers/{id}", customer.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastname").value("Hudson"))
+                .andExpect(jsonPath("$.addresses[0].street").value("1 Scranton St"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertTrue(etag.startsWith("W/"));
+
+        mockMvc.perform(get("/customers/{id}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/customers/update/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"addresses\":[{\"street\":\"2 Scranton St\",\"city\":\"Scranton\",\"postalCode\":\"18503\"}]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/customers/{id}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.addresses[0].street").value("2 Scranton St"));
+    }
+
+    @Test
+    void updateCustomer_ShouldReturnPreconditionFailed_WhenIfMatchIsStale() throws Exception {
+        var customer = customerService.createCustomer(1L, customer("Phyllis"));
+        var etag = mockMvc.perform(get("/customers/{id}", customer.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        var newEtag = mockMvc.perform(patch("/customers/update/{id}", customer.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"phyllis.vance@example.com\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotEquals(etag, newEtag);
+
+        mockMvc.perform(patch("/customers/update/{id}", customer.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"phyllis.lapin@example.com\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("Customer was modified since it was read."));
+
+        mockMvc.perform(get("/customers/{id}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, newEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getCustomer_ShouldReturnNotFound_WhenCustomerDoesNotExist() throws Exception {
+        mockMvc.perform(get("/customers/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Customer not found."));
+    }
+
+    @Test
+    void updateCustomer_ShouldReturnNotFound_WhenCustomerDoesNotExist() throws Exception {
+        mockMvc.perform(patch("/customers/update/{id}", Long.MAX_VALUE)
+                        .header(HttpHeaders.IF_MATCH, "\"1.1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"nobody@example.com\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Customer not found."));
+    }
+
+    private static CustomerDTO customer(String name) {
+        return CustomerFixture.customer(name)
+                .lastname("Hudson")
+                .email(name.toLowerCase() + ".etag@example.com")
+                .addresses(CustomerFixture.address("1 Scranton St", "Scranton", "18503"))
+                .build();
+    }
+}
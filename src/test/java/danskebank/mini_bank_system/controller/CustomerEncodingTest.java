@@ -0,0 +1,72 @@
+package danskebank.mini_bank_system.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerSearchResponse;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CustomerEncodingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void searchCustomers_ShouldAnswerJsonByDefault_AndSameContentInCborAndSmile() throws Exception {
+        customerService.createCustomer(1L, customer("Meredith"));
+        customerService.createCustomer(1L, customer("Creed"));
+
+        var json = search(MediaType.ALL_VALUE, MediaType.APPLICATION_JSON_VALUE, objectMapper);
+        var cbor = search("application/cbor", "application/cbor", new CBORMapper());
+        var smile = search("application/x-jackson-smile", "application/x-jackson-smile", new SmileMapper());
+
+        Assertions.assertEquals(2, json.size());
+        Assertions.assertEquals(json, cbor);
+        Assertions.assertEquals(json, smile);
+    }
+
+    private List<CustomerDTO> search(String accept, String expectedContentType, ObjectMapper mapper) throws Exception {
+        var body = mockMvc.perform(get("/customers/search")
+                        .param("searchTerm", "Nashua")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(expectedContentType))
+                .andReturn().getResponse().getContentAsByteArray();
+        return mapper.readValue(body, CustomerSearchResponse.class).getCustomers();
+    }
+
+    private static CustomerDTO customer(String name) {
+        return CustomerFixture.customer(name)
+                .lastname("Palmer")
+                .email(name.toLowerCase() + ".encoding@example.com")
+                .addresses(CustomerFixture.address("7 Encoding St", "Nashua", "03060"))
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package danskebank.mini_bank_system.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import danskebank.mini_bank_system.dto.CustomerExportDTO;
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CustomerExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static boolean seeded;
+
+    @BeforeEach
+    void setUp() {
+        // the context, and so the database, may be shared with other test classes
+        if (!seeded) {
+            Account account = accountRepository.findById(1L).orElseThrow();
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                customers.add(createCustomer(account, i, i % 3 == 0 ? "Birstonas" : "Zarasai", i % 10 == 0 ? 0 : 2));
+            }
+            customerRepository.saveAll(customers);
+            seeded = true;
+        }
+    }
+
+    @Test
+    void exportCustomers_ShouldStreamOneLinePerCustomer_InIdOrder() throws Exception {
+        List<CustomerExportDTO> customers = export(null);
+
+        Assertions.assertEquals(customerRepository.count(), customers.size());
+        for (int i = 1; i < customers.size(); i++) {
+            Assertions.assertTrue(customers.get(i - 1).getId() < customers.get(i).getId());
+        }
+        var withoutAddress = find(customers, "Hudson0");
+        Assertions.assertTrue(withoutAddress.getAddresses().isEmpty());
+        var withAddresses = find(customers, "Hudson1");
+        Assertions.assertEquals(2, withAddresses.getAddresses().size());
+        Assertions.assertNotNull(withAddresses.getAddresses().get(0).getId());
+    }
+
+    @Test
+    void exportCustomers_ShouldApplySearchFilter_AndKeepAllAddressesOfMatches() throws Exception {
+        List<CustomerExportDTO> customers = export("birstonas");
+
+        // customers 3, 6, ..., 27; customer 0 has no address to match
+        Assertions.assertEquals(9, customers.size());
+        customers.forEach(customer -> Assertions.assertEquals(2, customer.getAddresses().size()));
+    }
+
+    @Test
+    void exportCustomers_ShouldStreamSameCustomers_AsCborSequenceAndSmile() throws Exception {
+        List<CustomerExportDTO> json = export("zarasai");
+
+        Assertions.assertEquals(json, exportBinary("zarasai", "application/cbor-seq", new CBORMapper()));
+        Assertions.assertEquals(json, exportBinary("zarasai", "application/x-jackson-smile", new SmileMapper()));
+    }
+
+    @Test
+    void exportCustomers_ShouldNegotiateFormat_ByQualityThenSpecificity() throws Exception {
+        assertExportedAs("application/x-ndjson;q=0.5, application/cbor-seq", "application/cbor-seq");
+        assertExportedAs("application/*;q=0.8, application/x-jackson-smile;q=0.8", "application/x-jackson-smile");
+        assertExportedAs("application/x-jackson-smile;q=0.1, */*", "application/x-ndjson");
+    }
+
+    private void assertExportedAs(String accept, String mediaType) throws Exception {
+        var result = mockMvc.perform(get("/customers/export").param("searchTerm", "zarasai").header(HttpHeaders.ACCEPT, accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(mediaType));
+    }
+
+    private CustomerExportDTO find(List<CustomerExportDTO> customers, String lastname) {
+        return customers.stream()
+                .filter(customer -> lastname.equals(customer.getLastname()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<CustomerExportDTO> export(String searchTerm) throws Exception {
+        var request = get("/customers/export");
+        if (searchTerm != null) {
+            request.param("searchTerm", searchTerm);
+        }
+        var result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the export streams without a time limit, other async requests keep the default
+        Assertions.assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(body.endsWith("\n"));
+        return Arrays.stream(body.split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, CustomerExportDTO.class);
+                    } catch (Exception e) {
+                        throw new AssertionError(line, e);
+                    }
+                })
+                .toList();
+    }
+
+    private List<CustomerExportDTO> exportBinary(String searchTerm, String mediaType, ObjectMapper mapper) throws Exception {
+        var result = mockMvc.perform(get("/customers/export").param("searchTerm", searchTerm).accept(mediaType))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (MappingIterator<CustomerExportDTO> values = mapper.readerFor(CustomerExportDTO.class).readValues(body)) {
+            return values.readAll();
+        }
+    }
+
+    private Customer createCustomer(Account account, int i, String city, int addressCount) {
+        var customer = new Customer();
+        customer.setName("Stanley");
+        customer.setLastname("Hudson" + i);
+        customer.setEmail("stanley" + i + "@example.com");
+        customer.setPhoneNumber("1234567890");
+        customer.setType(CustomerType.PRIVATE);
+        customer.setAccount(account);
+        List<Address> addresses = new ArrayList<>();
+        for (int a = 0; a < addressCount; a++) {
+            var address = new Address();
+            address.setStreet(i + " Laisves " + a);
+            address.setCity(city);
+            address.setPostalCode("44001");
+            address.setCustomer(customer);
+            addresses.add(address);
+        }
+        customer.setAddresses(addresses);
+        return customer;
+    }
+}
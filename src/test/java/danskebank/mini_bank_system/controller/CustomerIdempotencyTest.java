@@ -0,0 +1,85 @@
+package danskebank.mini_bank_system.controller;
+
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.repository.IdempotencyRecordRepository;
+import danskebank.mini_bank_system.service.IdempotencyService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CustomerIdempotencyTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void createCustomer_ShouldReplayFirstResponse_WhenRetriedWithSameKey() throws Exception {
+        long before = customerRepository.count();
+
+        var first = mockMvc.perform(create("retry-1", "Creed"))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andExpect(jsonPath("$.name").value("Creed"))
+                .andReturn().getResponse().getContentAsString();
+        var second = mockMvc.perform(create("retry-1", "Creed"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(before + 1, customerRepository.count());
+        Assertions.assertTrue(idempotencyRecordRepository.existsById("retry-1"));
+    }
+
+    @Test
+    void createCustomer_ShouldReturnUnprocessableEntity_WhenKeyIsReusedForDifferentCustomer() throws Exception {
+        mockMvc.perform(create("retry-2", "Kevin"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(create("retry-2", "Oscar"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.message").value("Idempotency-Key was already used for a different request."));
+    }
+
+    @Test
+    void createCustomer_ShouldRejectRepeatedCreate_WithoutKey() throws Exception {
+        mockMvc.perform(create(null, "Toby"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(create(null, "Toby"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Customer is already assigned to this account."));
+    }
+
+    private MockHttpServletRequestBuilder create(String idempotencyKey, String name) {
+        var request = post("/customers/create/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("{\"name\":\"%s\",\"lastname\":\"Retry\",\"phoneNumber\":\"1234567890\","
+                        + "\"email\":\"%s.retry@example.com\",\"type\":\"PRIVATE\",\"addresses\":["
+                        + "{\"street\":\"1 Retry St\",\"city\":\"Vilnius\",\"postalCode\":\"12345\"}]}", name, name.toLowerCase()));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,46 @@
+package danskebank.mini_bank_system.datasource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+class ReadYourWritesWindowTest {
+    private final ReadYourWritesWindow window = new ReadYourWritesWindow(Duration.ofMinutes(1));
+
+    @Test
+    void isActive_ShouldOnlyHoldForReadsOfAWrittenCustomer() {
+        window.recordWriteAfterCommit(List.of(1L));
+
+        try (var reading = window.reading(List.of(2L, 1L))) {
+            Assertions.assertTrue(window.isActive());
+        }
+        try (var reading = window.reading(List.of(2L))) {
+            Assertions.assertFalse(window.isActive());
+        }
+        Assertions.assertFalse(window.isActive());
+    }
+
+    @Test
+    void reading_ShouldRestoreTheEnclosingScope_WhenClosed() {
+        window.recordWriteAfterCommit(List.of(1L));
+
+        try (var outer = window.reading(List.of(1L))) {
+            try (var inner = window.reading(List.of(2L))) {
+                Assertions.assertFalse(window.isActive());
+            }
+            Assertions.assertTrue(window.isActive());
+        }
+    }
+
+    @Test
+    void isActive_ShouldBeFalse_WhenWindowIsOff() {
+        var off = new ReadYourWritesWindow(Duration.ZERO);
+        off.recordWriteAfterCommit(List.of(1L));
+
+        try (var reading = off.reading(List.of(1L))) {
+            Assertions.assertFalse(off.isActive());
+        }
+    }
+}
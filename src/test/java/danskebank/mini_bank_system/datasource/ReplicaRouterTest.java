@@ -0,0 +1,98 @@
+package danskebank.mini_bank_system.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaRouterTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica0;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private ReadYourWritesWindow readYourWritesWindow;
+
+    private final Connection primaryConnection = Mockito.mock(Connection.class);
+    private final Connection replica0Connection = Mockito.mock(Connection.class);
+    private final Connection replica1Connection = Mockito.mock(Connection.class);
+    private MeterRegistry meterRegistry;
+    private ReplicaRouter replicaRouter;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replica0.getConnection()).thenReturn(replica0Connection);
+        Mockito.when(replica1.getConnection()).thenReturn(replica1Connection);
+        Mockito.when(replica0Connection.isValid(Mockito.anyInt())).thenReturn(true);
+        Mockito.when(replica1Connection.isValid(Mockito.anyInt())).thenReturn(true);
+        var replicas = new LinkedHashMap<String, DataSource>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        meterRegistry = new SimpleMeterRegistry();
+        replicaRouter = new ReplicaRouter(primary, replicas, readYourWritesWindow, Duration.ofSeconds(1), meterRegistry);
+    }
+
+    @Test
+    void readConnection_ShouldRoundRobinOverReplicas() throws SQLException {
+        Assertions.assertSame(replica0Connection, replicaRouter.readConnection());
+        Assertions.assertSame(replica1Connection, replicaRouter.readConnection());
+        Assertions.assertSame(replica0Connection, replicaRouter.readConnection());
+        Mockito.verify(primary, Mockito.never()).getConnection();
+    }
+
+    @Test
+    void readConnection_ShouldSkipReplica_ThatFailsToConnect_UntilHealthy() throws SQLException {
+        Mockito.when(replica0.getConnection()).thenThrow(new SQLException("down"));
+
+        Assertions.assertSame(replica1Connection, replicaRouter.readConnection());
+        Assertions.assertSame(replica1Connection, replicaRouter.readConnection());
+        Assertions.assertEquals(0, meterRegistry.get("datasource.replica.healthy").tag("replica", "replica-0").gauge().value());
+
+        Mockito.doReturn(replica0Connection).when(replica0).getConnection();
+        replicaRouter.checkHealth();
+        Assertions.assertEquals(1, meterRegistry.get("datasource.replica.healthy").tag("replica", "replica-0").gauge().value());
+    }
+
+    @Test
+    void readConnection_ShouldFallBackToPrimary_WhenNoReplicaIsHealthy() throws SQLException {
+        Mockito.when(replica0Connection.isValid(Mockito.anyInt())).thenReturn(false);
+        Mockito.when(replica1.getConnection()).thenThrow(new SQLException("down"));
+
+        replicaRouter.checkHealth();
+
+        Assertions.assertSame(primaryConnection, replicaRouter.readConnection());
+        Mockito.verify(replica0, Mockito.times(1)).getConnection();
+        Assertions.assertEquals(1, meterRegistry.get("datasource.read.connections").tag("target", "primary").counter().count());
+    }
+
+    @Test
+    void readConnection_ShouldUsePrimary_WhileReadYourWritesWindowIsOpen() throws SQLException {
+        Mockito.when(readYourWritesWindow.isActive()).thenReturn(true);
+
+        Assertions.assertSame(primaryConnection, replicaRouter.readConnection());
+        Mockito.verify(replica0, Mockito.never()).getConnection();
+        Mockito.verify(replica1, Mockito.never()).getConnection();
+    }
+}
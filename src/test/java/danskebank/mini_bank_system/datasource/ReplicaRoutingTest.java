@@ -0,0 +1,110 @@
+package danskebank.mini_bank_system.datasource;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// two embedded databases; the replica does not exist until the test copies the primary into it
+@SpringBootTest(properties = {
+        "datasource.routing.enabled=true",
+        "datasource.routing.read-your-writes-window=1m",
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.connection-timeout=250",
+        "datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL + ";IFEXISTS=TRUE",
+        "datasource.replicas[0].username=sa",
+        "datasource.replicas[0].password=",
+        "search.engine=jpql"})
+class ReplicaRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        replicate();
+        // the replica pool may still be backing off from the failed connection attempts at startup
+        var healthy = meterRegistry.get("datasource.replica.healthy").tag("replica", "replica-0").gauge();
+        for (int attempt = 0; attempt < 50 && healthy.value() == 0; attempt++) {
+            replicaRouter.checkHealth();
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(1, healthy.value());
+    }
+
+    @Test
+    void transactions_ShouldUseReplicaOnlyWhenReadOnly() {
+        Assertions.assertEquals("ROUTING-PRIMARY", currentDatabase(false));
+        Assertions.assertEquals("ROUTING-REPLICA", currentDatabase(true));
+        Assertions.assertTrue(meterRegistry.get("datasource.read.connections").tag("target", "replica-0").counter().count() > 0);
+    }
+
+    @Test
+    void getCustomer_ShouldReadFromPrimary_WhileTheCustomersReadYourWritesWindowIsOpen() {
+        var customer = customerService.createCustomer(1L, customer("Angela", "Martin", "Sabre"));
+
+        // not replicated: the search runs on the replica, which has no such customer
+        Assertions.assertTrue(customerService.searchCustomersAfter("sabre", 0L, 10).getContent().isEmpty());
+        double primaryReads = readConnections(ReplicaRouter.PRIMARY);
+        Assertions.assertEquals("Martin", customerService.getCustomer(customer.getId(), null).customer().getLastname());
+        Assertions.assertEquals(primaryReads + 1, readConnections(ReplicaRouter.PRIMARY));
+    }
+
+    private double readConnections(String target) {
+        return meterRegistry.get("datasource.read.connections").tag("target", target).counter().count();
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("CALL DATABASE()", String.class));
+    }
+
+    // stands in for replication: the replica becomes a snapshot of the primary
+    private static void replicate() throws SQLException {
+        try (var primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             var replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             var script = primary.createStatement().executeQuery("SCRIPT NOPASSWORDS NOSETTINGS");
+             var statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            while (script.next()) {
+                var sql = script.getString(1);
+                if (!sql.startsWith("CREATE USER")) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    private static CustomerDTO customer(String name, String lastname, String city) {
+        return CustomerFixture.customer(name).lastname(lastname).city(city).build();
+    }
+}
@@ -0,0 +1,195 @@
+package danskebank.mini_bank_system.datasource;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.service.CustomerBatchUpdateService;
+import danskebank.mini_bank_system.service.CustomerExportService;
+import danskebank.mini_bank_system.service.CustomerExportService.ExportFormat;
+import danskebank.mini_bank_system.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// two embedded databases as shards: account 2 lives on shard 0, account 1 on shard 1; shard 1 hands out ids from 2^48
+@SpringBootTest(properties = {
+        "datasource.sharding.enabled=true",
+        "spring.datasource.url=" + ShardingTest.SHARD_0_URL,
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "datasource.shards[0].url=" + ShardingTest.SHARD_1_URL,
+        "datasource.shards[0].username=sa",
+        "datasource.shards[0].password=",
+        "search.engine=jpql"})
+class ShardingTest {
+    static final String SHARD_0_URL = "jdbc:h2:mem:sharding-0;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1_URL = "jdbc:h2:mem:sharding-1;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerBatchUpdateService customerBatchUpdateService;
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void migration_ShouldKeepEachAccountAndIdRangeOnItsShard() throws SQLException {
+        Assertions.assertEquals(List.of(2L), ids(SHARD_0_URL, "SELECT id FROM account ORDER BY id"));
+        Assertions.assertEquals(List.of(1L), ids(SHARD_1_URL, "SELECT id FROM account ORDER BY id"));
+
+        for (var sequence : List.of("customer_seq", "address_seq")) {
+            var next = "SELECT NEXTVAL('" + sequence + "')";
+            Assertions.assertTrue(count(SHARD_0_URL, next) < ShardingConfig.SHARD_ID_RANGE);
+            Assertions.assertTrue(count(SHARD_1_URL, next) >= ShardingConfig.SHARD_ID_RANGE);
+        }
+    }
+
+    @Test
+    void createCustomer_ShouldWriteToTheAccountsShard() throws SQLException {
+        var ryan = customerService.createCustomer(1L, customer("Ryan", "Howard", "Scranton"));
+        var kelly = customerService.createCustomer(2L, customer("Kelly", "Kapoor", "Scranton"));
+
+        Assertions.assertEquals(1, count(SHARD_1_URL, "SELECT COUNT(*) FROM customer WHERE id = " + ryan.getId()));
+        Assertions.assertEquals(1, count(SHARD_1_URL, "SELECT COUNT(*) FROM address WHERE account_id = 1 AND customer_id = " + ryan.getId()));
+        Assertions.assertEquals(0, count(SHARD_0_URL, "SELECT COUNT(*) FROM customer WHERE id = " + ryan.getId()));
+        Assertions.assertEquals(1, count(SHARD_0_URL, "SELECT COUNT(*) FROM customer WHERE id = " + kelly.getId()));
+        Assertions.assertEquals(0, count(SHARD_1_URL, "SELECT COUNT(*) FROM customer WHERE id = " + kelly.getId()));
+        Assertions.assertTrue(meterRegistry.get("datasource.shard.connections").tag("shard", "1").counter().count() > 0);
+    }
+
+    @Test
+    void createCustomer_ShouldMoveTheCustomer_WhenItIsReassignedToAnAccountOnAnotherShard() throws SQLException {
+        var darryl = customerService.createCustomer(1L, customer("Darryl", "Philbin", "Scranton"));
+        long owners = count(SHARD_1_URL, "SELECT number_of_owners FROM account WHERE id = 1");
+        var again = CustomerFixture.customer(darryl.getName()).lastname("Philbin").email(darryl.getEmail()).city("Scranton").build();
+
+        var moved = customerService.createCustomer(2L, again);
+
+        Assertions.assertEquals(darryl.getId(), moved.getId());
+        Assertions.assertEquals(1, count(SHARD_0_URL, "SELECT COUNT(*) FROM customer WHERE account_id = 2 AND id = " + darryl.getId()));
+        Assertions.assertEquals(1, count(SHARD_0_URL, "SELECT COUNT(*) FROM address WHERE account_id = 2 AND customer_id = " + darryl.getId()));
+        Assertions.assertEquals(0, count(SHARD_1_URL, "SELECT COUNT(*) FROM customer WHERE id = " + darryl.getId()));
+        Assertions.assertEquals(0, count(SHARD_1_URL, "SELECT COUNT(*) FROM address WHERE customer_id = " + darryl.getId()));
+        Assertions.assertEquals(owners - 1, count(SHARD_1_URL, "SELECT number_of_owners FROM account WHERE id = 1"));
+        Assertions.assertEquals("Scranton", customerService.getCustomer(darryl.getId(), null).customer().getAddresses().get(0).getCity());
+        // as remembered by an instance that did not move it
+        shardRouter.customerFound(darryl.getId(), 1);
+        Assertions.assertEquals("Philbin", customerService.getCustomer(darryl.getId(), null).customer().getLastname());
+        Assertions.assertThrows(CustomerException.class, () -> customerService.createCustomer(2L, again));
+    }
+
+    @Test
+    void getAndUpdateCustomer_ShouldFindTheCustomersShard() {
+        var toby = customerService.createCustomer(1L, customer("Toby", "Flenderson", "Scranton"));
+
+        var update = new CustomerDTO();
+        update.setPhoneNumber("5550001111");
+        Assertions.assertTrue(customerService.updateCustomer(toby.getId(), update).isChanged());
+
+        var found = customerService.getCustomer(toby.getId(), null).customer();
+        Assertions.assertEquals("5550001111", found.getPhoneNumber());
+        Assertions.assertEquals("Flenderson", found.getLastname());
+    }
+
+    @Test
+    void shardsOfCustomers_ShouldFindEveryCustomerOfAList() {
+        long jim = customerService.createCustomer(1L, customer("Jim", "Halpert", "Scranton")).getId();
+        long pam = customerService.createCustomer(2L, customer("Pam", "Beesly", "Scranton")).getId();
+        shardRouter.forgetCustomer(jim);
+        shardRouter.forgetCustomer(pam);
+
+        Assertions.assertEquals(Map.of(jim, 1, pam, 0, -1L, 0), shardRouter.shardsOfCustomers(List.of(jim, pam, -1L, jim)));
+        Assertions.assertEquals(1, shardRouter.shardOfCustomer(jim));
+    }
+
+    @Test
+    void search_ShouldMergeTheShardsInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(customerService.createCustomer(1L, customer("Creed" + i, "Bratton", "Stamford")).getId());
+            ids.add(customerService.createCustomer(2L, customer("Meredith" + i, "Palmer", "Stamford")).getId());
+        }
+        var expected = ids.stream().sorted().toList();
+
+        var page = customerService.searchCustomers("stamford", 1, 2);
+        Assertions.assertEquals(6, page.getTotalElements());
+        Assertions.assertEquals(expected.subList(2, 4), page.getContent().stream().map(CustomerDTO::getId).toList());
+
+        List<Long> walked = new ArrayList<>();
+        long after = 0;
+        while (true) {
+            var slice = customerService.searchCustomersAfter("stamford", after, 4);
+            slice.getContent().forEach(customer -> walked.add(customer.getId()));
+            if (!slice.hasNext()) {
+                break;
+            }
+            after = walked.getLast();
+        }
+        Assertions.assertEquals(expected, walked);
+        Assertions.assertEquals("Stamford", page.getContent().get(0).getAddresses().get(0).getCity());
+    }
+
+    @Test
+    void batchUpdateAndExport_ShouldCoverEveryShard() throws Exception {
+        var oscar = customerService.createCustomer(1L, customer("Oscar", "Martinez", "Nashua"));
+        var angela = customerService.createCustomer(2L, customer("Angela", "Martin", "Nashua"));
+
+        var body = String.format("{\"id\": %d, \"customer\": {\"lastname\": \"Nashua\"}}%n{\"id\": %d, \"customer\": {\"lastname\": \"Nashua\"}}",
+                oscar.getId(), angela.getId());
+        var response = customerBatchUpdateService.updateNdjson(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(2, response.getUpdated());
+        Assertions.assertEquals(0, response.getFailed());
+        Assertions.assertTrue(response.getFailures().isEmpty());
+        Assertions.assertEquals("Nashua", customerService.getCustomer(oscar.getId(), null).customer().getLastname());
+        Assertions.assertEquals("Nashua", customerService.getCustomer(angela.getId(), null).customer().getLastname());
+
+        var out = new ByteArrayOutputStream();
+        Assertions.assertEquals(2, customerExportService.export("nashua", ExportFormat.NDJSON, out));
+        var exported = out.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(exported.contains("\"id\":" + oscar.getId()));
+        Assertions.assertTrue(exported.contains("\"id\":" + angela.getId()));
+    }
+
+    private static long count(String url, String sql) throws SQLException {
+        try (var connection = DriverManager.getConnection(url, "sa", "");
+             var result = connection.createStatement().executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static List<Long> ids(String url, String sql) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (var connection = DriverManager.getConnection(url, "sa", "");
+             var result = connection.createStatement().executeQuery(sql)) {
+            while (result.next()) {
+                ids.add(result.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static CustomerDTO customer(String name, String lastname, String city) {
+        return CustomerFixture.customer(name).lastname(lastname).city(city).uniqueName().build();
+    }
+}
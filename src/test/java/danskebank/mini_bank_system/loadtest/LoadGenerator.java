@@ -0,0 +1,198 @@
+package danskebank.mini_bank_system.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.benchmark.BenchmarkContext;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for {@code /customers/create}, {@code /customers/update} and
+ * {@code /customers/search}. Boots the application on an in-memory database, seeds accounts and
+ * customers, and then sends requests at a fixed rate regardless of how fast responses come back, in
+ * the configured mix. Requests and their order follow from the seed, so runs with the same options
+ * send the same traffic. Run with {@code mvn -Pload test -DskipTests -Dload.args="--rate=500 --duration=2m"}.
+ */
+public class LoadGenerator {
+    private static final String[] CITIES = {"Vilnius", "Kaunas", "Klaipeda", "Siauliai", "Panevezys", "Alytus"};
+    private static final String[] SEARCH_TERMS = {"vilnius", "kaunas", "schrute", "halpert", "gedimino", "example.com"};
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadOptions options;
+    private final URI baseUri;
+    private final List<Long> accountIds;
+    private final List<Long> customerIds;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    // only touched by the scheduling thread
+    private long created;
+    private long updated;
+
+    LoadGenerator(LoadOptions options, URI baseUri, List<Long> accountIds, List<Long> customerIds) {
+        this.options = options;
+        this.baseUri = baseUri;
+        this.accountIds = List.copyOf(accountIds);
+        this.customerIds = List.copyOf(customerIds);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.random = new Random(options.seed());
+        this.operations = Operation.values();
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += options.mix().getOrDefault(operations[i], 0);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = LoadOptions.parse(args);
+        try (var context = BenchmarkContext.start(new HashMap<>(options.properties()))) {
+            System.out.printf("Seeding %d accounts and %d customers%n", options.accounts(), options.customers());
+            BenchmarkContext.seed(context, options.accounts(), options.customers());
+            var jdbcTemplate = context.getBean(JdbcTemplate.class);
+            var accountIds = jdbcTemplate.queryForList("SELECT id FROM account ORDER BY id FETCH FIRST ? ROWS ONLY",
+                    Long.class, options.accounts());
+            var customerIds = jdbcTemplate.queryForList("SELECT id FROM customer ORDER BY id", Long.class);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            var generator = new LoadGenerator(options, URI.create("http://localhost:" + port), accountIds, customerIds);
+
+            if (!options.warmup().isZero()) {
+                System.out.printf("Warming up for %s at %.1f requests/s%n", options.warmup(), options.rate());
+                generator.run(options.warmup());
+            }
+            System.out.printf("Measuring for %s at %.1f requests/s, mix %s%n", options.duration(), options.rate(),
+                    new TreeMap<>(options.mix()));
+            var report = generator.run(options.duration());
+            double seconds = options.duration().toNanos() / 1e9;
+            report.print(System.out, seconds);
+            report.write(options.result(), options, seconds);
+            System.out.printf("Results written to %s and %s%n", options.result(), LoadReport.histogramLog(options.result()));
+        }
+    }
+
+    /**
+     * Sends requests on a fixed schedule for {@code duration} and returns once all of them completed.
+     * A request that is due while {@code max-in-flight} requests are outstanding is dropped and counted
+     * as an error rather than delayed, so a slow server cannot slow the schedule down.
+     */
+    LoadReport run(Duration duration) throws InterruptedException {
+        var report = new LoadReport();
+        var inFlight = new Semaphore(options.maxInFlight());
+        long periodNanos = Math.max(1, Math.round(1e9 / options.rate()));
+        long count = duration.toNanos() / periodNanos;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < count; i++) {
+                long intendedStart = start + i * periodNanos;
+                for (long wait = intendedStart - System.nanoTime(); wait > 0; wait = intendedStart - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                var operation = nextOperation();
+                var request = request(operation);
+                if (!inFlight.tryAcquire()) {
+                    report.dropped(operation);
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        send(report, operation, request, intendedStart);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return report;
+    }
+
+    private void send(LoadReport report, Operation operation, HttpRequest request, long intendedStart) {
+        long sent = System.nanoTime();
+        int status = 0;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            // recorded with status 0
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report.record(operation, status, intendedStart, sent, System.nanoTime());
+    }
+
+    private Operation nextOperation() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    private HttpRequest request(Operation operation) {
+        return switch (operation) {
+            case CREATE -> {
+                long n = created++;
+                long accountId = accountIds.get(random.nextInt(accountIds.size()));
+                yield json("/customers/create/" + accountId, "POST", Map.of(
+                        "name", "Load",
+                        "lastname", "Customer" + n,
+                        "phoneNumber", String.format("371%08d", n),
+                        "email", "load" + n + "@example.com",
+                        "type", "PRIVATE",
+                        "addresses", List.of(Map.of(
+                                "street", n + " Laisves Avenue",
+                                "city", CITIES[random.nextInt(CITIES.length)],
+                                "postalCode", String.format("%05d", n % 100000)))));
+            }
+            case UPDATE -> {
+                long customerId = customerIds.get(random.nextInt(customerIds.size()));
+                yield json("/customers/update/" + customerId, "PATCH", Map.of("phoneNumber", String.format("372%08d", updated++)));
+            }
+            case SEARCH -> {
+                String term = URLEncoder.encode(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], StandardCharsets.UTF_8);
+                yield HttpRequest.newBuilder(baseUri.resolve("/customers/search?searchTerm=" + term + "&page=0&size=20"))
+                        .timeout(REQUEST_TIMEOUT)
+                        .GET()
+                        .build();
+            }
+        };
+    }
+
+    private HttpRequest json(String path, String method, Map<String, Object> body) {
+        try {
+            return HttpRequest.newBuilder(baseUri.resolve(path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package danskebank.mini_bank_system.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LoadGeneratorTest {
+    // the stub serves one request at a time, taking 20 ms each: 50 per second
+    private static final long SERVICE_MILLIS = 20;
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.createContext("/customers", exchange -> {
+            try (exchange) {
+                requests.computeIfAbsent(exchange.getRequestMethod(), method -> new AtomicInteger()).incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(SERVICE_MILLIS);
+                exchange.sendResponseHeaders(200, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void run_ShouldKeepTheSchedule_AndChargeQueueingToResponseTime() throws Exception {
+        var generator = generator("--rate=100", "--mix=create=1,update=1,search=2");
+
+        var report = generator.run(Duration.ofMillis(500));
+
+        // 50 requests offered at twice the stub's capacity: none is held back, the backlog shows in the percentiles
+        long total = 0;
+        for (var operation : Operation.values()) {
+            total += report.count(operation);
+        }
+        Assertions.assertEquals(50, total);
+        Assertions.assertEquals(50, requests.values().stream().mapToInt(AtomicInteger::get).sum());
+        Assertions.assertTrue(requests.get("POST").get() > 0 && requests.get("PATCH").get() > 0 && requests.get("GET").get() > 0);
+        Assertions.assertTrue(report.responseTimePercentileMicros(Operation.SEARCH, 99) >= 300_000,
+                () -> "p99 " + report.responseTimePercentileMicros(Operation.SEARCH, 99));
+    }
+
+    @Test
+    void write_ShouldProduceSummaryAndHistogramLog() throws Exception {
+        Path result = Files.createTempDirectory("load").resolve("load-result.json");
+        var options = LoadOptions.parse("--rate=50", "--result=" + result, "--admission.enabled=false");
+        var report = new LoadGenerator(options, URI.create("http://localhost:" + server.getAddress().getPort()), List.of(1L), List.of(1L))
+                .run(Duration.ofMillis(200));
+
+        report.write(result, options, 0.2);
+
+        String summary = Files.readString(result);
+        Assertions.assertTrue(summary.contains("\"search\""), summary);
+        Assertions.assertTrue(summary.contains("\"responseTimeMillis\""), summary);
+        Assertions.assertTrue(summary.contains("\"admission.enabled\" : \"false\""), summary);
+        Assertions.assertTrue(Files.readString(LoadReport.histogramLog(result)).contains("Tag=search.response"));
+    }
+
+    @Test
+    void parse_ShouldSeparateApplicationProperties_AndRejectUnknownOptions() {
+        var options = LoadOptions.parse("--rate=250", "--mix=search=1", "--spring.threads.virtual.enabled=false");
+
+        Assertions.assertEquals(250, options.rate());
+        Assertions.assertEquals(Map.of(Operation.SEARCH, 1), options.mix());
+        Assertions.assertEquals(Map.of("spring.threads.virtual.enabled", "false"), options.properties());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--rte=250"));
+    }
+
+    private LoadGenerator generator(String... args) {
+        return new LoadGenerator(LoadOptions.parse(args), URI.create("http://localhost:" + server.getAddress().getPort()),
+                List.of(1L, 2L), List.of(1L, 2L, 3L));
+    }
+}
@@ -0,0 +1,89 @@
+package danskebank.mini_bank_system.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load generator settings, given as {@code --name=value}. Names containing a dot are passed to the
+ * application as properties instead, e.g. {@code --admission.enabled=false}.
+ */
+public record LoadOptions(
+        double rate,
+        Duration duration,
+        Duration warmup,
+        Map<Operation, Integer> mix,
+        int accounts,
+        int customers,
+        long seed,
+        int maxInFlight,
+        Path result,
+        Map<String, String> properties) {
+
+    static final String DEFAULT_MIX = "create=10,update=20,search=70";
+
+    public LoadOptions {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        if (accounts < 1 || customers < 1) {
+            throw new IllegalArgumentException("at least one account and one customer must be seeded");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("mix must give at least one operation a positive weight");
+        }
+        mix = Map.copyOf(mix);
+        properties = Map.copyOf(properties);
+    }
+
+    public static LoadOptions parse(String... args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            (name.contains(".") ? properties : options).put(name, value);
+        }
+        var parsed = new LoadOptions(
+                Double.parseDouble(take(options, "rate", "200")),
+                DurationStyle.detectAndParse(take(options, "duration", "60s")),
+                DurationStyle.detectAndParse(take(options, "warmup", "10s")),
+                parseMix(take(options, "mix", DEFAULT_MIX)),
+                Integer.parseInt(take(options, "accounts", "10")),
+                Integer.parseInt(take(options, "customers", "10000")),
+                Long.parseLong(take(options, "seed", "42")),
+                Integer.parseInt(take(options, "max-in-flight", "10000")),
+                Path.of(take(options, "result", "target/load-result.json")),
+                properties);
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + options.keySet());
+        }
+        return parsed;
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in mix but got " + entry);
+            }
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,175 @@
+package danskebank.mini_bank_system.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms per operation, in microseconds. Response time runs from the moment the request
+ * was scheduled to be sent until its response arrived, so time spent waiting behind a stalled server
+ * or client counts, and the percentiles are not subject to coordinated omission. Service time runs
+ * from the actual send and is kept for comparison.
+ */
+public class LoadReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9", "p99.99"};
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    private static final class Stats {
+        private final Histogram responseTime = newHistogram();
+        private final Histogram serviceTime = newHistogram();
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder dropped = new LongAdder();
+    }
+
+    public LoadReport() {
+        for (var operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /** Records a completed request; {@code status} is 0 when no response was received. */
+    public void record(Operation operation, int status, long intendedStartNanos, long sentNanos, long completedNanos) {
+        var operationStats = stats.get(operation);
+        operationStats.responseTime.recordValue(micros(completedNanos - intendedStartNanos));
+        operationStats.serviceTime.recordValue(micros(completedNanos - sentNanos));
+        operationStats.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    /** Records a request that was not sent because {@code max-in-flight} requests were outstanding. */
+    public void dropped(Operation operation) {
+        stats.get(operation).dropped.increment();
+    }
+
+    public long count(Operation operation) {
+        return stats.get(operation).responseTime.getTotalCount();
+    }
+
+    public long responseTimePercentileMicros(Operation operation, double percentile) {
+        return stats.get(operation).responseTime.getValueAtPercentile(percentile);
+    }
+
+    public void print(PrintStream out, double elapsedSeconds) {
+        out.printf("%-8s %8s %9s %7s %9s %9s %9s %9s %9s %9s %12s%n", "op", "count", "rate/s", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "max ms", "svc p99 ms");
+        stats.forEach((operation, operationStats) -> {
+            var responseTime = operationStats.responseTime;
+            out.printf("%-8s %8d %9.1f %7d", operation.key(), responseTime.getTotalCount(),
+                    responseTime.getTotalCount() / elapsedSeconds, errors(operationStats));
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", millis(responseTime.getValueAtPercentile(percentile)));
+            }
+            out.printf(" %9.2f %12.2f%n", millis(responseTime.getMaxValue()),
+                    millis(operationStats.serviceTime.getValueAtPercentile(99)));
+        });
+    }
+
+    /**
+     * Writes a JSON summary to {@code result} and the full histograms, tagged by operation and time
+     * kind, as an HdrHistogram log next to it.
+     */
+    public void write(Path result, LoadOptions options, double elapsedSeconds) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("java", Runtime.version().toString());
+        summary.put("rate", options.rate());
+        summary.put("duration", options.duration().toString());
+        summary.put("warmup", options.warmup().toString());
+        Map<String, Integer> mix = new TreeMap<>();
+        options.mix().forEach((operation, weight) -> mix.put(operation.key(), weight));
+        summary.put("mix", mix);
+        summary.put("accounts", options.accounts());
+        summary.put("customers", options.customers());
+        summary.put("seed", options.seed());
+        summary.put("properties", new TreeMap<>(options.properties()));
+        summary.put("elapsedSeconds", elapsedSeconds);
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((operation, operationStats) -> {
+            Map<String, Object> operationSummary = new LinkedHashMap<>();
+            operationSummary.put("count", operationStats.responseTime.getTotalCount());
+            operationSummary.put("ratePerSecond", operationStats.responseTime.getTotalCount() / elapsedSeconds);
+            operationSummary.put("errors", errors(operationStats));
+            operationSummary.put("dropped", operationStats.dropped.sum());
+            Map<String, Long> statuses = new TreeMap<>();
+            operationStats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+            operationSummary.put("statuses", statuses);
+            operationSummary.put("responseTimeMillis", percentiles(operationStats.responseTime));
+            operationSummary.put("serviceTimeMillis", percentiles(operationStats.serviceTime));
+            operations.put(operation.key(), operationSummary);
+        });
+        summary.put("operations", operations);
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(result.toFile(), summary);
+        try (var out = new PrintStream(Files.newOutputStream(histogramLog(result)))) {
+            var writer = new HistogramLogWriter(out);
+            writer.outputComment("Latency in microseconds, tagged <operation>.response and <operation>.service");
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            stats.forEach((operation, operationStats) -> {
+                writer.outputIntervalHistogram(tagged(operationStats.responseTime, operation.key() + ".response"));
+                writer.outputIntervalHistogram(tagged(operationStats.serviceTime, operation.key() + ".service"));
+            });
+        }
+    }
+
+    static Path histogramLog(Path result) {
+        String name = result.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        return result.resolveSibling((extension < 0 ? name : name.substring(0, extension)) + ".hlog");
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put(PERCENTILE_NAMES[i], millis(histogram.getValueAtPercentile(PERCENTILES[i])));
+        }
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        percentiles.put("mean", Math.round(histogram.getMean()) / 1000.0);
+        return percentiles;
+    }
+
+    private static long errors(Stats operationStats) {
+        long errors = operationStats.dropped.sum();
+        for (var entry : operationStats.statuses.entrySet()) {
+            if (entry.getKey() < 200 || entry.getKey() >= 300) {
+                errors += entry.getValue().sum();
+            }
+        }
+        return errors;
+    }
+
+    private static Histogram tagged(Histogram histogram, String tag) {
+        var copy = histogram.copy();
+        copy.setTag(tag);
+        return copy;
+    }
+
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    }
+
+    private static long micros(long nanos) {
+        return Math.clamp(TimeUnit.NANOSECONDS.toMicros(nanos), 0, HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
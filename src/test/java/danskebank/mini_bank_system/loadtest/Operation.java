@@ -0,0 +1,14 @@
+package danskebank.mini_bank_system.loadtest;
+
+import java.util.Locale;
+
+/** The requests the load generator mixes; the lower-case name is used in options and reports. */
+public enum Operation {
+    CREATE,
+    UPDATE,
+    SEARCH;
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
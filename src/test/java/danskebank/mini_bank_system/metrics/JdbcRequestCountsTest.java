@@ -0,0 +1,53 @@
+package danskebank.mini_bank_system.metrics;
+
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+class JdbcRequestCountsTest {
+    private final JdbcCountingDataSourcePostProcessor postProcessor = new JdbcCountingDataSourcePostProcessor();
+
+    @AfterEach
+    void tearDown() {
+        JdbcRequestCounts.close();
+    }
+
+    @Test
+    void wrappedDataSource_ShouldCountStatementsAndRows_OnlyWhileCountsAreOpen() {
+        var jdbcTemplate = new JdbcTemplate(counting("counts"));
+        jdbcTemplate.queryForList("SELECT 1");
+
+        var counts = JdbcRequestCounts.open();
+        jdbcTemplate.queryForList("SELECT x FROM SYSTEM_RANGE(1, 3)");
+        jdbcTemplate.update("SET @x = 1");
+
+        Assertions.assertEquals(2, counts.getStatements());
+        Assertions.assertEquals(3, counts.getRows());
+    }
+
+    @Test
+    void onEveryShard_ShouldAddEachShardsWorkToTheCallersCounts() {
+        var shardRouter = new ShardRouter(List.of(counting("counts-0"), counting("counts-1")), 10, new SimpleMeterRegistry(),
+                JdbcRequestCounts::propagate);
+        var jdbcTemplate = new JdbcTemplate(shardRouter.dataSource());
+
+        var counts = JdbcRequestCounts.open();
+        shardRouter.onEveryShard(shard -> jdbcTemplate.queryForList("SELECT x FROM SYSTEM_RANGE(1, 2)"));
+
+        Assertions.assertEquals(2, counts.getStatements());
+        Assertions.assertEquals(4, counts.getRows());
+    }
+
+    private DataSource counting(String database) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database);
+        return (DataSource) postProcessor.postProcessAfterInitialization(dataSource, database);
+    }
+}
@@ -0,0 +1,85 @@
+package danskebank.mini_bank_system.metrics;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class JdbcRequestMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void request_ShouldRecordJdbcStatementsAndRows_TaggedWithUriPattern() throws Exception {
+        mockMvc.perform(post("/customers/create/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"Michael","lastname":"Scott","phoneNumber":"1234567890","email":"michael@example.com",
+                                 "type":"PRIVATE","addresses":[{"street":"1725 Slough Avenue","city":"Scranton","postalCode":"18505"}]}
+                                """))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/customers/search").param("searchTerm", "scranton").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk());
+
+        var createStatements = meterRegistry.get("jdbc.request.statements").tag("uri", "/customers/create/{accountId}").summary();
+        Assertions.assertEquals(1, createStatements.count());
+        Assertions.assertTrue(createStatements.totalAmount() > 0);
+
+        var searchRows = meterRegistry.get("jdbc.request.rows").tag("uri", "/customers/search").summary();
+        Assertions.assertEquals(1, searchRows.count());
+        // the customer row and its address row
+        Assertions.assertEquals(2, searchRows.totalAmount());
+    }
+
+    @Test
+    void export_ShouldRecordTheRowsStreamedOnTheAsyncThread_WhenItCompletes() throws Exception {
+        customerService.createCustomer(1L, CustomerFixture.customer("Stanley").lastname("Hudson").city("Utica").build());
+        var result = mockMvc.perform(get("/customers/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        var exportRows = meterRegistry.get("jdbc.request.rows").tag("uri", "/customers/export").summary();
+        Assertions.assertEquals(1, exportRows.count());
+        Assertions.assertTrue(exportRows.totalAmount() > 0);
+    }
+
+    @Test
+    void customerService_ShouldBeTimedPerMethod() throws Exception {
+        mockMvc.perform(patch("/customers/update/999")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Nobody\"}"))
+                .andExpect(status().isNotFound());
+
+        var timer = meterRegistry.get("customer.service")
+                .tag("method", "updateCustomer")
+                .tag("exception", "CustomerNotFoundException")
+                .timer();
+        Assertions.assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,88 @@
+package danskebank.mini_bank_system.outbox;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class OutboxCursorTest {
+    private static final long GAP_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+    private static final long BACKOFF = TimeUnit.SECONDS.toNanos(1);
+    private static final long RETENTION = TimeUnit.MINUTES.toNanos(1);
+
+    private final OutboxCursor cursor = new OutboxCursor(Mockito.mock(OutboxSubscriber.class), 10,
+            GAP_TIMEOUT, BACKOFF, 4 * BACKOFF, RETENTION);
+
+    @Test
+    void deliverable_ShouldReturnAllEvents_WhenIdsFollowOffset() {
+        var events = events(11, 12, 13);
+
+        Assertions.assertEquals(events, cursor.deliverable(events, 0));
+    }
+
+    @Test
+    void deliverable_ShouldStopInFrontOfGap_UntilGapTimeoutPassed() {
+        var events = events(11, 13, 14);
+
+        Assertions.assertEquals(events(11), cursor.deliverable(events, 0));
+        cursor.delivered(11);
+        Assertions.assertEquals(List.of(), cursor.deliverable(events.subList(1, 3), GAP_TIMEOUT - 1));
+        Assertions.assertEquals(events(13, 14), cursor.deliverable(events.subList(1, 3), GAP_TIMEOUT));
+    }
+
+    @Test
+    void skipped_ShouldKeepIdsPassedOver_UntilDeliveredLateOrRetentionPassed() {
+        cursor.deliverable(events(13, 16), 0);
+        Assertions.assertEquals(events(13), cursor.deliverable(events(13, 16), GAP_TIMEOUT));
+        cursor.delivered(13);
+        Assertions.assertEquals(events(16), cursor.deliverable(events(16), 2 * GAP_TIMEOUT));
+
+        Assertions.assertEquals(List.of(11L, 12L, 14L, 15L), cursor.skipped(2 * GAP_TIMEOUT));
+        cursor.deliveredLate(events(12, 14));
+        Assertions.assertEquals(List.of(11L, 15L), cursor.skipped(2 * GAP_TIMEOUT));
+        Assertions.assertEquals(List.of(15L), cursor.skipped(GAP_TIMEOUT + RETENTION));
+        Assertions.assertEquals(List.of(), cursor.skipped(2 * GAP_TIMEOUT + RETENTION));
+    }
+
+    @Test
+    void skipped_ShouldNotTrackGap_WiderThanAnOpenTransactionCanBe() {
+        var events = events(12 + OutboxCursor.MAX_TRACKED_GAP);
+
+        cursor.deliverable(events, 0);
+        Assertions.assertEquals(events, cursor.deliverable(events, GAP_TIMEOUT));
+        Assertions.assertEquals(List.of(), cursor.skipped(GAP_TIMEOUT));
+    }
+
+    @Test
+    void deliverable_ShouldDeliverLateEvent_WhenGapClosesBeforeTimeout() {
+        Assertions.assertEquals(List.of(), cursor.deliverable(events(12), 0));
+
+        Assertions.assertEquals(events(11, 12), cursor.deliverable(events(11, 12), 1_000));
+    }
+
+    @Test
+    void failed_ShouldDelayRetry_WithExponentialBackoffUpToMaximum() {
+        cursor.failed(0);
+        Assertions.assertFalse(cursor.isDue(BACKOFF - 1));
+        Assertions.assertTrue(cursor.isDue(BACKOFF));
+
+        cursor.failed(0);
+        cursor.failed(0);
+        cursor.failed(0);
+        Assertions.assertFalse(cursor.isDue(4 * BACKOFF - 1));
+        Assertions.assertTrue(cursor.isDue(4 * BACKOFF));
+
+        cursor.delivered(11);
+        Assertions.assertTrue(cursor.isDue(0));
+        Assertions.assertEquals(11, cursor.offset());
+    }
+
+    private static List<ChangeEvent> events(long... ids) {
+        return Arrays.stream(ids)
+                .mapToObj(id -> new ChangeEvent(id, "Customer", 1, ChangeType.UPDATED, "{}", null))
+                .toList();
+    }
+}
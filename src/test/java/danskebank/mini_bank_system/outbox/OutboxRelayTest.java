@@ -0,0 +1,166 @@
+package danskebank.mini_bank_system.outbox;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+@SpringBootTest(properties = {
+        "outbox.poll-interval=100ms",
+        "outbox.gap-timeout=200ms",
+        "outbox.retry-backoff=100ms"})
+@AutoConfigureTestDatabase
+@Import(OutboxRelayTest.Subscribers.class)
+class OutboxRelayTest {
+
+    @TestConfiguration
+    static class Subscribers {
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    // fails its first batch, so every event it records was redelivered at least once before
+    static class RecordingSubscriber implements OutboxSubscriber {
+        final List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        @Override
+        public String name() {
+            return "outbox-relay-test";
+        }
+
+        @Override
+        public void onEvents(List<ChangeEvent> batch) {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("first delivery fails");
+            }
+            events.addAll(batch);
+        }
+    }
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void customerWrites_ShouldBeDeliveredInOrder_AndStoreSubscriberOffset() throws InterruptedException {
+        var customer = customerService.createCustomer(1L, customer("pam@example.com"));
+        var update = new CustomerDTO();
+        update.setEmail("pam.beesly@example.com");
+        customerService.updateCustomer(customer.getId(), update);
+
+        var events = await(event -> event.aggregateId() == customer.getId(), 2);
+
+        Assertions.assertEquals(List.of(ChangeType.CREATED, ChangeType.UPDATED), events.stream().map(ChangeEvent::type).toList());
+        Assertions.assertTrue(events.get(0).id() < events.get(1).id());
+        Assertions.assertEquals(CustomerService.AGGREGATE_TYPE, events.get(1).aggregateType());
+        Assertions.assertTrue(events.get(1).payload().contains("\"email\":\"pam.beesly@example.com\""));
+        Assertions.assertTrue(events.get(1).payload().contains("\"street\":\"1 Scranton St\""));
+        Assertions.assertTrue(subscriber.failed.get());
+        // the offset is stored once the subscriber returns, so it can trail the delivered events briefly
+        Long offset = null;
+        for (int i = 0; i < 50 && (offset == null || offset < events.get(1).id()); i++) {
+            offset = jdbcTemplate.queryForList("SELECT MAX(last_event_id) FROM outbox_offset WHERE subscriber = ?",
+                    Long.class, subscriber.name()).stream().findFirst().orElse(null);
+            Thread.sleep(100);
+        }
+        Assertions.assertNotNull(offset);
+        Assertions.assertTrue(offset >= events.get(1).id());
+    }
+
+    @Test
+    void rolledBackChange_ShouldNotBeDelivered_AndNotBlockLaterEvents() throws InterruptedException {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.record("Test", -1L, ChangeType.CREATED, Map.of("rolledBack", true));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                outbox.record("Test", -2L, ChangeType.CREATED, Map.of("rolledBack", false)));
+
+        Assertions.assertEquals(1, await(event -> event.aggregateId() == -2L, 1).size());
+        Assertions.assertTrue(subscriber.events.stream().noneMatch(event -> event.aggregateId() == -1L));
+    }
+
+    @Test
+    void changeCommittedAfterGapTimeout_ShouldBeDeliveredLate() throws Exception {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var recorded = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                outbox.record("Test", -4L, ChangeType.CREATED, Map.of("late", true));
+                recorded.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assertions.assertTrue(recorded.await(5, TimeUnit.SECONDS));
+            transactionTemplate.executeWithoutResult(status ->
+                    outbox.record("Test", -5L, ChangeType.CREATED, Map.of("late", false)));
+
+            Assertions.assertEquals(1, await(event -> event.aggregateId() == -5L, 1).size());
+            Assertions.assertTrue(subscriber.events.stream().noneMatch(event -> event.aggregateId() == -4L));
+            commit.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        }
+
+        Assertions.assertEquals(1, await(event -> event.aggregateId() == -4L, 1).size());
+    }
+
+    @Test
+    void record_ShouldFail_OutsideTransaction() {
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> outbox.record("Test", -3L, ChangeType.CREATED, Map.of()));
+    }
+
+    private List<ChangeEvent> await(Predicate<ChangeEvent> filter, int expected) throws InterruptedException {
+        List<ChangeEvent> events = List.of();
+        for (int i = 0; i < 50 && events.size() < expected; i++) {
+            Thread.sleep(100);
+            events = subscriber.events.stream().filter(filter).toList();
+        }
+        return events;
+    }
+
+    private static CustomerDTO customer(String email) {
+        return CustomerFixture.customer("Pam")
+                .email(email)
+                .addresses(CustomerFixture.address("1 Scranton St", "Scranton", "18503"))
+                .build();
+    }
+}
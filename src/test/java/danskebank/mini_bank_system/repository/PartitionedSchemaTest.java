@@ -0,0 +1,106 @@
+package danskebank.mini_bank_system.repository;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.PostgresTest;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the partitioned profile on PostgreSQL: customer and address hash-partitioned by account_id
+@PostgresTest
+@ActiveProfiles("partitioned")
+class PartitionedSchemaTest {
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migration_ShouldPartitionCustomerAndAddressByAccount() {
+        for (var table : List.of("customer", "address")) {
+            Assertions.assertEquals("h", jdbcTemplate.queryForObject(
+                    "SELECT partstrat FROM pg_partitioned_table WHERE partrelid = ?::regclass", String.class, table));
+            Assertions.assertEquals(16, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = ?::regclass", Integer.class, table));
+        }
+        Assertions.assertEquals("on", jdbcTemplate.queryForObject("SHOW enable_partitionwise_join", String.class));
+    }
+
+    @Test
+    void reassign_ShouldMoveTheCustomerAndItsAddressesToTheNewAccountsPartition() {
+        var customer = customerService.createCustomer(1L, CustomerFixture.customer("Jan").lastname("Levinson").uniqueName().build());
+        Assertions.assertEquals(List.of(partitionOf(1L)), partitions(customer.getId()));
+
+        var reassigned = customerService.createCustomer(2L, CustomerFixture.customer(customer.getName()).lastname("Levinson").email(customer.getEmail()).build());
+
+        Assertions.assertEquals(customer.getId(), reassigned.getId());
+        Assertions.assertEquals(List.of(partitionOf(2L)), partitions(customer.getId()));
+        Assertions.assertEquals(List.of(2L), jdbcTemplate.queryForList(
+                "SELECT account_id FROM customer WHERE id = ? UNION SELECT account_id FROM address WHERE customer_id = ?",
+                Long.class, customer.getId(), customer.getId()));
+    }
+
+    @Test
+    void duplicateIdentity_ShouldViolateTheIdentityConstraintAcrossPartitions() {
+        var customer = customerService.createCustomer(1L, CustomerFixture.customer("Holly").lastname("Flax").uniqueName().build());
+        var duplicate = new Customer();
+        duplicate.setName(customer.getName());
+        duplicate.setLastname(customer.getLastname());
+        duplicate.setEmail(customer.getEmail());
+        duplicate.setPhoneNumber(customer.getPhoneNumber());
+        duplicate.setType(CustomerType.PRIVATE);
+        duplicate.setAccount(accountRepository.getReferenceById(2L));
+        duplicate.setAddresses(new ArrayList<Address>());
+
+        var e = Assertions.assertThrows(DataIntegrityViolationException.class, () -> customerRepository.saveAndFlush(duplicate));
+
+        var violation = Assertions.assertInstanceOf(ConstraintViolationException.class, e.getCause());
+        Assertions.assertEquals(Customer.IDENTITY_CONSTRAINT, violation.getConstraintName());
+    }
+
+    @Test
+    void accountQueries_ShouldReadOnlyTheAccountsPartitions() {
+        String plan = String.join("\n", jdbcTemplate.queryForList("""
+                EXPLAIN SELECT a.id FROM customer c JOIN address a ON a.customer_id = c.id AND a.account_id = c.account_id
+                WHERE c.account_id = 1
+                """, String.class));
+
+        Assertions.assertTrue(plan.contains(partitionOf(1L)), plan);
+        Assertions.assertTrue(plan.contains(partitionOf(1L).replace("customer", "address")), plan);
+        Assertions.assertFalse(plan.contains(partitionOf(2L)), plan);
+    }
+
+    private List<String> partitions(long customerId) {
+        return jdbcTemplate.queryForList("""
+                SELECT tableoid::regclass::text FROM customer WHERE id = ?
+                UNION SELECT replace(tableoid::regclass::text, 'address', 'customer') FROM address WHERE customer_id = ?
+                """, String.class, customerId, customerId);
+    }
+
+    // the customer partition that the account's hash falls into
+    private String partitionOf(long accountId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT c.relname FROM pg_class c JOIN pg_inherits i ON i.inhrelid = c.oid
+                WHERE i.inhparent = 'customer'::regclass
+                AND satisfies_hash_partition('customer'::regclass, 16, CAST(substring(c.relname FROM 'customer_p(\\d+)') AS INTEGER), ?::BIGINT)
+                """, String.class, accountId);
+    }
+}
@@ -0,0 +1,73 @@
+package danskebank.mini_bank_system.repository;
+
+import danskebank.mini_bank_system.PostgresTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// RepositoryQueryPlanTest on PostgreSQL; sequential scans are disabled, so one shows only where no index can serve
+@PostgresTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "search.engine=jpql")
+@Import(RepositoryQueryPlanTest.Config.class)
+class PostgresQueryPlanTest extends RepositoryQueryPlanTest {
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+    private static final Pattern ADDRESS_BY_CUSTOMER_ID = Pattern.compile("Scan (?:using|on) idx_address_customer_id\\b");
+
+    @Override
+    Pattern tableScan() {
+        return SEQ_SCAN;
+    }
+
+    @Override
+    Pattern addressByCustomerId() {
+        return ADDRESS_BY_CUSTOMER_ID;
+    }
+
+    // the generic plan of a prepared statement, as bound values would be folded into the plan of a plain EXPLAIN
+    @Override
+    String explain(String sql) {
+        var numbered = new StringBuilder();
+        int parameters = 0;
+        for (char c : sql.toCharArray()) {
+            numbered.append(c == '?' ? "$" + ++parameters : String.valueOf(c));
+        }
+        var nulls = String.join(", ", Collections.nCopies(parameters, "NULL"));
+        return inTransaction(() -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+            jdbcTemplate.execute("PREPARE plan_check AS " + numbered);
+            try {
+                return String.join("\n", jdbcTemplate.queryForList(
+                        "EXPLAIN EXECUTE plan_check" + (nulls.isEmpty() ? "" : "(" + nulls + ")"), String.class));
+            } finally {
+                jdbcTemplate.execute("DEALLOCATE plan_check");
+            }
+        });
+    }
+
+    @Override
+    List<String> foreignKeys() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.conrelid::regclass || '.' || a.attname
+                FROM pg_constraint c
+                JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1]
+                WHERE c.contype = 'f' AND c.connamespace = current_schema()::regnamespace
+                """, String.class);
+    }
+
+    @Override
+    List<String> indexLeadingColumns() {
+        return jdbcTemplate.queryForList("""
+                SELECT i.indrelid::regclass || '.' || a.attname
+                FROM pg_index i
+                JOIN pg_class t ON t.oid = i.indrelid
+                JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+                WHERE t.relnamespace = current_schema()::regnamespace
+                """, String.class);
+    }
+}
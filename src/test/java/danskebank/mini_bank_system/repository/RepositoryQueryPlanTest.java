@@ -0,0 +1,237 @@
+package danskebank.mini_bank_system.repository;
+
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL that each repository method sends, as captured from Hibernate, and
+ * counts the tables the plan reads without an index. Lookups must not scan at all; queries over every
+ * customer, and the substring search, may scan only the table that drives the join. H2 indexes foreign
+ * keys on its own and PostgreSQL does not, so foreign keys are also checked for a declared index.
+ * {@link PostgresQueryPlanTest} runs the same checks against PostgreSQL's planner.
+ */
+@SpringBootTest(properties = "search.engine=jpql")
+@AutoConfigureTestDatabase
+class RepositoryQueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+    private static final Pattern ADDRESS_BY_CUSTOMER_ID = Pattern.compile("\"ADDRESS\" \"\\w+\"\\s*/\\* PUBLIC\\.\\w+: CUSTOMER_ID");
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RecordingStatementInspector statements;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingStatementInspector recordingStatementInspector() {
+            return new RecordingStatementInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(RecordingStatementInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    static class RecordingStatementInspector implements StatementInspector {
+        private final List<String> sql = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            this.sql.add(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        statements.sql.clear();
+    }
+
+    @Test
+    void customerLookups_ShouldUseIndexes() {
+        assertScansAtMost(0, () -> customerRepository.findByIdentityFingerprint("fingerprint"));
+        assertScansAtMost(0, () -> customerRepository.findExistingFingerprints(List.of("a", "b")));
+        assertScansAtMost(0, () -> customerRepository.findRowsByIdIn(List.of(1L, 2L)));
+        assertAddressByCustomerId(assertScansAtMost(0, () -> customerRepository.findVersionRows(1L)));
+        assertAddressByCustomerId(assertScansAtMost(0, () -> customerRepository.findAllWithAddressesByIdIn(List.of(1L, 2L))));
+    }
+
+    @Test
+    void addressLookups_ShouldUseCustomerIdIndex() {
+        assertAddressByCustomerId(assertScansAtMost(0, () -> addressRepository.findRowsByCustomerIdIn(List.of(1L, 2L))));
+        assertAddressByCustomerId(assertScansAtMost(0, () -> addressRepository.findRowsByCustomerIdIn(List.of(1L), List.of(1L, 2L))));
+
+        long customerId = inTransaction(() -> customerRepository.save(customer(accountRepository.getReferenceById(1L))).getId());
+        entityManagerFactory.getCache().evictAll();
+        assertAddressByCustomerId(assertScansAtMost(0,
+                () -> inTransaction(() -> customerRepository.findById(customerId).orElseThrow().getAddresses().size()),
+                sql -> sql.contains(" from address ")));
+    }
+
+    @Test
+    void searchAndExport_ShouldScanOnlyTheDrivingTable() {
+        assertScansAtMost(1, () -> customerRepository.searchCustomerIds("vilnius", PageRequest.of(0, 10)));
+        assertScansAtMost(1, () -> customerRepository.searchCustomerIdsAfter("vilnius", 0L, PageRequest.of(0, 10)));
+        assertScansAtMost(1, () -> inTransaction(() -> customerRepository.streamExportRows("vilnius").count()));
+        assertScansAtMost(1, () -> inTransaction(() -> customerRepository.streamExportRows().count()));
+        assertScansAtMost(1, () -> inTransaction(() -> customerRepository.streamSearchDocuments().count()));
+        assertScansAtMost(1, () -> inTransaction(() -> customerRepository.streamIdentityFingerprints().count()));
+    }
+
+    @Test
+    void writes_ShouldUseIndexes() {
+        assertScansAtMost(0, () -> inTransaction(() -> accountRepository.adjustNumberOfOwners(-1L, 0)));
+        assertScansAtMost(0, () -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now().minusYears(100)));
+    }
+
+    @Test
+    void foreignKeys_ShouldLeadADeclaredIndex() {
+        var foreignKeys = foreignKeys();
+        var indexed = indexLeadingColumns();
+
+        Assertions.assertFalse(foreignKeys.isEmpty());
+        Assertions.assertTrue(indexed.containsAll(foreignKeys), () -> "not indexed: " + foreignKeys.stream()
+                .filter(foreignKey -> !indexed.contains(foreignKey))
+                .toList());
+    }
+
+    // table.column of every foreign key
+    List<String> foreignKeys() {
+        return jdbcTemplate.queryForList("""
+                SELECT k.TABLE_NAME || '.' || k.COLUMN_NAME
+                FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS t
+                JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k
+                ON k.CONSTRAINT_SCHEMA = t.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = t.CONSTRAINT_NAME
+                WHERE t.CONSTRAINT_SCHEMA = 'PUBLIC' AND t.CONSTRAINT_TYPE = 'FOREIGN KEY'
+                """, String.class);
+    }
+
+    // table.column of the first column of every index declared in the schema
+    List<String> indexLeadingColumns() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.TABLE_NAME || '.' || c.COLUMN_NAME
+                FROM INFORMATION_SCHEMA.INDEXES i
+                JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c
+                ON c.INDEX_SCHEMA = i.INDEX_SCHEMA AND c.INDEX_NAME = i.INDEX_NAME
+                WHERE i.INDEX_SCHEMA = 'PUBLIC' AND NOT i.IS_GENERATED AND c.ORDINAL_POSITION = 1
+                """, String.class);
+    }
+
+    private List<String> assertScansAtMost(int maxTableScans, Runnable call) {
+        return assertScansAtMost(maxTableScans, call, sql -> true);
+    }
+
+    private List<String> assertScansAtMost(int maxTableScans, Runnable call, Predicate<String> filter) {
+        statements.sql.clear();
+        call.run();
+        var plans = statements.sql.stream()
+                .filter(filter)
+                .map(this::explain)
+                .toList();
+        Assertions.assertFalse(plans.isEmpty(), "no statement was recorded");
+        for (var plan : plans) {
+            // H2 prints a subquery's plan twice, so scanned tables are counted once each
+            long scannedTables = tableScan().matcher(plan).results().map(scan -> scan.group(1)).distinct().count();
+            Assertions.assertTrue(scannedTables <= maxTableScans, plan);
+        }
+        return plans;
+    }
+
+    private void assertAddressByCustomerId(List<String> plans) {
+        Assertions.assertTrue(plans.stream().anyMatch(plan -> addressByCustomerId().matcher(plan).find()), plans.toString());
+    }
+
+    // matches a table read without an index, the table name being the first group
+    Pattern tableScan() {
+        return TABLE_SCAN;
+    }
+
+    // matches address rows read through the customer_id index
+    Pattern addressByCustomerId() {
+        return ADDRESS_BY_CUSTOMER_ID;
+    }
+
+    // the plan does not depend on the bound values, so every parameter is bound to null
+    String explain(String sql) {
+        return jdbcTemplate.query("EXPLAIN " + sql, statement -> {
+            for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                statement.setNull(i, Types.NULL);
+            }
+        }, resultSet -> {
+            var plan = new StringBuilder();
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+            return plan.toString();
+        });
+    }
+
+    <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    private static Customer customer(Account account) {
+        var customer = new Customer();
+        customer.setAccount(account);
+        customer.setName("Ryan" + System.nanoTime());
+        customer.setLastname("Howard");
+        customer.setEmail("ryan.howard@example.com");
+        customer.setPhoneNumber("1234567890");
+        customer.setType(CustomerType.PRIVATE);
+        var address = new Address();
+        address.setStreet("1 Plan St");
+        address.setCity("Vilnius");
+        address.setPostalCode("12345");
+        address.setCustomer(customer);
+        customer.setAddresses(new ArrayList<>(List.of(address)));
+        return customer;
+    }
+}
@@ -0,0 +1,126 @@
+package danskebank.mini_bank_system.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.outbox.ChangeEvent;
+import danskebank.mini_bank_system.outbox.ChangeType;
+import danskebank.mini_bank_system.service.CustomerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SearchResultCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private SearchResultCache cache;
+    private AtomicInteger searches;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SearchResultCache(meterRegistry, new CustomerChanges(objectMapper), 100, Duration.ofMinutes(1));
+        searches = new AtomicInteger();
+    }
+
+    @Test
+    void get_ShouldServeRepeatedSearchFromCache_RegardlessOfTermCase() {
+        cache.get("Vilnius", 0, 10, this::search);
+        cache.get("vilnius", 0, 10, this::search);
+        cache.get("vilnius", 1, 10, this::search);
+
+        Assertions.assertEquals(2, searches.get());
+        Assertions.assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "search.results").tag("result", "hit")
+                .functionCounter().count());
+        Assertions.assertEquals(1, meterRegistry.get("search.results.age").timer().count());
+    }
+
+    @Test
+    void invalidate_ShouldDropOnlyThePagesOfTheTermsTheWrittenCustomerMatches() {
+        cache.get("vilnius", 0, 10, this::search);
+        cache.get("vilnius", 1, 10, this::search);
+        cache.get("kaunas", 0, 10, this::search);
+
+        cache.invalidate(List.of(document("Gedimino pr. 1", "Vilnius")));
+        cache.get("vilnius", 0, 10, this::search);
+        cache.get("vilnius", 1, 10, this::search);
+        cache.get("kaunas", 0, 10, this::search);
+
+        Assertions.assertEquals(5, searches.get());
+        Assertions.assertEquals(1, meterRegistry.get("search.results.invalidated").counter().count());
+        Assertions.assertEquals(2, cache.indexedTerms());
+    }
+
+    @Test
+    void invalidate_ShouldDropThePagesOfEveryTermThatIsASubstringOfAField() {
+        cache.get("viln", 0, 10, this::search);
+        cache.get("gedimino", 0, 10, this::search);
+        cache.get("kaunas", 0, 10, this::search);
+
+        cache.invalidate(List.of(document("Gedimino pr. 1", "Vilnius")));
+
+        Assertions.assertEquals(1, cache.indexedTerms());
+    }
+
+    @Test
+    void get_ShouldNotServeResult_WhenAMatchingWriteIsCommittedDuringSearch() {
+        cache.get("vilnius", 0, 10, () -> {
+            cache.invalidate(List.of(document("Gedimino pr. 1", "Vilnius")));
+            return search();
+        });
+        cache.get("vilnius", 0, 10, this::search);
+        cache.get("vilnius", 0, 10, this::search);
+
+        Assertions.assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_ShouldStoreResult_WhenAnUnrelatedWriteIsCommittedDuringSearch() {
+        cache.get("vilnius", 0, 10, () -> {
+            cache.invalidate(List.of(document("Laisves al. 1", "Kaunas")));
+            return search();
+        });
+        cache.get("vilnius", 0, 10, this::search);
+
+        Assertions.assertEquals(1, searches.get());
+    }
+
+    @Test
+    void onEvents_ShouldDropTheTermsTheCustomerMatchesNow_AndThePagesShowingIt() throws Exception {
+        cache.get("vilnius", 0, 10, () -> search(1L));
+        cache.get("riga", 0, 10, () -> search(2L));
+        cache.get("kaunas", 0, 10, () -> search(2L));
+
+        // customer 1 moved from Vilnius to Riga; the event only carries Riga
+        var moved = CustomerFixture.customer("Jim").lastname("Halpert").city("Riga").build();
+        cache.onEvents(List.of(new ChangeEvent(1, CustomerService.AGGREGATE_TYPE, 1L, ChangeType.UPDATED,
+                objectMapper.writeValueAsString(moved), LocalDateTime.now())));
+
+        Assertions.assertEquals(1, cache.indexedTerms());
+        cache.get("kaunas", 0, 10, this::search);
+        Assertions.assertEquals(3, searches.get());
+    }
+
+    private static CustomerDocument document(String street, String city) {
+        return new CustomerDocument(1L, List.of("jim", "halpert", street.toLowerCase(), city.toLowerCase()), true);
+    }
+
+    private Page<CustomerDTO> search() {
+        return search(1L);
+    }
+
+    private Page<CustomerDTO> search(long customerId) {
+        searches.incrementAndGet();
+        var customer = new CustomerDTO();
+        customer.setId(customerId);
+        return new PageImpl<>(List.of(customer));
+    }
+}
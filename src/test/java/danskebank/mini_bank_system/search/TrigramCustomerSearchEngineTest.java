@@ -0,0 +1,76 @@
+package danskebank.mini_bank_system.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.outbox.ChangeEvent;
+import danskebank.mini_bank_system.outbox.ChangeType;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.service.CustomerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+class TrigramCustomerSearchEngineTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TrigramCustomerSearchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        var customerRepository = Mockito.mock(CustomerRepository.class);
+        Mockito.when(customerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        engine = new TrigramCustomerSearchEngine(customerRepository, Mockito.mock(JpqlCustomerSearchEngine.class),
+                Mockito.mock(PlatformTransactionManager.class), new CustomerChanges(objectMapper));
+        engine.build();
+    }
+
+    @Test
+    void onEvents_ShouldIndexCustomersWrittenByAnyInstance() throws Exception {
+        engine.onEvents(List.of(event(1, 7L, CustomerFixture.customer("Dwight").city("Stamford").build())));
+
+        Assertions.assertEquals(List.of(7L), search("stamford"));
+        Assertions.assertEquals(List.of(7L), search("dwight"));
+    }
+
+    @Test
+    void onEvents_ShouldKeepTheNewerDocument_WhenAnOlderEventArrivesLate() throws Exception {
+        engine.onEvents(List.of(event(1, 7L, CustomerFixture.customer("Dwight").city("Scranton").build())));
+        engine.onEvents(List.of(event(3, 7L, CustomerFixture.customer("Dwight").city("Stamford").build())));
+        engine.onEvents(List.of(event(2, 7L, CustomerFixture.customer("Dwight").city("Nashua").build())));
+
+        Assertions.assertEquals(List.of(7L), search("stamford"));
+        Assertions.assertEquals(List.of(), search("scranton"));
+        Assertions.assertEquals(List.of(), search("nashua"));
+    }
+
+    @Test
+    void onEvents_ShouldRemoveCustomerWhoseAddressesWereDeleted() throws Exception {
+        engine.onEvents(List.of(event(1, 7L, CustomerFixture.customer("Dwight").build())));
+        engine.onEvents(List.of(event(2, 7L, CustomerFixture.customer("Dwight").addresses().build())));
+
+        Assertions.assertEquals(List.of(), search("dwight"));
+    }
+
+    @Test
+    void onEvents_ShouldIgnoreOtherAggregates() {
+        engine.onEvents(List.of(new ChangeEvent(1, "Account", 7L, ChangeType.UPDATED, "{}", LocalDateTime.now())));
+
+        Assertions.assertEquals(List.of(), search("7"));
+    }
+
+    private ChangeEvent event(long id, long customerId, CustomerDTO customer) throws Exception {
+        return new ChangeEvent(id, CustomerService.AGGREGATE_TYPE, customerId, ChangeType.UPDATED,
+                objectMapper.writeValueAsString(customer), LocalDateTime.now());
+    }
+
+    private List<Long> search(String term) {
+        return engine.search(term, PageRequest.of(0, 10)).getContent();
+    }
+}
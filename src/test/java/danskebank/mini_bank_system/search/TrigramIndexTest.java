@@ -0,0 +1,111 @@
+package danskebank.mini_bank_system.search;
+
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    @Test
+    void search_ShouldMatchSubstringsOfCustomerAndAddressFields() {
+        index.put(CustomerDocument.of(createCustomer(1L, "Michael", "Scott", "Vilnius")));
+        index.put(CustomerDocument.of(createCustomer(2L, "Dwight", "Schrute", "Kaunas")));
+
+        Assertions.assertEquals(List.of(1L), index.search("chae", 0, 10).ids());
+        Assertions.assertEquals(List.of(2L), index.search("kaun", 0, 10).ids());
+        Assertions.assertEquals(List.of(1L, 2L), index.search("private", 0, 10).ids());
+        Assertions.assertEquals(List.of(1L, 2L), index.search("sc", 0, 10).ids());
+    }
+
+    @Test
+    void search_ShouldVerifyCandidates_WhenTrigramsMatchButSubstringDoesNot() {
+        index.put(CustomerDocument.of(createCustomer(1L, "abcd", "bcde", "Vilnius")));
+
+        Assertions.assertEquals(0, index.search("abcde", 0, 10).total());
+        Assertions.assertEquals(List.of(1L), index.search("bcde", 0, 10).ids());
+    }
+
+    @Test
+    void search_ShouldPageOverIdOrderedHits() {
+        for (long id = 10; id >= 1; id--) {
+            index.put(CustomerDocument.of(createCustomer(id, "John", "Doe" + id, "Vilnius")));
+        }
+
+        var hits = index.search("john", 4, 3);
+
+        Assertions.assertEquals(10, hits.total());
+        Assertions.assertEquals(List.of(5L, 6L, 7L), hits.ids());
+    }
+
+    @Test
+    void searchAfter_ShouldReturnHitsAfterCursorId() {
+        for (long id = 1; id <= 10; id++) {
+            index.put(CustomerDocument.of(createCustomer(id, id % 2 == 0 ? "John" : "Jane", "Doe" + id, "Vilnius")));
+        }
+
+        Assertions.assertEquals(List.of(6L, 8L, 10L), index.searchAfter("john", 4L, 5));
+        Assertions.assertEquals(List.of(2L, 4L), index.searchAfter("john", 0L, 2));
+        Assertions.assertEquals(List.of(), index.searchAfter("john", 10L, 2));
+    }
+
+    @Test
+    void estimateCount_ShouldCountTrigramCandidatesWithoutVerifying() {
+        index.put(CustomerDocument.of(createCustomer(1L, "abcd", "bcde", "Vilnius")));
+
+        Assertions.assertEquals(1, index.estimateCount("abcde"));
+        Assertions.assertEquals(0, index.estimateCount("zzzz"));
+    }
+
+    @Test
+    void put_ShouldReplacePreviousDocument() {
+        index.put(CustomerDocument.of(createCustomer(1L, "Michael", "Scott", "Vilnius")));
+        index.put(CustomerDocument.of(createCustomer(1L, "Michael", "Scarn", "Vilnius")));
+
+        Assertions.assertEquals(0, index.search("scott", 0, 10).total());
+        Assertions.assertEquals(List.of(1L), index.search("scarn", 0, 10).ids());
+    }
+
+    @Test
+    void put_ShouldDropCustomer_WhenCustomerHasNoAddresses() {
+        index.put(CustomerDocument.of(createCustomer(1L, "Michael", "Scott", "Vilnius")));
+        var customer = createCustomer(1L, "Michael", "Scott", "Vilnius");
+        customer.setAddresses(new ArrayList<>());
+        index.put(CustomerDocument.of(customer));
+
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertEquals(0, index.search("michael", 0, 10).total());
+    }
+
+    @Test
+    void putIfAbsent_ShouldKeepNewerDocument() {
+        index.put(CustomerDocument.of(createCustomer(1L, "Michael", "Scarn", "Vilnius")));
+        index.putIfAbsent(CustomerDocument.of(createCustomer(1L, "Michael", "Scott", "Vilnius")));
+
+        Assertions.assertEquals(List.of(1L), index.search("scarn", 0, 10).ids());
+        Assertions.assertEquals(0, index.search("scott", 0, 10).total());
+    }
+
+    private Customer createCustomer(Long id, String name, String lastname, String city) {
+        var customer = new Customer();
+        customer.setId(id);
+        customer.setName(name);
+        customer.setLastname(lastname);
+        customer.setEmail(name.toLowerCase() + "@example.com");
+        customer.setPhoneNumber("1234567890");
+        customer.setType(CustomerType.PRIVATE);
+
+        var address = new Address();
+        address.setStreet("123 Main St");
+        address.setCity(city);
+        address.setPostalCode("10001");
+        customer.setAddresses(List.of(address));
+        return customer;
+    }
+}
@@ -0,0 +1,61 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class CustomerCreateTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerIdentityFilter identityFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createCustomer_ShouldReassignCustomer_WhenAnotherInstanceCreatedItBehindTheFilter() {
+        var customerDTO = CustomerFixture.customer("Karen").lastname("Filippelli").uniqueName().build();
+        var fingerprint = new CustomerIdentity(customerDTO.getName(), customerDTO.getLastname(),
+                customerDTO.getEmail(), customerDTO.getPhoneNumber()).fingerprint();
+        // the pooled generator uses the ids below a value it draws, so the drawn value itself is free
+        long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR customer_seq", Long.class);
+        jdbcTemplate.update("""
+                INSERT INTO customer (id, version_num, name, lastname, phone_number, email, type, identity_fingerprint, account_id)
+                VALUES (?, 0, ?, ?, ?, ?, 'PRIVATE', ?, 2)
+                """, id, customerDTO.getName(), customerDTO.getLastname(), customerDTO.getPhoneNumber(),
+                customerDTO.getEmail(), fingerprint);
+        jdbcTemplate.update("UPDATE account SET number_of_owners = number_of_owners + 1 WHERE id = 2");
+        Assertions.assertFalse(identityFilter.mightContain(fingerprint));
+
+        var customer = customerService.createCustomer(1L, customerDTO);
+
+        Assertions.assertEquals(id, customer.getId());
+        Assertions.assertEquals(1L, jdbcTemplate.queryForObject("SELECT account_id FROM customer WHERE id = ?", Long.class, id));
+    }
+
+    @Test
+    void isDuplicateIdentity_ShouldRecognizeTheIdentityConstraintByName() {
+        var customer = customerService.createCustomer(1L, CustomerFixture.customer("Darryl").lastname("Philbin").uniqueName().build());
+        var duplicate = CustomerService.newCustomer(CustomerFixture.customer(customer.getName()).lastname("Philbin")
+                .email(customer.getEmail()).build(), customer.getAccount());
+
+        var e = Assertions.assertThrows(DataIntegrityViolationException.class, () -> customerRepository.saveAndFlush(duplicate));
+
+        Assertions.assertTrue(CustomerService.isDuplicateIdentity(e));
+    }
+}
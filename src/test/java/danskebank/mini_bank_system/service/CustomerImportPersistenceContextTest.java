@@ -0,0 +1,48 @@
+package danskebank.mini_bank_system.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = "customer.import.chunk-size=10")
+@AutoConfigureTestDatabase
+class CustomerImportPersistenceContextTest {
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void importNdjson_ShouldNotKeepImportedEntitiesManaged_WhenChunksJoinAnEnclosingTransaction() {
+        List<String> lines = new ArrayList<>();
+        long run = System.nanoTime();
+        for (int i = 0; i < 35; i++) {
+            lines.add(String.format("{\"name\":\"Bulk%d\",\"lastname\":\"Import%d\",\"phoneNumber\":\"1234567890\",\"email\":\"bulk%d@example.com\","
+                    + "\"type\":\"PRIVATE\",\"addresses\":[{\"street\":\"1 Main St\",\"city\":\"Vilnius\",\"postalCode\":\"12345\"}]}", i, run, i));
+        }
+        var body = new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+
+        int managed = transactionTemplate.execute(status -> {
+            var result = customerImportService.importNdjson(1L, body);
+            Assertions.assertEquals(35, result.getImported());
+            return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+        });
+
+        Assertions.assertEquals(0, managed);
+    }
+}
@@ -0,0 +1,196 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
+import danskebank.mini_bank_system.exception.AccountException;
+import danskebank.mini_bank_system.outbox.Outbox;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.search.CustomerSearchEngine;
+import danskebank.mini_bank_system.search.SearchResultCache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CustomerImportServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CustomerSearchEngine searchEngine;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private CustomerIdentityFilter identityFilter;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private CustomerImportService customerImportService;
+
+    @BeforeEach
+    void setUp() {
+        var account = new Account();
+        account.setId(1L);
+        Mockito.when(accountRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(accountRepository.getReferenceById(1L)).thenReturn(account);
+        Mockito.when(identityFilter.mightContain(Mockito.anyString())).thenReturn(true);
+        Mockito.when(transactionTemplate.execute(Mockito.any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void importNdjson_ShouldSkipDuplicatesWithinBodyAndDatabase() {
+        Mockito.when(customerRepository.saveAll(Mockito.anyList())).thenAnswer(CustomerImportServiceTest::assignIds);
+        var body = String.join("\n",
+                customerJson("John", "john@example.com"),
+                customerJson("John", "john@example.com"),
+                customerJson("Jane", "jane@example.com"),
+                "{not json",
+                "");
+
+        Mockito.when(customerRepository.findExistingFingerprints(Mockito.anyCollection()))
+                .thenReturn(List.of(new CustomerIdentity("Jane", "Doe", "jane@example.com", "1234567890").fingerprint()));
+
+        var result = customerImportService.importNdjson(1L, stream(body));
+
+        Assertions.assertEquals(4, result.getReceived());
+        Assertions.assertEquals(1, result.getImported());
+        Assertions.assertEquals(2, result.getDuplicates());
+        Assertions.assertEquals(1, result.getFailed());
+        Assertions.assertTrue(result.getErrors().get(0).startsWith("line 4:"));
+
+        ArgumentCaptor<List<Customer>> saved = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(customerRepository).saveAll(saved.capture());
+        Assertions.assertEquals("John", saved.getValue().get(0).getName());
+        Assertions.assertEquals("Vilnius", saved.getValue().get(0).getAddresses().get(0).getCity());
+        Mockito.verify(searchEngine).index(saved.getValue().get(0));
+    }
+
+    @Test
+    void importCsv_ShouldWriteInChunks() {
+        Mockito.when(customerRepository.saveAll(Mockito.anyList())).thenAnswer(CustomerImportServiceTest::assignIds);
+        ReflectionTestUtils.setField(customerImportService, "chunkSize", 2);
+        var body = """
+                name,lastname,phoneNumber,email,type,street,city,postalCode
+                John,Doe,1234567890,john@example.com,PRIVATE,"1 Main St, Apt 2",Vilnius,12345
+                Jane,Doe,1234567890,jane@example.com,PUBLIC,,,
+                Jim,Doe,1234567890,jim@example.com,UNKNOWN,,,
+                Pam,Doe,1234567890,pam@example.com,INDIVIDUAL,,,
+                """;
+
+        Mockito.when(customerRepository.findExistingFingerprints(Mockito.anyCollection())).thenReturn(List.of());
+
+        var result = customerImportService.importCsv(1L, stream(body));
+
+        Assertions.assertEquals(4, result.getReceived());
+        Assertions.assertEquals(3, result.getImported());
+        Assertions.assertEquals(1, result.getFailed());
+        Assertions.assertTrue(result.getErrors().get(0).startsWith("line 4:"));
+
+        ArgumentCaptor<List<Customer>> saved = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(customerRepository, Mockito.times(2)).saveAll(saved.capture());
+        Assertions.assertEquals("1 Main St, Apt 2", saved.getAllValues().get(0).get(0).getAddresses().get(0).getStreet());
+        Assertions.assertTrue(saved.getAllValues().get(0).get(1).getAddresses().isEmpty());
+        Mockito.verify(entityManager, Mockito.times(2)).clear();
+    }
+
+    @Test
+    void importNdjson_ShouldSkipDatabaseProbe_WhenFilterRulesOutEveryRow() {
+        Mockito.when(customerRepository.saveAll(Mockito.anyList())).thenAnswer(CustomerImportServiceTest::assignIds);
+        Mockito.when(identityFilter.mightContain(Mockito.anyString())).thenReturn(false);
+
+        var result = customerImportService.importNdjson(1L, stream(customerJson("John", "john@example.com")));
+
+        Assertions.assertEquals(1, result.getImported());
+        Mockito.verify(customerRepository, Mockito.never()).findExistingFingerprints(Mockito.anyCollection());
+        Mockito.verify(identityFilter).put(new CustomerIdentity("John", "Doe", "john@example.com", "1234567890").fingerprint());
+    }
+
+    @Test
+    void importNdjson_ShouldRetryChunkWithEveryRowProbed_WhenIdentityConstraintCatchesWhatTheFilterMissed() {
+        Mockito.when(identityFilter.mightContain(Mockito.anyString())).thenReturn(false);
+        var jane = new CustomerIdentity("Jane", "Doe", "jane@example.com", "1234567890").fingerprint();
+        Mockito.when(customerRepository.saveAll(Mockito.anyList()))
+                .thenThrow(new DataIntegrityViolationException("Unique index violation",
+                        new ConstraintViolationException("duplicate", new SQLException(), Customer.IDENTITY_CONSTRAINT)))
+                .thenAnswer(CustomerImportServiceTest::assignIds);
+        Mockito.when(customerRepository.findExistingFingerprints(Mockito.anyCollection())).thenReturn(List.of(jane));
+
+        var result = customerImportService.importNdjson(1L, stream(String.join("\n",
+                customerJson("John", "john@example.com"),
+                customerJson("Jane", "jane@example.com"))));
+
+        Assertions.assertEquals(1, result.getImported());
+        Assertions.assertEquals(1, result.getDuplicates());
+        Assertions.assertEquals(0, result.getFailed());
+        Mockito.verify(customerRepository).findExistingFingerprints(Mockito.anyCollection());
+    }
+
+    @Test
+    void importNdjson_ShouldThrowException_WhenAccountNotFound() {
+        Mockito.when(accountRepository.existsById(2L)).thenReturn(false);
+
+        var exception = Assertions.assertThrows(AccountException.class,
+                () -> customerImportService.importNdjson(2L, stream(customerJson("John", "john@example.com"))));
+        Assertions.assertEquals("Account not found", exception.getMessage());
+    }
+
+    private String customerJson(String name, String email) {
+        return String.format("{\"name\":\"%s\",\"lastname\":\"Doe\",\"phoneNumber\":\"1234567890\",\"email\":\"%s\","
+                + "\"type\":\"PRIVATE\",\"addresses\":[{\"street\":\"1 Main St\",\"city\":\"Vilnius\",\"postalCode\":\"12345\"}]}", name, email);
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Customer> assignIds(InvocationOnMock invocation) {
+        List<Customer> customers = invocation.getArgument(0);
+        for (int i = 0; i < customers.size(); i++) {
+            customers.get(i).setId(i + 1L);
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,102 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import danskebank.mini_bank_system.repository.CustomerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "search.engine=jpql",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureTestDatabase
+class CustomerSearchQueryCountTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        if (customerRepository.count() == 0) {
+            Account account = accountRepository.findById(1L).orElseThrow();
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                customers.add(createCustomer(account, i));
+            }
+            customerRepository.saveAll(customers);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void searchCustomers_ShouldRunFixedNumberOfStatementsPerPage() {
+        var result = customerService.searchCustomers("vilnius", 1, 10);
+
+        Assertions.assertEquals(25, result.getTotalElements());
+        Assertions.assertEquals(10, result.getContent().size());
+        result.getContent().forEach(customer -> Assertions.assertEquals(3, customer.getAddresses().size()));
+        // ids page, count, customers, addresses
+        Assertions.assertEquals(4, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void searchCustomersAfter_ShouldRunFixedNumberOfStatementsPerSlice() {
+        var result = customerService.searchCustomersAfter("vilnius", 0L, 10);
+
+        Assertions.assertTrue(result.hasNext());
+        Assertions.assertEquals(10, result.getContent().size());
+        result.getContent().forEach(customer -> Assertions.assertEquals(3, customer.getAddresses().size()));
+        // ids slice, customers, addresses
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    private Customer createCustomer(Account account, int i) {
+        var customer = new Customer();
+        customer.setName("John");
+        customer.setLastname("Doe" + i);
+        customer.setEmail("john.doe" + i + "@example.com");
+        customer.setPhoneNumber("1234567890");
+        customer.setType(CustomerType.PRIVATE);
+        customer.setAccount(account);
+        List<Address> addresses = new ArrayList<>();
+        for (String street : List.of("Gedimino", "Pilies", "Vokieciu")) {
+            var address = new Address();
+            address.setStreet(i + " " + street);
+            address.setCity("Vilnius");
+            address.setPostalCode("12345");
+            address.setCustomer(customer);
+            addresses.add(address);
+        }
+        customer.setAddresses(addresses);
+        return customer;
+    }
+}
@@ -1,32 +1,53 @@
 package danskebank.mini_bank_system.service;
 
+import danskebank.mini_bank_system.datasource.ReadYourWritesWindow;
 import danskebank.mini_bank_system.dto.AddressDTO;
 import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.dto.CustomerVersionRow;
 import danskebank.mini_bank_system.entity.Account;
 import danskebank.mini_bank_system.entity.Address;
 import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.entity.CustomerIdentity;
 import danskebank.mini_bank_system.entity.CustomerType;
+import danskebank.mini_bank_system.exception.AddressException;
 import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.exception.CustomerNotFoundException;
+import danskebank.mini_bank_system.exception.CustomerVersionException;
+import danskebank.mini_bank_system.exception.DuplicateCustomerException;
+import danskebank.mini_bank_system.outbox.Outbox;
 import danskebank.mini_bank_system.repository.AccountRepository;
 import danskebank.mini_bank_system.repository.AddressRepository;
 import danskebank.mini_bank_system.repository.CustomerRepository;
+import danskebank.mini_bank_system.search.CustomerSearchEngine;
+import danskebank.mini_bank_system.search.SearchResultCache;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Supplier;
 
 
 @ExtendWith(MockitoExtension.class)
 class CustomerServiceTest {
+    private static final String FINGERPRINT =
+            new CustomerIdentity("John", "Doe", "john.doe@example.com", "1234567890").fingerprint();
 
     @Mock
     private AccountRepository accountRepository;
@@ -37,6 +58,30 @@ class CustomerServiceTest {
     @Mock
     private AddressRepository addressRepository;
 
+    @Mock
+    private CustomerSearchEngine searchEngine;
+
+    @Mock
+    private CustomerReadModel customerReadModel;
+
+    @Mock
+    private CustomerIdentityFilter identityFilter;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private ReadYourWritesWindow readYourWritesWindow;
+
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private CustomerShardMover shardMover;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private CustomerService customerService;
 
@@ -51,10 +96,12 @@ class CustomerServiceTest {
 
         customerDTO.setAddresses(List.of(addressDTO));
 
-        Mockito.when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        Mockito.when(customerRepository.findByNameAndLastnameAndEmailAndPhoneNumber(
-                        "John", "Doe", "john.doe@example.com", "1234567890"))
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(true);
+        Mockito.when(customerRepository.findByIdentityFingerprint(FINGERPRINT))
                 .thenReturn(Optional.empty());
+        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(CustomerServiceTest::assignId);
 
         var result = customerService.createCustomer(accountId, customerDTO);
 
@@ -72,18 +119,18 @@ class CustomerServiceTest {
 
         var existingCustomer = new Customer();
         existingCustomer.setId(2L);
-        account.setCustomers(Set.of(existingCustomer));
+        existingCustomer.setAccount(account);
 
         var customerDTO = createCustomerDTO();
 
-        Mockito.when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        Mockito.when(customerRepository.findByNameAndLastnameAndEmailAndPhoneNumber(
-                        "John", "Doe", "john.doe@example.com", "1234567890"))
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(true);
+        Mockito.when(customerRepository.findByIdentityFingerprint(FINGERPRINT))
                 .thenReturn(Optional.of(existingCustomer));
 
         RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
                 () -> customerService.createCustomer(accountId, customerDTO));
         Assertions.assertEquals("Customer is already assigned to this account.", exception.getMessage());
+        Mockito.verify(accountRepository, Mockito.never()).adjustNumberOfOwners(Mockito.anyLong(), Mockito.anyInt());
     }
 
     @Test
@@ -92,14 +139,19 @@ class CustomerServiceTest {
         var account = new Account();
         account.setId(accountId);
 
+        var previousAccount = new Account();
+        previousAccount.setId(3L);
+
         var existingCustomer = new Customer();
         existingCustomer.setId(2L);
+        existingCustomer.setAccount(previousAccount);
 
         var customerDTO = createCustomerDTO();
 
-        Mockito.when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        Mockito.when(customerRepository.findByNameAndLastnameAndEmailAndPhoneNumber(
-                        "John", "Doe", "john.doe@example.com", "1234567890"))
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(true);
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(customerRepository.findByIdentityFingerprint(FINGERPRINT))
                 .thenReturn(Optional.of(existingCustomer));
 
         var result = customerService.createCustomer(accountId, customerDTO);
@@ -107,6 +159,7 @@ class CustomerServiceTest {
         Assertions.assertNotNull(result);
         Assertions.assertEquals(account, result.getAccount());
         Mockito.verify(customerRepository).save(existingCustomer);
+        Mockito.verify(accountRepository).adjustNumberOfOwners(3L, -1);
     }
 
     @Test
@@ -114,7 +167,7 @@ class CustomerServiceTest {
         var accountId = 1L;
         var customerDTO = new CustomerDTO();
 
-        Mockito.when(accountRepository.findById(accountId)).thenReturn(Optional.empty());
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(0);
 
         RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
                 () -> customerService.createCustomer(accountId, customerDTO));
@@ -132,37 +185,44 @@ class CustomerServiceTest {
         existingAddress.setCity("Old City");
         existingAddress.setPostalCode("00000");
         existingAddress.setCustomer(existingCustomer);
-        existingCustomer.setAddresses(List.of(existingAddress));
+        existingCustomer.setAddresses(new ArrayList<>(List.of(existingAddress)));
 
         var customerDTO = createCustomerDTO();
+        customerDTO.setEmail("john.doe@example.org");
 
         var updatedAddressDTO = new AddressDTO();
         updatedAddressDTO.setId(1L);
         updatedAddressDTO.setStreet("Updated Street");
         updatedAddressDTO.setCity("Updated City");
-        updatedAddressDTO.setPostalCode("11111");
+        updatedAddressDTO.setPostalCode("00000");
 
         var newAddressDTO = createAddressDTO();
 
         customerDTO.setAddresses(List.of(updatedAddressDTO, newAddressDTO));
 
         Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(existingCustomer));
-        Mockito.when(addressRepository.findAllByCustomerId(customerId)).thenReturn(Optional.of(List.of(existingAddress)));
-        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        Mockito.when(addressRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         var result = customerService.updateCustomer(customerId, customerDTO);
 
-        Assertions.assertNotNull(result);
-        Assertions.assertEquals("John", result.getName());
-        Assertions.assertEquals("Doe", result.getLastname());
-        Assertions.assertEquals(2, result.getAddresses().size());
-        Assertions.assertEquals("Updated Street", result.getAddresses().get(0).getStreet());
-        Assertions.assertEquals("Updated City", result.getAddresses().get(0).getCity());
-        Assertions.assertEquals("123 Main St", result.getAddresses().get(1).getStreet());
-
-        Mockito.verify(customerRepository).save(result);
-        Mockito.verify(addressRepository).saveAll(Mockito.anyList());
+        Assertions.assertTrue(result.isChanged());
+        Assertions.assertEquals(List.of("email"), result.getChangedFields());
+        Assertions.assertEquals(1, result.getUpdatedAddresses().size());
+        Assertions.assertEquals("Updated Street", result.getUpdatedAddresses().get(0).getStreet());
+        Assertions.assertEquals(1, result.getInsertedAddresses().size());
+        Assertions.assertEquals("123 Main St", result.getInsertedAddresses().get(0).getStreet());
+        Assertions.assertTrue(result.getDeletedAddressIds().isEmpty());
+
+        Assertions.assertEquals("john.doe@example.org", existingCustomer.getEmail());
+        Assertions.assertEquals(2, existingCustomer.getAddresses().size());
+        Assertions.assertEquals("Updated City", existingAddress.getCity());
+        Mockito.verify(addressRepository).saveAll(List.of(existingCustomer.getAddresses().get(1)));
+        Mockito.verify(addressRepository, Mockito.never()).deleteAllByIdInBatch(Mockito.any());
+        Mockito.verify(customerRepository).flush();
+        Mockito.verify(searchEngine).index(existingCustomer);
+        // the terms of the old email and address as well as of the new ones
+        Mockito.verify(searchResultCache).invalidateAfterCommit(Mockito.argThat(documents ->
+                documents.stream().anyMatch(document -> document.contains("john.doe@example.com") && !document.contains("updated city"))
+                        && documents.stream().anyMatch(document -> document.contains("john.doe@example.org") && document.contains("updated city"))));
     }
 
     @Test
@@ -172,7 +232,7 @@ class CustomerServiceTest {
 
         Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.empty());
 
-        var exception = Assertions.assertThrows(CustomerException.class,
+        var exception = Assertions.assertThrows(CustomerNotFoundException.class,
                 () -> customerService.updateCustomer(customerId, customerDTO));
         Assertions.assertEquals("Customer not found.", exception.getMessage());
     }
@@ -188,20 +248,130 @@ class CustomerServiceTest {
         customerDTO.setAddresses(List.of(newAddressDTO));
 
         Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(existingCustomer));
-        Mockito.when(addressRepository.findAllByCustomerId(customerId)).thenReturn(Optional.of(List.of()));
-        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        Mockito.when(addressRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         var result = customerService.updateCustomer(customerId, customerDTO);
 
-        Assertions.assertNotNull(result);
-        Assertions.assertEquals(1, result.getAddresses().size());
-        Assertions.assertEquals("123 Main St", result.getAddresses().get(0).getStreet());
+        Assertions.assertTrue(result.isChanged());
+        Assertions.assertTrue(result.getChangedFields().isEmpty());
+        Assertions.assertEquals(1, result.getInsertedAddresses().size());
+        Assertions.assertEquals(1, existingCustomer.getAddresses().size());
+        Assertions.assertEquals("123 Main St", existingCustomer.getAddresses().get(0).getStreet());
 
-        Mockito.verify(customerRepository).save(result);
         Mockito.verify(addressRepository).saveAll(Mockito.anyList());
     }
 
+    @Test
+    void updateCustomer_ShouldWriteNothing_WhenPayloadMatchesStoredState() {
+        var customerId = 1L;
+        var existingCustomer = createCustomer();
+
+        var existingAddress = new Address();
+        existingAddress.setId(1L);
+        existingAddress.setStreet("123 Main St");
+        existingAddress.setCity("New York");
+        existingAddress.setPostalCode("10001");
+        existingCustomer.setAddresses(new ArrayList<>(List.of(existingAddress)));
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(existingCustomer));
+
+        var result = customerService.updateCustomer(customerId, customerDTO);
+
+        Assertions.assertFalse(result.isChanged());
+        Mockito.verifyNoInteractions(addressRepository, searchEngine, identityFilter, searchResultCache);
+        Mockito.verify(customerRepository, Mockito.never()).flush();
+    }
+
+    @Test
+    void updateCustomer_ShouldKeepOmittedFields_AndDeleteOmittedAddresses() {
+        var customerId = 1L;
+        var existingCustomer = createCustomer();
+
+        var keptAddress = new Address();
+        keptAddress.setId(1L);
+        keptAddress.setStreet("123 Main St");
+        var removedAddress = new Address();
+        removedAddress.setId(2L);
+        removedAddress.setStreet("Old Street");
+        existingCustomer.setAddresses(new ArrayList<>(List.of(keptAddress, removedAddress)));
+
+        var keptAddressDTO = new AddressDTO();
+        keptAddressDTO.setId(1L);
+        var customerDTO = new CustomerDTO();
+        customerDTO.setType("PUBLIC");
+        customerDTO.setAddresses(List.of(keptAddressDTO));
+
+        Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(existingCustomer));
+
+        var result = customerService.updateCustomer(customerId, customerDTO);
+
+        Assertions.assertEquals(List.of("type"), result.getChangedFields());
+        Assertions.assertEquals(List.of(2L), result.getDeletedAddressIds());
+        Assertions.assertTrue(result.getUpdatedAddresses().isEmpty());
+        Assertions.assertEquals("John", existingCustomer.getName());
+        Assertions.assertEquals(CustomerType.PUBLIC, existingCustomer.getType());
+        Assertions.assertEquals(List.of(keptAddress), existingCustomer.getAddresses());
+        Mockito.verify(addressRepository).deleteAll(List.of(removedAddress));
+        Mockito.verify(addressRepository, Mockito.never()).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    void updateCustomer_ShouldThrowException_WhenAddressBelongsToAnotherCustomer() {
+        var customerId = 1L;
+        var addressDTO = createAddressDTO();
+        addressDTO.setId(99L);
+        var customerDTO = new CustomerDTO();
+        customerDTO.setAddresses(List.of(addressDTO));
+
+        Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(createCustomer()));
+
+        var exception = Assertions.assertThrows(AddressException.class,
+                () -> customerService.updateCustomer(customerId, customerDTO));
+        Assertions.assertEquals("No address found with 99 id", exception.getMessage());
+    }
+
+    @Test
+    void updateCustomer_ShouldFailWithoutWriting_WhenIfMatchIsStale() {
+        var customerId = 1L;
+        var existingCustomer = createCustomer();
+        var customerDTO = new CustomerDTO();
+        customerDTO.setEmail("john.doe@example.org");
+
+        Mockito.when(customerRepository.findById(customerId)).thenReturn(Optional.of(existingCustomer));
+        var etag = CustomerETag.of(existingCustomer);
+        existingCustomer.setVersionNum(existingCustomer.getVersionNum() + 1);
+
+        var exception = Assertions.assertThrows(CustomerVersionException.class,
+                () -> customerService.updateCustomer(customerId, customerDTO, etag));
+        Assertions.assertEquals("Customer was modified since it was read.", exception.getMessage());
+        Assertions.assertEquals("john.doe@example.com", existingCustomer.getEmail());
+        Mockito.verify(customerRepository, Mockito.never()).flush();
+    }
+
+    @Test
+    void getCustomer_ShouldNotLoadCustomer_WhenIfNoneMatchIsCurrent() {
+        var customerId = 1L;
+        var versions = List.of(new CustomerVersionRow(3, 10L, 1), new CustomerVersionRow(3, 11L, 2));
+        Mockito.when(customerRepository.findVersionRows(customerId)).thenReturn(versions);
+        var etag = CustomerETag.of(versions);
+
+        var result = customerService.getCustomer(customerId, "\"other\", " + etag);
+
+        Assertions.assertEquals(etag, result.etag());
+        Assertions.assertNull(result.customer());
+        Mockito.verifyNoInteractions(customerReadModel);
+        Assertions.assertNotEquals(etag, CustomerETag.of(List.of(new CustomerVersionRow(3, 10L, 1), new CustomerVersionRow(3, 11L, 3))));
+    }
+
+    @Test
+    void getCustomer_ShouldThrowNotFound_WhenCustomerDoesNotExist() {
+        Mockito.when(customerRepository.findVersionRows(1L)).thenReturn(List.of());
+
+        Assertions.assertThrows(CustomerNotFoundException.class, () -> customerService.getCustomer(1L, null));
+    }
+
     @Test
     void searchCustomers_ShouldReturnPagedResults() {
         var searchTerm = "John";
@@ -209,29 +379,162 @@ class CustomerServiceTest {
         int size = 2;
         var pageable = PageRequest.of(page, size);
 
-        var customer1 = new Customer();
+        var customer1 = new CustomerDTO();
         customer1.setName("John");
         customer1.setLastname("Doe");
 
-        var customer2 = new Customer();
+        var customer2 = new CustomerDTO();
         customer2.setName("John");
         customer2.setLastname("Smith");
 
-        var customerList = List.of(customer1, customer2);
-        var customerPage = new PageImpl<>(customerList, pageable, customerList.size());
-
-        Mockito.when(customerRepository.searchCustomers(searchTerm, pageable))
-                .thenReturn(customerPage);
+        Mockito.when(searchEngine.search(searchTerm, pageable))
+                .thenReturn(new PageImpl<>(List.of(1L, 2L), pageable, 3));
+        Mockito.when(customerReadModel.findAllInOrder(List.of(1L, 2L)))
+                .thenReturn(List.of(customer1, customer2));
+        Mockito.when(searchResultCache.get(Mockito.eq(searchTerm), Mockito.eq(page), Mockito.eq(size), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
 
         var result = customerService.searchCustomers(searchTerm, page, size);
 
         Assertions.assertNotNull(result);
+        Assertions.assertEquals(3, result.getTotalElements());
         Assertions.assertEquals(2, result.getContent().size());
         Assertions.assertEquals("John", result.getContent().get(0).getName());
         Assertions.assertEquals("Doe", result.getContent().get(0).getLastname());
         Assertions.assertEquals("Smith", result.getContent().get(1).getLastname());
 
-        Mockito.verify(customerRepository).searchCustomers(searchTerm, pageable);
+        Mockito.verify(searchEngine).search(searchTerm, pageable);
+    }
+
+    @Test
+    void searchCustomersAfter_ShouldReturnSliceWithoutCounting() {
+        var searchTerm = "John";
+        var customer = new CustomerDTO();
+        customer.setId(5L);
+        customer.setName("John");
+
+        Mockito.when(searchEngine.searchAfter(searchTerm, 4L, 1))
+                .thenReturn(new SliceImpl<>(List.of(5L), PageRequest.of(0, 1), true));
+        Mockito.when(customerReadModel.findAllInOrder(List.of(5L))).thenReturn(List.of(customer));
+
+        var result = customerService.searchCustomersAfter(searchTerm, 4L, 1);
+
+        Assertions.assertEquals(List.of(customer), result.getContent());
+        Assertions.assertTrue(result.hasNext());
+        Mockito.verify(searchEngine, Mockito.never()).search(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    void createCustomer_ShouldIndexNewCustomer() {
+        var accountId = 1L;
+        var account = new Account();
+        account.setId(accountId);
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(true);
+        Mockito.when(customerRepository.findByIdentityFingerprint(FINGERPRINT))
+                .thenReturn(Optional.empty());
+        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(CustomerServiceTest::assignId);
+
+        var result = customerService.createCustomer(accountId, customerDTO);
+
+        Mockito.verify(searchEngine).index(result);
+    }
+
+    @Test
+    void createCustomer_ShouldReassignCustomer_WhenIdentityFilterHasNotSeenIt() {
+        var accountId = 1L;
+        var account = new Account();
+        account.setId(accountId);
+
+        // created by another instance, so this instance's identity filter rules it out
+        var previousAccount = new Account();
+        previousAccount.setId(3L);
+        var existingCustomer = new Customer();
+        existingCustomer.setId(2L);
+        existingCustomer.setAccount(previousAccount);
+
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(false);
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(CustomerServiceTest::assignId);
+        Mockito.doThrow(identityViolation()).when(customerRepository).flush();
+        Mockito.when(customerRepository.findByIdentityFingerprint(FINGERPRINT))
+                .thenReturn(Optional.of(existingCustomer));
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        var result = customerService.createCustomer(accountId, customerDTO);
+
+        Assertions.assertSame(existingCustomer, result);
+        Assertions.assertSame(account, result.getAccount());
+        Mockito.verify(accountRepository).adjustNumberOfOwners(3L, -1);
+        Mockito.verify(customerRepository).findByIdentityFingerprint(FINGERPRINT);
+        Mockito.verify(searchEngine, Mockito.never()).index(Mockito.any());
+    }
+
+    @Test
+    void createCustomer_ShouldNotProbeDatabase_WhenIdentityFilterRulesItOut() {
+        var accountId = 1L;
+        var account = new Account();
+        account.setId(accountId);
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(false);
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(customerRepository.save(Mockito.any(Customer.class))).thenAnswer(CustomerServiceTest::assignId);
+
+        var result = customerService.createCustomer(accountId, customerDTO);
+
+        Assertions.assertEquals("John", result.getName());
+        Mockito.verify(customerRepository, Mockito.never()).findByIdentityFingerprint(Mockito.anyString());
+        Mockito.verify(identityFilter).put(FINGERPRINT);
+    }
+
+    @Test
+    void createCustomer_ShouldThrowDuplicateException_WhenFingerprintConstraintIsViolated() {
+        var accountId = 1L;
+        var account = new Account();
+        account.setId(accountId);
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.when(identityFilter.mightContain(FINGERPRINT)).thenReturn(true);
+        Mockito.doThrow(identityViolation()).when(customerRepository).flush();
+
+        Assertions.assertThrows(DuplicateCustomerException.class,
+                () -> customerService.createCustomer(accountId, customerDTO));
+        Mockito.verify(searchEngine, Mockito.never()).index(Mockito.any());
+    }
+
+    @Test
+    void createCustomer_ShouldNotReportDuplicate_WhenAnotherConstraintIsViolated() {
+        var accountId = 1L;
+        var account = new Account();
+        account.setId(accountId);
+
+        var customerDTO = createCustomerDTO();
+        customerDTO.setAddresses(List.of(createAddressDTO()));
+
+        Mockito.when(accountRepository.adjustNumberOfOwners(accountId, 1)).thenReturn(1);
+        Mockito.when(accountRepository.getReferenceById(accountId)).thenReturn(account);
+        Mockito.doThrow(new DataIntegrityViolationException("Referential integrity constraint violation",
+                        new ConstraintViolationException("fk", new SQLException(), "fk_customer_account")))
+                .when(customerRepository).flush();
+
+        Assertions.assertThrows(DataIntegrityViolationException.class,
+                () -> customerService.createCustomer(accountId, customerDTO));
     }
 
     private CustomerDTO createCustomerDTO() {
@@ -264,4 +567,17 @@ class CustomerServiceTest {
         customer.setVersionNum(1);
         return customer;
     }
+
+    private static DataIntegrityViolationException identityViolation() {
+        return new DataIntegrityViolationException("Unique index violation",
+                new ConstraintViolationException("duplicate", new SQLException(), Customer.IDENTITY_CONSTRAINT));
+    }
+
+    private static Customer assignId(InvocationOnMock invocation) {
+        Customer customer = invocation.getArgument(0);
+        if (customer.getId() == null) {
+            customer.setId(1L);
+        }
+        return customer;
+    }
 }
@@ -0,0 +1,84 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.dto.AddressDTO;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.entity.Customer;
+import danskebank.mini_bank_system.repository.AddressRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase
+class CustomerUpdateStatementTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerService.createCustomer(1L, createCustomerDTO(
+                "Oscar" + System.nanoTime(), address(null, "1 Gedimino"), address(null, "2 Pilies"), address(null, "3 Vokieciu")));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void updateCustomer_ShouldWriteNothing_WhenPayloadRepeatsStoredState() {
+        var result = customerService.updateCustomer(customer.getId(), createCustomerDTO(
+                customer.getName(), address(null, "1 Gedimino"), address(null, "2 Pilies"), address(null, "3 Vokieciu")));
+
+        Assertions.assertFalse(result.isChanged());
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(0, statistics.getEntityInsertCount());
+        Assertions.assertEquals(0, statistics.getEntityDeleteCount());
+    }
+
+    @Test
+    void updateCustomer_ShouldWriteOnlyChangedAddresses() {
+        var addresses = customer.getAddresses();
+
+        var result = customerService.updateCustomer(customer.getId(), createCustomerDTO(
+                customer.getName(),
+                address(addresses.get(0).getId(), "1 Gedimino"),
+                address(addresses.get(1).getId(), "22 Pilies"),
+                address(null, "4 Traku")));
+
+        Assertions.assertTrue(result.getChangedFields().isEmpty());
+        Assertions.assertEquals(1, result.getUpdatedAddresses().size());
+        Assertions.assertEquals(1, result.getInsertedAddresses().size());
+        Assertions.assertEquals(List.of(addresses.get(2).getId()), result.getDeletedAddressIds());
+        Assertions.assertEquals(1, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(1, statistics.getEntityInsertCount());
+        Assertions.assertEquals(List.of("1 Gedimino", "22 Pilies", "4 Traku"), addressRepository.findRowsByCustomerIdIn(List.of(customer.getId())).stream()
+                .map(row -> row.street())
+                .toList());
+    }
+
+    private CustomerDTO createCustomerDTO(String name, AddressDTO... addresses) {
+        return CustomerFixture.customer(name).lastname("Martinez").email("oscar@example.com").addresses(addresses).build();
+    }
+
+    private AddressDTO address(Long id, String street) {
+        return CustomerFixture.address(id, street, "Vilnius", "12345");
+    }
+}
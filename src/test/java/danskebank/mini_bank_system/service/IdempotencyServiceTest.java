@@ -0,0 +1,183 @@
+package danskebank.mini_bank_system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import danskebank.mini_bank_system.datasource.ShardRouter;
+import danskebank.mini_bank_system.entity.IdempotencyRecord;
+import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.exception.IdempotencyException;
+import danskebank.mini_bank_system.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+
+    // the table, as far as the repository mock is concerned
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), ShardRouter.unsharded(),
+                transactionManager, new SimpleMeterRegistry(), 100, Duration.ofHours(1), Duration.ofSeconds(5));
+        Mockito.when(idempotencyRecordRepository.findById(Mockito.anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(records.get(invocation.<String>getArgument(0))));
+        Mockito.when(idempotencyRecordRepository.save(Mockito.any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            records.put(record.getKey(), record);
+            return record;
+        });
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WithoutRunningActionAgain() {
+        var calls = new AtomicInteger();
+
+        var first = idempotencyService.execute(1L, "key-1", List.of(1L, "John"), HttpStatus.CREATED,
+                () -> Map.of("name", "John", "call", calls.incrementAndGet()));
+        var second = idempotencyService.execute(1L, "key-1", List.of(1L, "John"), HttpStatus.CREATED,
+                () -> Map.of("name", "John", "call", calls.incrementAndGet()));
+
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        Assertions.assertEquals(first.getBody(), second.getBody());
+        Assertions.assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Assertions.assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Mockito.verify(idempotencyRecordRepository).save(Mockito.any(IdempotencyRecord.class));
+        Mockito.verify(idempotencyRecordRepository, Mockito.times(2)).findById("key-1");
+    }
+
+    @Test
+    void execute_ShouldThrowException_WhenKeyIsReusedForDifferentRequest() {
+        idempotencyService.execute(1L, "key-2", List.of(1L, "John"), HttpStatus.CREATED, () -> "John");
+
+        var exception = Assertions.assertThrows(IdempotencyException.class,
+                () -> idempotencyService.execute(1L, "key-2", List.of(1L, "Jane"), HttpStatus.CREATED, () -> "Jane"));
+        Assertions.assertEquals("Idempotency-Key was already used for a different request.", exception.getMessage());
+    }
+
+    @Test
+    void execute_ShouldReplayRecordStoredByAnotherInstance() {
+        idempotencyService.execute(1L, "key-0", "request", HttpStatus.CREATED, () -> "probe");
+        var hash = captureSaved().getRequestHash();
+        records.put("key-3", new IdempotencyRecord("key-3", hash, 201, "\"stored\"", LocalDateTime.now().plusMinutes(5)));
+
+        var response = idempotencyService.execute(1L, "key-3", "request", HttpStatus.CREATED, () -> Assertions.fail("must not run"));
+
+        Assertions.assertEquals("\"stored\"", response.getBody());
+        Assertions.assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_ShouldRunAgain_WhenFirstAttemptFailed() {
+        Assertions.assertThrows(CustomerException.class, () -> idempotencyService.execute(1L, "key-4", "request", HttpStatus.CREATED,
+                () -> {
+                    throw new CustomerException("Failed");
+                }));
+
+        var response = idempotencyService.execute(1L, "key-4", "request", HttpStatus.CREATED, () -> "created");
+
+        Assertions.assertEquals("\"created\"", response.getBody());
+        Mockito.verify(idempotencyRecordRepository, Mockito.times(1)).save(Mockito.any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void execute_ShouldLetConcurrentDuplicatesWaitForFirstRequest() throws Exception {
+        var calls = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = executor.submit(() -> idempotencyService.execute(1L, "key-5", "request", HttpStatus.CREATED, () -> {
+                started.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<?>> duplicates = List.of(
+                    executor.submit(() -> idempotencyService.execute(1L, "key-5", "request", HttpStatus.CREATED, calls::incrementAndGet)),
+                    executor.submit(() -> idempotencyService.execute(1L, "key-5", "request", HttpStatus.CREATED, calls::incrementAndGet)));
+            release.countDown();
+
+            Assertions.assertEquals("1", ((ResponseEntity<?>) first.get()).getBody());
+            for (var duplicate : duplicates) {
+                Assertions.assertEquals("1", ((ResponseEntity<?>) duplicate.get()).getBody());
+            }
+        }
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_ShouldRollBackActionWithTheRecord_WhenRecordCannotBeStored() {
+        Mockito.when(idempotencyRecordRepository.save(Mockito.any(IdempotencyRecord.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        Assertions.assertThrows(DataAccessResourceFailureException.class,
+                () -> idempotencyService.execute(1L, "key-6", "request", HttpStatus.CREATED, () -> "created"));
+
+        Mockito.verify(transactionManager).rollback(Mockito.any());
+        Mockito.verify(transactionManager, Mockito.never()).commit(Mockito.any());
+    }
+
+    @Test
+    void execute_ShouldReplayRecordOfAnotherInstance_WhenItStoredTheKeyFirst() {
+        idempotencyService.execute(1L, "key-0", "request", HttpStatus.CREATED, () -> "probe");
+        var hash = captureSaved().getRequestHash();
+        Mockito.doAnswer(invocation -> {
+            records.put("key-7", new IdempotencyRecord("key-7", hash, 201, "\"theirs\"", LocalDateTime.now().plusMinutes(5)));
+            throw new DataIntegrityViolationException("duplicate key");
+        }).when(transactionManager).commit(Mockito.any());
+
+        var response = idempotencyService.execute(1L, "key-7", "request", HttpStatus.CREATED, () -> "ours");
+
+        Assertions.assertEquals("\"theirs\"", response.getBody());
+        Assertions.assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    private IdempotencyRecord captureSaved() {
+        var saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        Mockito.verify(idempotencyRecordRepository, Mockito.atLeastOnce()).save(saved.capture());
+        return saved.getValue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
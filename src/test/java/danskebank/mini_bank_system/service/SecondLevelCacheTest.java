@@ -0,0 +1,109 @@
+package danskebank.mini_bank_system.service;
+
+import danskebank.mini_bank_system.CustomerFixture;
+import danskebank.mini_bank_system.config.SecondLevelCacheConfig;
+import danskebank.mini_bank_system.dto.CustomerDTO;
+import danskebank.mini_bank_system.entity.Account;
+import danskebank.mini_bank_system.entity.Address;
+import danskebank.mini_bank_system.exception.CustomerException;
+import danskebank.mini_bank_system.repository.AccountRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class SecondLevelCacheTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAccount_ShouldLoadFromCache_AndSeeOwnerCountUpdates() {
+        int owners = accountRepository.findById(2L).orElseThrow().getNumberOfOwners();
+        accountRepository.findById(2L);
+        Assertions.assertTrue(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.ACCOUNT).getHitCount() > 0);
+
+        customerService.createCustomer(2L, createCustomerDTO("Michael", "michael@example.com"));
+        customerService.createCustomer(2L, createCustomerDTO("Dwight", "dwight@example.com"));
+
+        Assertions.assertEquals(owners + 2, accountRepository.findById(2L).orElseThrow().getNumberOfOwners());
+    }
+
+    @Test
+    void createCustomer_ShouldSeeNewMembership_WhenAccountCustomersWereCached() {
+        customerService.createCustomer(1L, createCustomerDTO("Jim", "jim@example.com"));
+        customerService.createCustomer(1L, createCustomerDTO("Pam", "pam@example.com"));
+
+        var exception = Assertions.assertThrows(CustomerException.class,
+                () -> customerService.createCustomer(1L, createCustomerDTO("Pam", "pam@example.com")));
+        Assertions.assertEquals("Customer is already assigned to this account.", exception.getMessage());
+    }
+
+    @Test
+    void updateCustomer_ShouldServeCustomerFromCache_AndReflectPreviousUpdate() {
+        var customer = customerService.createCustomer(1L, createCustomerDTO("Angela", "angela@example.com"));
+
+        customerService.updateCustomer(customer.getId(), createCustomerDTO("Angela", "angela.martin@example.com"));
+        var updated = customerService.updateCustomer(customer.getId(), createCustomerDTO("Angela", "angela.martin@example.com"));
+
+        // the second update sees the first one's email and has nothing left to write
+        Assertions.assertFalse(updated.isChanged());
+        Assertions.assertTrue(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.CUSTOMER).getHitCount() > 0);
+    }
+
+    @Test
+    void writes_ShouldEvictOnlyTheAccountsAndAddressesTheyChange() {
+        var kept = customerService.createCustomer(1L, createCustomerDTO("Kevin", "kevin@example.com"));
+        var changed = customerService.createCustomer(1L, CustomerFixture.customer("Toby").lastname("Flenderson").uniqueName()
+                .addresses(CustomerFixture.address("1 Main St", "Scranton", "18503"), CustomerFixture.address("2 Main St", "Scranton", "18503"))
+                .build());
+        var cache = entityManagerFactory.getCache();
+        accountRepository.findById(1L);
+        accountRepository.findById(2L);
+        customerService.getCustomer(kept.getId(), null);
+        Long keptAddressId = kept.getAddresses().get(0).getId();
+        Assertions.assertTrue(cache.contains(Address.class, keptAddressId));
+
+        customerService.createCustomer(2L, createCustomerDTO("Creed", "creed@example.com"));
+        Assertions.assertFalse(cache.contains(Account.class, 2L));
+        customerService.updateCustomer(changed.getId(), CustomerFixture.customer(changed.getName()).lastname("Flenderson")
+                .addresses(CustomerFixture.address(changed.getAddresses().get(0).getId(), "1 Main St", "Scranton", "18503"))
+                .build());
+
+        Assertions.assertTrue(cache.contains(Account.class, 1L));
+        Assertions.assertTrue(cache.contains(Address.class, keptAddressId));
+        // the deleted address leaves a soft lock in its cache entry, so look it up rather than ask the cache
+        try (var entityManager = entityManagerFactory.createEntityManager()) {
+            Assertions.assertNull(entityManager.find(Address.class, changed.getAddresses().get(1).getId()));
+        }
+    }
+
+    private CustomerDTO createCustomerDTO(String name, String email) {
+        return CustomerFixture.customer(name)
+                .lastname("Doe")
+                .email(email)
+                .addresses(CustomerFixture.address("123 Main St", "Vilnius", "10001"))
+                .build();
+    }
+}